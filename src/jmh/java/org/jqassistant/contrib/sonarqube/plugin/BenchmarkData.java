@@ -0,0 +1,123 @@
+package org.jqassistant.contrib.sonarqube.plugin;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jqassistant.schema.report.v1.*;
+import org.sonar.api.batch.fs.internal.DefaultFileSystem;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+
+/**
+ * Creates the data used by the benchmarks, i.e. rules and file systems. Reports
+ * are created using the {@link ReportGenerator}.
+ * <p>
+ * The rows of the rules reference the Java types created by
+ * {@link #createFileSystem(File, int)} in round robin order.
+ */
+public final class BenchmarkData {
+
+    private static final int LINES = 50;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Creates failed constraints.
+     *
+     * @param ruleCount
+     *            The number of constraints.
+     * @param rowsPerRule
+     *            The number of rows per constraint.
+     * @param inputFileCount
+     *            The number of input files which are referenced by the rows.
+     * @return The constraints.
+     */
+    public static List<ExecutableRuleType> createRules(int ruleCount, int rowsPerRule, int inputFileCount) {
+        List<ExecutableRuleType> rules = new ArrayList<>(ruleCount);
+        for (int ruleIndex = 0; ruleIndex < ruleCount; ruleIndex++) {
+            ConstraintType constraint = new ConstraintType();
+            constraint.setId("benchmark:Constraint" + ruleIndex);
+            constraint.setDescription("Benchmark constraint " + ruleIndex + ".");
+            constraint.setStatus(StatusEnumType.FAILURE);
+            SeverityType severity = new SeverityType();
+            severity.setLevel(2);
+            severity.setValue("major");
+            constraint.setSeverity(severity);
+            ResultType result = new ResultType();
+            ColumnsHeaderType columns = new ColumnsHeaderType();
+            columns.getColumn().add(createColumnHeader("Type", true));
+            columns.getColumn().add(createColumnHeader("Method", false));
+            columns.setCount(columns.getColumn().size());
+            result.setColumns(columns);
+            RowsType rows = new RowsType();
+            for (int rowIndex = 0; rowIndex < rowsPerRule; rowIndex++) {
+                int fileIndex = (ruleIndex * rowsPerRule + rowIndex) % inputFileCount;
+                RowType row = new RowType();
+                row.getColumn().add(createColumn("Type", "Type", getSourceName(fileIndex), 1 + rowIndex % LINES, getTypeName(fileIndex)));
+                row.getColumn().add(createColumn("Method", "Method", getSourceName(fileIndex), null, getTypeName(fileIndex) + "#void method" + rowIndex + "()"));
+                rows.getRow().add(row);
+            }
+            rows.setCount(rowsPerRule);
+            result.setRows(rows);
+            constraint.setResult(result);
+            rules.add(constraint);
+        }
+        return rules;
+    }
+
+    /**
+     * Creates a {@link DefaultFileSystem} containing Java source files.
+     *
+     * @param baseDir
+     *            The base directory.
+     * @param inputFileCount
+     *            The number of Java source files.
+     * @return The {@link DefaultFileSystem}.
+     */
+    public static DefaultFileSystem createFileSystem(File baseDir, int inputFileCount) {
+        DefaultFileSystem fileSystem = new DefaultFileSystem(baseDir);
+        StringBuilder contents = new StringBuilder();
+        for (int line = 0; line < LINES; line++) {
+            contents.append("// line ").append(line).append('\n');
+        }
+        for (int fileIndex = 0; fileIndex < inputFileCount; fileIndex++) {
+            fileSystem.add(new TestInputFileBuilder("benchmark", "src/main/java/" + getTypeName(fileIndex).replace('.', '/') + ".java")
+                .setModuleBaseDir(baseDir.toPath()).setLanguage("java").initMetadata(contents.toString()).build());
+        }
+        return fileSystem;
+    }
+
+    /**
+     * Return the class file name of the type with the given index.
+     */
+    public static String getSourceName(int fileIndex) {
+        return "/" + getTypeName(fileIndex).replace('.', '/') + ".class";
+    }
+
+    private static String getTypeName(int fileIndex) {
+        return "com.acme.p" + (fileIndex % 100) + ".Type" + fileIndex;
+    }
+
+    private static ColumnHeaderType createColumnHeader(String name, boolean primary) {
+        ColumnHeaderType columnHeader = new ColumnHeaderType();
+        columnHeader.setValue(name);
+        columnHeader.setPrimary(primary);
+        return columnHeader;
+    }
+
+    private static ColumnType createColumn(String name, String type, String sourceName, Integer line, String value) {
+        ColumnType column = new ColumnType();
+        column.setName(name);
+        ElementType element = new ElementType();
+        element.setLanguage("Java");
+        element.setValue(type);
+        column.setElement(element);
+        SourceType source = new SourceType();
+        source.setName(sourceName);
+        source.setLine(line);
+        column.setSource(source);
+        column.setValue(value);
+        return column;
+    }
+}
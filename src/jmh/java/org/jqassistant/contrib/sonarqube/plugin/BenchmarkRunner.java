@@ -0,0 +1,60 @@
+package org.jqassistant.contrib.sonarqube.plugin;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks of the plugin.
+ * <p>
+ * All JMH command line options are supported (e.g.
+ * <code>-p rowsPerRule=1000 ReportReaderBenchmark</code>), the
+ * {@link GCProfiler} is always enabled. Besides the throughput (ops/s) the
+ * allocated bytes per report row are printed for each benchmark.
+ */
+public final class BenchmarkRunner {
+
+    private static final String ALLOCATION_RATE_NORM = "gc.alloc.rate.norm";
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        Options options = new OptionsBuilder().parent(new CommandLineOptions(args)).addProfiler(GCProfiler.class).build();
+        Collection<RunResult> runResults = new Runner(options).run();
+        System.out.println();
+        System.out.println("Allocation per row:");
+        for (RunResult runResult : runResults) {
+            double bytesPerOperation = getAllocationRateNorm(runResult.getSecondaryResults());
+            long rows = Long.parseLong(runResult.getParams().getParam("rules")) * Long.parseLong(runResult.getParams().getParam("rowsPerRule"));
+            System.out.printf("%-100s %12.1f bytes/row%n", getLabel(runResult), bytesPerOperation / rows);
+        }
+    }
+
+    private static double getAllocationRateNorm(Map<String, Result> secondaryResults) {
+        // the label is prefixed with "·" by older JMH versions
+        for (Map.Entry<String, Result> entry : secondaryResults.entrySet()) {
+            if (entry.getKey().endsWith(ALLOCATION_RATE_NORM)) {
+                return entry.getValue().getScore();
+            }
+        }
+        return Double.NaN;
+    }
+
+    private static String getLabel(RunResult runResult) {
+        StringBuilder label = new StringBuilder(runResult.getParams().getBenchmark());
+        for (String key : runResult.getParams().getParamsKeys()) {
+            label.append(' ').append(key).append('=').append(runResult.getParams().getParam(key));
+        }
+        return label.toString();
+    }
+}
@@ -0,0 +1,80 @@
+package org.jqassistant.contrib.sonarqube.plugin.language;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.jqassistant.contrib.sonarqube.plugin.BenchmarkData;
+import org.jqassistant.contrib.sonarqube.plugin.JQAssistantConfiguration;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.api.batch.fs.internal.DefaultFileSystem;
+import org.sonar.api.config.internal.MapSettings;
+
+/**
+ * Benchmarks for resolving Java source files.
+ * <p>
+ * Each operation resolves <code>rules * rowsPerRule</code> source names
+ * referencing the input files in round robin order.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class JavaResourceResolverBenchmark {
+
+    @Param({ "10" })
+    private int rules;
+
+    @Param({ "10", "1000" })
+    private int rowsPerRule;
+
+    @Param({ "100", "10000" })
+    private int inputFiles;
+
+    private File baseDir;
+
+    private DefaultFileSystem fileSystem;
+
+    private final JQAssistantConfiguration configuration = new JQAssistantConfiguration(new MapSettings().asConfig());
+
+    private JavaResourceResolver warmResolver;
+
+    @Setup
+    public void setUp() throws IOException {
+        baseDir = Files.createTempDirectory("jqassistant-benchmark").toFile();
+        fileSystem = BenchmarkData.createFileSystem(baseDir, inputFiles);
+        warmResolver = new JavaResourceResolver(configuration);
+        warmResolver.getSourceFilePaths(fileSystem);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(baseDir.toPath());
+    }
+
+    /**
+     * Resolves using a new resolver, i.e. including the creation of the index.
+     */
+    @Benchmark
+    public void resolve(Blackhole blackhole) {
+        resolve(new JavaResourceResolver(configuration), blackhole);
+    }
+
+    /**
+     * Resolves using a resolver which already has created the index.
+     */
+    @Benchmark
+    public void resolveIndexed(Blackhole blackhole) {
+        resolve(warmResolver, blackhole);
+    }
+
+    private void resolve(JavaResourceResolver resolver, Blackhole blackhole) {
+        int rows = rules * rowsPerRule;
+        for (int row = 0; row < rows; row++) {
+            blackhole.consume(resolver.resolve(fileSystem, "Type", BenchmarkData.getSourceName(row % inputFiles), null));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.jqassistant.contrib.sonarqube.plugin.sensor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jqassistant.contrib.sonarqube.plugin.BenchmarkData;
+import org.jqassistant.contrib.sonarqube.plugin.JQAssistantConfiguration;
+import org.jqassistant.contrib.sonarqube.plugin.language.JavaResourceResolver;
+import org.jqassistant.schema.report.v1.ExecutableRuleType;
+import org.openjdk.jmh.annotations.*;
+import org.sonar.api.batch.fs.internal.DefaultFileSystem;
+import org.sonar.api.batch.rule.internal.ActiveRulesBuilder;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.config.internal.MapSettings;
+
+/**
+ * End-to-end benchmark for the creation of issues including the resolution of
+ * source locations against a {@link SensorContextTester}.
+ * <p>
+ * A new {@link IssueHandler} and {@link JavaResourceResolver} are used for each
+ * invocation, i.e. the costs for building the source file index and
+ * registering ad-hoc rules are included.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class IssueHandlerBenchmark {
+
+    @Param({ "10", "100" })
+    private int rules;
+
+    @Param({ "10", "1000" })
+    private int rowsPerRule;
+
+    @Param({ "100", "10000" })
+    private int inputFiles;
+
+    @Param({ "1", "4" })
+    private int parallelism;
+
+    private File baseDir;
+
+    private DefaultFileSystem fileSystem;
+
+    private List<ExecutableRuleType> failedRules;
+
+    private SensorContextTester sensorContext;
+
+    @Setup
+    public void setUp() throws IOException {
+        baseDir = Files.createTempDirectory("jqassistant-benchmark").toFile();
+        fileSystem = BenchmarkData.createFileSystem(baseDir, inputFiles);
+        failedRules = BenchmarkData.createRules(rules, rowsPerRule, inputFiles);
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+        // the tester collects all issues, so use a new one for each invocation
+        sensorContext = SensorContextTester.create(baseDir).setFileSystem(fileSystem);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(baseDir.toPath());
+    }
+
+    @Benchmark
+    public SensorContextTester process() {
+        MapSettings settings = new MapSettings();
+        settings.setProperty(JQAssistantConfiguration.PARALLELISM, parallelism);
+        JQAssistantConfiguration configuration = new JQAssistantConfiguration(settings.asConfig());
+        IssueHandler issueHandler = new IssueHandler(configuration, new JavaResourceResolver(configuration), new RuleKeyResolver(new ActiveRulesBuilder().build()),
+            new SensorMetrics(configuration));
+        try {
+            issueHandler.process(sensorContext, baseDir, failedRules);
+        } finally {
+            issueHandler.stop();
+        }
+        return sensorContext;
+    }
+}
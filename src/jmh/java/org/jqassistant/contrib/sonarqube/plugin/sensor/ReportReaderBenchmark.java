@@ -0,0 +1,66 @@
+package org.jqassistant.contrib.sonarqube.plugin.sensor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.jqassistant.contrib.sonarqube.plugin.ReportGenerator;
+import org.jqassistant.schema.report.v1.ExecutableRuleType;
+import org.jqassistant.schema.report.v1.JqassistantReport;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for reading jQAssistant XML reports.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class ReportReaderBenchmark {
+
+    @Param({ "10", "100" })
+    private int rules;
+
+    @Param({ "10", "1000" })
+    private int rowsPerRule;
+
+    @Param({ "1000" })
+    private int inputFiles;
+
+    private File reportFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        reportFile = Files.createTempFile("jqassistant-report", ".xml").toFile();
+        ReportGenerator.builder().conceptsPerGroup(0).constraintsPerGroup(rules).rowsPerRule(rowsPerRule).sourceFiles(inputFiles).build()
+            .writeReport(reportFile);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(reportFile.toPath());
+    }
+
+    @Benchmark
+    public JqassistantReport read() {
+        return ReportReader.getInstance().read(reportFile);
+    }
+
+    @Benchmark
+    public void readStreaming(Blackhole blackhole) {
+        ReportReader.getInstance().read(reportFile, new ReportReader.RuleListener() {
+            @Override
+            public void onGroup(String groupId) {
+                blackhole.consume(groupId);
+            }
+
+            @Override
+            public void onRule(ExecutableRuleType rule) {
+                blackhole.consume(rule);
+            }
+        });
+    }
+}
@@ -29,8 +29,10 @@ import org.sonar.api.scanner.ScannerSide;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
 import static org.sonar.api.rules.RuleType.CODE_SMELL;
 
@@ -60,6 +62,127 @@ public class JQAssistantConfiguration {
      */
     public static final String ISSUE_TYPE = "sonar.jqassistant.issueType";
 
+    /**
+     * Enables streaming of the jQAssistant XML report, i.e. rules are evaluated
+     * while the report is parsed instead of reading the whole report first.
+     */
+    public static final String STREAMING = "sonar.jqassistant.streaming";
+
+    /**
+     * Defines the number of threads used for resolving source locations, a value
+     * of 0 uses the number of available processors.
+     */
+    public static final String PARALLELISM = "sonar.jqassistant.parallelism";
+
+    /**
+     * The default parallelism, i.e. source locations are resolved sequentially.
+     */
+    public static final int DEFAULT_PARALLELISM = 1;
+
+    /**
+     * Enables partitioning of the rows of a report by the modules containing the
+     * referenced source files.
+     */
+    public static final String ROW_PARTITIONING = "sonar.jqassistant.rowPartitioning";
+
+    /**
+     * Defines the path of a JSON file for writing the metrics of the sensor
+     * executions, relative paths are resolved against the root directory of the
+     * project.
+     */
+    public static final String METRICS_FILE = "sonar.jqassistant.metricsFile";
+
+    /**
+     * Defines the directory for caching the issues created per rule between
+     * analyses, relative paths are resolved against the root directory of the
+     * project.
+     */
+    public static final String CACHE_DIRECTORY = "sonar.jqassistant.cacheDirectory";
+
+    /**
+     * Restricts the created issues to files which are added or changed, i.e. rows
+     * referencing unchanged files are skipped. Enabled by default for pull request
+     * analyses.
+     */
+    public static final String CHANGED_FILES_ONLY = "sonar.jqassistant.changedFilesOnly";
+
+    /**
+     * Defines the maximum length of issue messages, longer messages are truncated.
+     * A value of 0 disables truncation.
+     */
+    public static final String MAX_MESSAGE_LENGTH = "sonar.jqassistant.maxMessageLength";
+
+    /**
+     * The default maximum length of issue messages, i.e. the maximum message
+     * length supported by SonarQube.
+     */
+    public static final int DEFAULT_MAX_MESSAGE_LENGTH = 4000;
+
+    /**
+     * Defines the aggregation of the rows of a rule into issues, allowed values
+     * are defined by {@link Aggregation}.
+     */
+    public static final String AGGREGATION = "sonar.jqassistant.aggregation";
+
+    /**
+     * Defines the maximum number of issues per rule and module, further rows of
+     * the rule are skipped. A value of 0 disables the limit.
+     */
+    public static final String MAX_ISSUES_PER_RULE = "sonar.jqassistant.maxIssuesPerRule";
+
+    /**
+     * Defines the maximum number of issues per analysis, further rows are
+     * skipped. A value of 0 disables the limit.
+     */
+    public static final String MAX_ISSUES = "sonar.jqassistant.maxIssues";
+
+    /**
+     * Defines the packages (e.g. <code>org.springframework</code>) containing
+     * library or generated classes which shall never be resolved to source files.
+     */
+    public static final String IGNORED_PACKAGES = "sonar.jqassistant.ignoredPackages";
+
+    /**
+     * Defines a list of report paths or glob patterns, the reports are merged
+     * before they are evaluated. If set {@link #REPORT_PATH} is ignored.
+     */
+    public static final String REPORT_PATHS = "sonar.jqassistant.reportPaths";
+
+    /**
+     * Defines if the reports are evaluated once per analysis by the project
+     * sensor instead of once per module.
+     */
+    public static final String PROJECT_SENSOR = "sonar.jqassistant.projectSensor";
+
+    /**
+     * Defines patterns (supporting the wildcards <code>*</code> and
+     * <code>?</code>) for the ids of the rules or groups which shall be evaluated.
+     */
+    public static final String INCLUDED_RULES = "sonar.jqassistant.includedRules";
+
+    /**
+     * Defines patterns (supporting the wildcards <code>*</code> and
+     * <code>?</code>) for the ids of the rules or groups which shall be skipped.
+     */
+    public static final String EXCLUDED_RULES = "sonar.jqassistant.excludedRules";
+
+    /**
+     * Defines the estimated heap size (in MB) of the rows of a report which are
+     * held in memory, further rows are spilled to a temporary file.
+     */
+    public static final String HEAP_BUDGET = "sonar.jqassistant.heapBudget";
+
+    /**
+     * Defines the heap usage (in percent of the maximum heap size) above which the
+     * rows of a report are spilled to a temporary file.
+     */
+    public static final String HEAP_THRESHOLD = "sonar.jqassistant.heapThreshold";
+
+    /**
+     * The property identifying a pull request analysis.
+     */
+    static final String PULL_REQUEST_KEY = "sonar.pullrequest.key";
+
     public static final String CATEGORY_JQASSISTANT = "jQAssistant";
 
     private final Configuration sonarConfiguration;
@@ -77,6 +200,18 @@ public class JQAssistantConfiguration {
         return sonarConfiguration.get(REPORT_PATH).orElse(DEFAULT_REPORT_PATH);
     }
 
+    /**
+     * Return the configured report paths, i.e. the paths or glob patterns of
+     * {@link #REPORT_PATHS} or the single {@link #getReportFile()}.
+     *
+     * @return The report paths.
+     */
+    public List<String> getReportPaths() {
+        List<String> reportPaths = Stream.of(sonarConfiguration.getStringArray(REPORT_PATHS)).map(String::trim).filter(reportPath -> !reportPath.isEmpty())
+            .collect(toList());
+        return reportPaths.isEmpty() ? singletonList(getReportFile()) : reportPaths;
+    }
+
     /**
      * @return FALSE if jQAssistant is enabled on project.
      */
@@ -94,6 +229,158 @@ public class JQAssistantConfiguration {
         return sonarConfiguration.get(ISSUE_TYPE).map(issueType -> RuleType.valueOf(issueType.toUpperCase(Locale.getDefault()))).orElse(CODE_SMELL);
     }
 
+    /**
+     * @return TRUE if the jQAssistant XML report shall be read in streaming mode.
+     */
+    public boolean isStreamingEnabled() {
+        return sonarConfiguration.getBoolean(STREAMING).orElse(false);
+    }
+
+    /**
+     * Return the number of threads to use for resolving source locations.
+     *
+     * @return The parallelism, a value of 1 means sequential processing.
+     */
+    public int getParallelism() {
+        int parallelism = sonarConfiguration.getInt(PARALLELISM).orElse(DEFAULT_PARALLELISM);
+        return parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * @return TRUE if the reports shall be evaluated once per analysis by the
+     *         project sensor.
+     */
+    public boolean isProjectSensorEnabled() {
+        return sonarConfiguration.getBoolean(PROJECT_SENSOR).orElse(false);
+    }
+
+    /**
+     * @return TRUE if the rows of a report shall be partitioned by modules.
+     */
+    public boolean isRowPartitioningEnabled() {
+        return sonarConfiguration.getBoolean(ROW_PARTITIONING).orElse(true);
+    }
+
+    /**
+     * Return the configured path of the metrics file.
+     *
+     * @return The path of the metrics file or {@link Optional#empty()} if no
+     *         metrics file shall be written.
+     */
+    public Optional<String> getMetricsFile() {
+        return sonarConfiguration.get(METRICS_FILE);
+    }
+
+    /**
+     * Return the configured cache directory.
+     *
+     * @return The cache directory or {@link Optional#empty()} if caching is
+     *         disabled.
+     */
+    public Optional<String> getCacheDirectory() {
+        return sonarConfiguration.get(CACHE_DIRECTORY);
+    }
+
+    /**
+     * @return TRUE if issues shall only be created for added or changed files,
+     *         by default only for pull request analyses.
+     */
+    public boolean isChangedFilesOnly() {
+        return sonarConfiguration.getBoolean(CHANGED_FILES_ONLY).orElseGet(() -> sonarConfiguration.hasKey(PULL_REQUEST_KEY));
+    }
+
+    /**
+     * Return the maximum length of issue messages.
+     *
+     * @return The maximum length, a value of 0 or less disables truncation.
+     */
+    public int getMaxMessageLength() {
+        return sonarConfiguration.getInt(MAX_MESSAGE_LENGTH).orElse(DEFAULT_MAX_MESSAGE_LENGTH);
+    }
+
+    /**
+     * Return the configured {@link Aggregation}.
+     *
+     * @return The {@link Aggregation}.
+     */
+    public Aggregation getAggregation() {
+        return sonarConfiguration.get(AGGREGATION).map(aggregation -> Aggregation.valueOf(aggregation.toUpperCase(Locale.ENGLISH))).orElse(Aggregation.NONE);
+    }
+
+    /**
+     * Return the maximum number of issues per rule and module.
+     *
+     * @return The maximum number of issues, a value of 0 or less disables the
+     *         limit.
+     */
+    public int getMaxIssuesPerRule() {
+        return sonarConfiguration.getInt(MAX_ISSUES_PER_RULE).orElse(0);
+    }
+
+    /**
+     * Return the maximum number of issues per analysis.
+     *
+     * @return The maximum number of issues, a value of 0 or less disables the
+     *         limit.
+     */
+    public int getMaxIssues() {
+        return sonarConfiguration.getInt(MAX_ISSUES).orElse(0);
+    }
+
+    /**
+     * Return the packages containing classes which shall not be resolved to
+     * source files.
+     *
+     * @return The package names.
+     */
+    public List<String> getIgnoredPackages() {
+        return Stream.of(sonarConfiguration.getStringArray(IGNORED_PACKAGES)).map(String::trim).filter(ignoredPackage -> !ignoredPackage.isEmpty())
+            .collect(toList());
+    }
+
+    /**
+     * Return the patterns of the rules or groups which shall be evaluated.
+     *
+     * @return The patterns, an empty list includes all rules.
+     */
+    public List<String> getIncludedRules() {
+        return getPatterns(INCLUDED_RULES);
+    }
+
+    /**
+     * Return the patterns of the rules or groups which shall be skipped.
+     *
+     * @return The patterns.
+     */
+    public List<String> getExcludedRules() {
+        return getPatterns(EXCLUDED_RULES);
+    }
+
+    /**
+     * Return the estimated heap size of the rows of a report which are held in
+     * memory.
+     *
+     * @return The heap budget in MB, <code>0</code> if not limited.
+     */
+    public int getHeapBudget() {
+        return sonarConfiguration.getInt(HEAP_BUDGET).orElse(0);
+    }
+
+    /**
+     * Return the heap usage above which the rows of a report are spilled to a
+     * temporary file.
+     *
+     * @return The threshold in percent of the maximum heap size, <code>0</code> if
+     *         disabled.
+     */
+    public int getHeapThreshold() {
+        return sonarConfiguration.getInt(HEAP_THRESHOLD).orElse(0);
+    }
+
+    private List<String> getPatterns(String key) {
+        return Stream.of(sonarConfiguration.getStringArray(key)).map(String::trim).filter(pattern -> !pattern.isEmpty()).collect(toList());
+    }
+
     public static List<PropertyDefinition> getPropertyDefinitions() {
         return asList(
             PropertyDefinition.builder(REPORT_PATH).category(CATEGORY_JQASSISTANT).subCategory(JQAssistant.NAME).name("jQAssistant Report Path")
@@ -104,6 +391,94 @@ public class JQAssistantConfiguration {
                 .onQualifiers(Qualifiers.PROJECT).type(PropertyType.BOOLEAN).build(),
             PropertyDefinition.builder(JQAssistantConfiguration.ISSUE_TYPE).defaultValue(CODE_SMELL.toString()).name("Issue Type")
                 .category(CATEGORY_JQASSISTANT).subCategory(JQAssistant.NAME).description("The issue type to create.")
-                .onQualifiers(Qualifiers.PROJECT).options(RuleType.names().stream().collect(toList())).type(PropertyType.SINGLE_SELECT_LIST).build());
+                .onQualifiers(Qualifiers.PROJECT).options(RuleType.names().stream().collect(toList())).type(PropertyType.SINGLE_SELECT_LIST).build(),
+            PropertyDefinition.builder(JQAssistantConfiguration.STREAMING).defaultValue(Boolean.toString(false)).name("Streaming")
+                .category(CATEGORY_JQASSISTANT).subCategory(JQAssistant.NAME)
+                .description("Evaluate rules while reading the jQAssistant XML report instead of loading the whole report into memory.")
+                .onQualifiers(Qualifiers.PROJECT).type(PropertyType.BOOLEAN).build(),
+            PropertyDefinition.builder(JQAssistantConfiguration.PARALLELISM).defaultValue(Integer.toString(DEFAULT_PARALLELISM)).name("Parallelism")
+                .category(CATEGORY_JQASSISTANT).subCategory(JQAssistant.NAME)
+                .description("The number of threads for resolving source locations of rule results (1: sequential, 0: number of available processors).")
+                .onQualifiers(Qualifiers.PROJECT).type(PropertyType.INTEGER).build(),
+            PropertyDefinition.builder(JQAssistantConfiguration.ROW_PARTITIONING).defaultValue(Boolean.toString(true)).name("Row Partitioning")
+                .category(CATEGORY_JQASSISTANT).subCategory(JQAssistant.NAME)
+                .description("Dispatch the rows of a report only to the modules containing the referenced source files (not used in streaming mode).")
+                .onQualifiers(Qualifiers.PROJECT).type(PropertyType.BOOLEAN).build(),
+            PropertyDefinition.builder(JQAssistantConfiguration.METRICS_FILE).name("Metrics File").category(CATEGORY_JQASSISTANT)
+                .subCategory(JQAssistant.NAME)
+                .description("Absolute or relative path to a JSON file for writing phase durations and counters of the sensor executions (default: none).")
+                .onQualifiers(Qualifiers.PROJECT).build(),
+            PropertyDefinition.builder(JQAssistantConfiguration.CACHE_DIRECTORY).name("Cache Directory").category(CATEGORY_JQASSISTANT)
+                .subCategory(JQAssistant.NAME)
+                .description("Absolute or relative path to a directory for caching the issues of unchanged rules between analyses (default: none, i.e. disabled).")
+                .onQualifiers(Qualifiers.PROJECT).build(),
+            PropertyDefinition.builder(JQAssistantConfiguration.CHANGED_FILES_ONLY).name("Changed Files Only").category(CATEGORY_JQASSISTANT)
+                .subCategory(JQAssistant.NAME)
+                .description("Create issues only for added or changed files, e.g. for short-lived branches (default: enabled for pull request analyses).")
+                .onQualifiers(Qualifiers.PROJECT).type(PropertyType.BOOLEAN).build(),
+            PropertyDefinition.builder(JQAssistantConfiguration.MAX_MESSAGE_LENGTH).defaultValue(Integer.toString(DEFAULT_MAX_MESSAGE_LENGTH))
+                .name("Maximum Message Length").category(CATEGORY_JQASSISTANT).subCategory(JQAssistant.NAME)
+                .description("The maximum length of issue messages, longer messages are truncated (0: no truncation).")
+                .onQualifiers(Qualifiers.PROJECT).type(PropertyType.INTEGER).build(),
+            PropertyDefinition.builder(JQAssistantConfiguration.AGGREGATION).defaultValue(Aggregation.NONE.name()).name("Aggregation")
+                .category(CATEGORY_JQASSISTANT).subCategory(JQAssistant.NAME)
+                .description("Aggregates the rows of a rule with the same target into one issue: NONE (one issue per row), LINE (per file and line) or FILE "
+                    + "(per file), rows on project level are aggregated per rule.")
+                .onQualifiers(Qualifiers.PROJECT).options(Stream.of(Aggregation.values()).map(Aggregation::name).collect(toList()))
+                .type(PropertyType.SINGLE_SELECT_LIST).build(),
+            PropertyDefinition.builder(JQAssistantConfiguration.MAX_ISSUES_PER_RULE).defaultValue("0").name("Maximum Issues per Rule")
+                .category(CATEGORY_JQASSISTANT).subCategory(JQAssistant.NAME)
+                .description("The maximum number of issues per rule and module, further rows are counted but not reported (0: no limit).")
+                .onQualifiers(Qualifiers.PROJECT).type(PropertyType.INTEGER).build(),
+            PropertyDefinition.builder(JQAssistantConfiguration.MAX_ISSUES).defaultValue("0").name("Maximum Issues").category(CATEGORY_JQASSISTANT)
+                .subCategory(JQAssistant.NAME)
+                .description("The maximum number of issues per analysis, rules are processed by descending severity (0: no limit).")
+                .onQualifiers(Qualifiers.PROJECT).type(PropertyType.INTEGER).build(),
+            PropertyDefinition.builder(JQAssistantConfiguration.IGNORED_PACKAGES).name("Ignored Packages").category(CATEGORY_JQASSISTANT)
+                .subCategory(JQAssistant.NAME)
+                .description("The packages containing library or generated classes which are never resolved to source files, e.g. 'org.springframework'.")
+                .onQualifiers(Qualifiers.PROJECT).multiValues(true).build(),
+            PropertyDefinition.builder(JQAssistantConfiguration.REPORT_PATHS).name("jQAssistant Report Paths").category(CATEGORY_JQASSISTANT)
+                .subCategory(JQAssistant.NAME)
+                .description("Paths or glob patterns of jQAssistant XML report files which are merged for evaluation, overrides the report path.")
+                .onQualifiers(Qualifiers.PROJECT).multiValues(true).build(),
+            PropertyDefinition.builder(JQAssistantConfiguration.PROJECT_SENSOR).defaultValue(Boolean.toString(false)).name("Project Sensor")
+                .category(CATEGORY_JQASSISTANT).subCategory(JQAssistant.NAME)
+                .description("Evaluate the jQAssistant XML report once per analysis for all modules instead of once per module.")
+                .onQualifiers(Qualifiers.PROJECT).type(PropertyType.BOOLEAN).build(),
+            PropertyDefinition.builder(JQAssistantConfiguration.INCLUDED_RULES).name("Included Rules").category(CATEGORY_JQASSISTANT)
+                .subCategory(JQAssistant.NAME)
+                .description("Patterns for the ids of the rules or groups to evaluate, e.g. 'java:*' (default: all rules).")
+                .onQualifiers(Qualifiers.PROJECT).multiValues(true).build(),
+            PropertyDefinition.builder(JQAssistantConfiguration.EXCLUDED_RULES).name("Excluded Rules").category(CATEGORY_JQASSISTANT)
+                .subCategory(JQAssistant.NAME)
+                .description("Patterns for the ids of the rules or groups to skip while reading the jQAssistant XML report.")
+                .onQualifiers(Qualifiers.PROJECT).multiValues(true).build(),
+            PropertyDefinition.builder(JQAssistantConfiguration.HEAP_BUDGET).defaultValue("0").name("Heap Budget").category(CATEGORY_JQASSISTANT)
+                .subCategory(JQAssistant.NAME)
+                .description("The estimated heap size in MB of the report rows held in memory, further rows are spilled to a temporary file (0: no limit).")
+                .onQualifiers(Qualifiers.PROJECT).type(PropertyType.INTEGER).build(),
+            PropertyDefinition.builder(JQAssistantConfiguration.HEAP_THRESHOLD).defaultValue("0").name("Heap Threshold").category(CATEGORY_JQASSISTANT)
+                .subCategory(JQAssistant.NAME)
+                .description("The heap usage in percent of the maximum heap size above which report rows are spilled to a temporary file (0: disabled).")
+                .onQualifiers(Qualifiers.PROJECT).type(PropertyType.INTEGER).build());
+    }
+
+    /**
+     * The aggregation of the rows of a rule into issues.
+     */
+    public enum Aggregation {
+        /**
+         * An issue is created for each row.
+         */
+        NONE,
+        /**
+         * An issue is created per file and line.
+         */
+        LINE,
+        /**
+         * An issue is created per file.
+         */
+        FILE
     }
 }
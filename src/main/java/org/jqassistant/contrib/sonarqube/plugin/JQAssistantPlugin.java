@@ -1,8 +1,14 @@
 package org.jqassistant.contrib.sonarqube.plugin;
 
 import org.jqassistant.contrib.sonarqube.plugin.language.JavaResourceResolver;
+import org.jqassistant.contrib.sonarqube.plugin.sensor.IssueCache;
 import org.jqassistant.contrib.sonarqube.plugin.sensor.IssueHandler;
+import org.jqassistant.contrib.sonarqube.plugin.sensor.JQAssistantProjectSensor;
+import org.jqassistant.contrib.sonarqube.plugin.sensor.ReportCache;
+import org.jqassistant.contrib.sonarqube.plugin.sensor.ReportLocationCache;
+import org.jqassistant.contrib.sonarqube.plugin.sensor.RowPartitioner;
 import org.jqassistant.contrib.sonarqube.plugin.sensor.RulesRepository;
+import org.jqassistant.contrib.sonarqube.plugin.sensor.SensorMetrics;
 import org.jqassistant.contrib.sonarqube.plugin.sensor.JQAssistantSensor;
 import org.jqassistant.contrib.sonarqube.plugin.sensor.RuleKeyResolver;
 import org.sonar.api.Plugin;
@@ -14,11 +20,17 @@ public class JQAssistantPlugin implements Plugin {
 
     public void define(Context context) {
         context.addExtension(JQAssistantSensor.class);
+        context.addExtension(JQAssistantProjectSensor.class);
         context.addExtension(JavaResourceResolver.class);
         context.addExtension(JQAssistantConfiguration.class);
         context.addExtensions(JQAssistantConfiguration.getPropertyDefinitions());
         context.addExtension(RuleKeyResolver.class);
         context.addExtension(RulesRepository.class);
         context.addExtension(IssueHandler.class);
+        context.addExtension(ReportCache.class);
+        context.addExtension(RowPartitioner.class);
+        context.addExtension(SensorMetrics.class);
+        context.addExtension(IssueCache.class);
+        context.addExtension(ReportLocationCache.class);
     }
 }
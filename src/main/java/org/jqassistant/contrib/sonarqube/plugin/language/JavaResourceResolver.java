@@ -1,8 +1,14 @@
 package org.jqassistant.contrib.sonarqube.plugin.language;
 
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.jqassistant.contrib.sonarqube.plugin.JQAssistantConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.fs.FileSystem;
@@ -12,12 +18,49 @@ import org.sonar.api.scanner.ScannerSide;
 
 /**
  * Implementation of a {@link ResourceResolver} for java elements.
+ * <p>
+ * Class file sources which could not be resolved are kept in a bounded negative
+ * cache per module, i.e. repeated references to library or generated classes
+ * only require a single hash lookup. Classes of ignored packages are never
+ * resolved.
  */
 @ScannerSide
 public class JavaResourceResolver implements ResourceResolver {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(JavaResourceResolver.class);
 
+    /**
+     * The {@link SourceFileIndex}es per {@link FileSystem}, i.e. module.
+     */
+    private final Map<FileSystem, SourceFileIndex> sourceFileIndexes = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * The maximum number of unresolved sources which are cached per module.
+     */
+    static final int MAX_UNRESOLVED_SOURCES = 10000;
+
+    /**
+     * The class file sources which could not be resolved per {@link FileSystem},
+     * i.e. module.
+     */
+    private final Map<FileSystem, Set<String>> unresolvedSources = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * The path prefixes of the ignored packages, e.g.
+     * <code>org/springframework/</code>.
+     */
+    private final String[] ignoredPathPrefixes;
+
+    public JavaResourceResolver(JQAssistantConfiguration configuration) {
+        List<String> ignoredPackages = configuration.getIgnoredPackages();
+        this.ignoredPathPrefixes = new String[ignoredPackages.size()];
+        for (int i = 0; i < ignoredPackages.size(); i++) {
+            String ignoredPackage = ignoredPackages.get(i);
+            String pathPrefix = ignoredPackage.replace('.', '/');
+            this.ignoredPathPrefixes[i] = pathPrefix.endsWith("/") ? pathPrefix : pathPrefix + '/';
+        }
+    }
+
     @Override
     public String getLanguage() {
         return "java";
@@ -25,6 +68,39 @@ public class JavaResourceResolver implements ResourceResolver {
 
     @Override
     public InputPath resolve(FileSystem fileSystem, String type, String source, String value) {
+        if (source == null || isIgnored(source)) {
+            return null;
+        }
+        Set<String> unresolved = unresolvedSources.computeIfAbsent(fileSystem, fs -> ConcurrentHashMap.newKeySet());
+        if (unresolved.contains(source)) {
+            return null;
+        }
+        String javaFilePath = getSourceFilePath(type, source);
+        if (javaFilePath == null) {
+            return null;
+        }
+        InputFile inputFile = findMatchingInputFile(fileSystem, javaFilePath);
+        if (inputFile == null && unresolved.size() < MAX_UNRESOLVED_SOURCES) {
+            unresolved.add(source);
+        }
+        return inputFile;
+    }
+
+    /**
+     * Determines if a class file source belongs to an ignored package.
+     */
+    private boolean isIgnored(String source) {
+        int offset = !source.isEmpty() && source.charAt(0) == '/' ? 1 : 0;
+        for (String ignoredPathPrefix : ignoredPathPrefixes) {
+            if (source.startsWith(ignoredPathPrefix, offset)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String getSourceFilePath(String type, String source) {
         switch (type) {
         case "Type":
         case "Field":
@@ -32,13 +108,22 @@ public class JavaResourceResolver implements ResourceResolver {
         case "MethodInvocation":
         case "ReadField":
         case "WriteField":
-            String javaFilePath = getJavaSourceFileName(source);
-            return findMatchingInputFile(fileSystem, javaFilePath);
+            return getJavaSourceFileName(source);
         default:
             return null;
         }
     }
 
+    @Override
+    public Set<String> getSourceFilePaths(FileSystem fileSystem) {
+        return getSourceFileIndex(fileSystem).getSuffixes();
+    }
+
+    @Override
+    public Set<String> getChangedSourceFilePaths(FileSystem fileSystem) {
+        return getSourceFileIndex(fileSystem).getChangedSuffixes();
+    }
+
     /**
      * This resolver can find only resources in the current project, because only
      * such resources are part of the 'index cache'.
@@ -49,17 +134,17 @@ public class JavaResourceResolver implements ResourceResolver {
     private InputFile findMatchingInputFile(FileSystem fileSystem, String javaFilePath) {
         // in SonarQ Java files have the prefix 'src/main/java' for Maven projects
         // we have to handle such nested project structures without specific
-        // knowledge about project structures... so use pattern matcher :-)
-        Iterator<InputFile> files = fileSystem.inputFiles(fileSystem.predicates().matchesPathPattern("**/" + javaFilePath)).iterator();
-        while (files.hasNext()) {
-            InputFile file = files.next();
-            if (!files.hasNext()) {
-                return file;
-            }
+        // knowledge about project structures... so use an index of all path suffixes :-)
+        SourceFileIndex sourceFileIndex = getSourceFileIndex(fileSystem);
+        if (sourceFileIndex.isAmbiguous(javaFilePath)) {
             LOGGER.warn("Multiple matches for Java file {}, cannot safely determine source file.", javaFilePath);
             return null;
         }
-        return null;
+        return sourceFileIndex.get(javaFilePath);
+    }
+
+    private SourceFileIndex getSourceFileIndex(FileSystem fileSystem) {
+        return sourceFileIndexes.computeIfAbsent(fileSystem, fs -> new SourceFileIndex(fs, "java"));
     }
 
     /**
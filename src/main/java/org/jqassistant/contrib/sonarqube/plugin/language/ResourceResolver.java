@@ -1,5 +1,7 @@
 package org.jqassistant.contrib.sonarqube.plugin.language;
 
+import java.util.Set;
+
 import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputPath;
 import org.sonar.api.scanner.ScannerSide;
@@ -33,4 +35,41 @@ public interface ResourceResolver {
      * @return The resource or <code>null</code> if not resolved.
      */
     InputPath resolve(FileSystem fileSystem, String type, String source, String value);
+
+    /**
+     * Return the relative path of the source file containing an element of a
+     * given type, e.g. <code>com/acme/Foo.java</code> for the class file
+     * <code>/com/acme/Foo.class</code>.
+     *
+     * @param type
+     *            The type declaration in report.
+     * @param source
+     *            The source name producing the node element in report.
+     * @return The path or <code>null</code> if the type is not supported.
+     */
+    String getSourceFilePath(String type, String source);
+
+    /**
+     * Return the source file paths of a {@link FileSystem} which may be resolved
+     * by {@link #resolve(FileSystem, String, String, String)}, i.e. all paths
+     * which may be returned by {@link #getSourceFilePath(String, String)} for a
+     * file of the {@link FileSystem}.
+     *
+     * @param fileSystem
+     *            The {@link FileSystem}.
+     * @return The source file paths.
+     */
+    Set<String> getSourceFilePaths(FileSystem fileSystem);
+
+    /**
+     * Return the source file paths of a {@link FileSystem} like
+     * {@link #getSourceFilePaths(FileSystem)} restricted to files which are added
+     * or changed, i.e. files with a status other than
+     * {@link org.sonar.api.batch.fs.InputFile.Status#SAME}.
+     *
+     * @param fileSystem
+     *            The {@link FileSystem}.
+     * @return The source file paths.
+     */
+    Set<String> getChangedSourceFilePaths(FileSystem fileSystem);
 }
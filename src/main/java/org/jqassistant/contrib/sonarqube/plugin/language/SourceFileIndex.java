@@ -0,0 +1,129 @@
+package org.jqassistant.contrib.sonarqube.plugin.language;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.sonar.api.batch.fs.FileSystem;
+import org.sonar.api.batch.fs.InputFile;
+
+/**
+ * Index of the source files of a {@link FileSystem} which is built once and
+ * allows looking up files by any suffix of their relative path, e.g.
+ * <code>com/acme/Foo.java</code> for <code>src/main/java/com/acme/Foo.java</code>.
+ * <p>
+ * A lookup is equivalent to matching the path pattern <code>**&#47;suffix</code>
+ * against all files of the {@link FileSystem} but only requires a hash probe.
+ */
+final class SourceFileIndex {
+
+    private final Map<String, InputFile> files = new HashMap<>();
+
+    private final Set<String> ambiguousSuffixes = new HashSet<>();
+
+    private volatile Set<String> changedSuffixes;
+
+    /**
+     * Creates the index for all files of the given {@link FileSystem} having the
+     * given extension.
+     *
+     * @param fileSystem
+     *            The {@link FileSystem}.
+     * @param extension
+     *            The file extension, e.g. <code>java</code>.
+     */
+    SourceFileIndex(FileSystem fileSystem, String extension) {
+        Path baseDir = getBaseDir(fileSystem);
+        for (InputFile inputFile : fileSystem.inputFiles(fileSystem.predicates().hasExtension(extension))) {
+            String relativePath = getRelativePath(baseDir, inputFile.path());
+            add(relativePath, inputFile);
+            for (int index = relativePath.indexOf('/'); index >= 0; index = relativePath.indexOf('/', index + 1)) {
+                add(relativePath.substring(index + 1), inputFile);
+            }
+        }
+    }
+
+    /**
+     * Return all indexed suffixes.
+     *
+     * @return The suffixes.
+     */
+    Set<String> getSuffixes() {
+        return Collections.unmodifiableSet(files.keySet());
+    }
+
+    /**
+     * Return the indexed suffixes of all files which are not unchanged, i.e. with
+     * a status other than {@link InputFile.Status#SAME}.
+     *
+     * @return The suffixes.
+     */
+    Set<String> getChangedSuffixes() {
+        Set<String> suffixes = changedSuffixes;
+        if (suffixes == null) {
+            suffixes = new HashSet<>();
+            for (Map.Entry<String, InputFile> entry : files.entrySet()) {
+                if (entry.getValue().status() != InputFile.Status.SAME) {
+                    suffixes.add(entry.getKey());
+                }
+            }
+            suffixes = Collections.unmodifiableSet(suffixes);
+            changedSuffixes = suffixes;
+        }
+        return suffixes;
+    }
+
+    /**
+     * Determines if the given suffix matches more than one file.
+     *
+     * @param suffix
+     *            The suffix.
+     * @return <code>true</code> if the suffix is ambiguous.
+     */
+    boolean isAmbiguous(String suffix) {
+        return ambiguousSuffixes.contains(suffix);
+    }
+
+    /**
+     * Return the file matching the given suffix.
+     *
+     * @param suffix
+     *            The suffix.
+     * @return The matching {@link InputFile} or <code>null</code> if no file or
+     *         more than one file matches.
+     */
+    InputFile get(String suffix) {
+        if (ambiguousSuffixes.contains(suffix)) {
+            return null;
+        }
+        return files.get(suffix);
+    }
+
+    private void add(String suffix, InputFile inputFile) {
+        if (files.putIfAbsent(suffix, inputFile) != null) {
+            ambiguousSuffixes.add(suffix);
+        }
+    }
+
+    private static Path getBaseDir(FileSystem fileSystem) {
+        File baseDir = fileSystem.baseDir();
+        return baseDir != null ? baseDir.toPath().toAbsolutePath() : null;
+    }
+
+    private static String getRelativePath(Path baseDir, Path path) {
+        Path absolutePath = path.toAbsolutePath();
+        Path relativePath = baseDir != null && absolutePath.startsWith(baseDir) ? baseDir.relativize(absolutePath) : path;
+        StringBuilder builder = new StringBuilder();
+        for (Path name : relativePath) {
+            if (builder.length() > 0) {
+                builder.append('/');
+            }
+            builder.append(name.toString());
+        }
+        return builder.toString();
+    }
+}
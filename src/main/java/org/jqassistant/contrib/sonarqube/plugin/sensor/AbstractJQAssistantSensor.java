@@ -0,0 +1,313 @@
+package org.jqassistant.contrib.sonarqube.plugin.sensor;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import org.jqassistant.contrib.sonarqube.plugin.JQAssistant;
+import org.jqassistant.contrib.sonarqube.plugin.JQAssistantConfiguration;
+import org.jqassistant.schema.report.v1.ExecutableRuleType;
+import org.jqassistant.schema.report.v1.GroupType;
+import org.jqassistant.schema.report.v1.JqassistantReport;
+import org.jqassistant.schema.report.v1.ReferencableRuleType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.internal.DefaultInputProject;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.scanner.fs.InputProject;
+
+import static org.jqassistant.contrib.sonarqube.plugin.sensor.SensorMetrics.Phase.LOCATE;
+import static org.jqassistant.contrib.sonarqube.plugin.sensor.SensorMetrics.Phase.PARSE;
+import static org.jqassistant.schema.report.v1.StatusEnumType.FAILURE;
+
+/**
+ * Base class of the sensors scanning for jqassistant-report.xml files.
+ * <p>
+ * The report is located, parsed and evaluated for each execution, i.e. once per
+ * module for the {@link JQAssistantSensor} or once per analysis for the
+ * {@link JQAssistantProjectSensor}.
+ */
+public abstract class AbstractJQAssistantSensor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractJQAssistantSensor.class);
+
+    private final JQAssistantConfiguration configuration;
+    private final IssueHandler issueHandler;
+    private final ReportCache reportCache;
+    private final SensorMetrics sensorMetrics;
+    private final IssueCache issueCache;
+    private final ReportLocationCache reportLocationCache;
+    private final RuleFilter ruleFilter;
+
+    protected AbstractJQAssistantSensor(JQAssistantConfiguration configuration, IssueHandler issueHandler, ReportCache reportCache,
+                                        SensorMetrics sensorMetrics, IssueCache issueCache, ReportLocationCache reportLocationCache) {
+        this.configuration = configuration;
+        this.issueHandler = issueHandler;
+        this.reportCache = reportCache;
+        this.sensorMetrics = sensorMetrics;
+        this.issueCache = issueCache;
+        this.reportLocationCache = reportLocationCache;
+        this.ruleFilter = RuleFilter.of(configuration);
+    }
+
+    public void execute(SensorContext context) {
+        if (configuration.isSensorDisabled()) {
+            LOGGER.info("{} is disabled", JQAssistant.NAME);
+        } else if (isActive(configuration)) {
+            startScan(context);
+        } else {
+            LOGGER.debug("{} is executed by the {}.", JQAssistant.NAME, configuration.isProjectSensorEnabled() ? "project sensor" : "module sensors");
+        }
+    }
+
+    /**
+     * Determines if this sensor is responsible for evaluating the reports.
+     *
+     * @param configuration
+     *            The {@link JQAssistantConfiguration}.
+     * @return <code>true</code> if the sensor shall be executed.
+     */
+    protected abstract boolean isActive(JQAssistantConfiguration configuration);
+
+    /**
+     * Return the failed rules which shall be evaluated for the current execution.
+     *
+     * @param context
+     *            The {@link SensorContext}.
+     * @param reportModulePath
+     *            The module directory of the report.
+     * @param report
+     *            The {@link JqassistantReport}.
+     * @param failedRules
+     *            The failed rules of the report.
+     * @return The rules to evaluate.
+     */
+    protected List<ExecutableRuleType> getRules(SensorContext context, File reportModulePath, JqassistantReport report, List<ExecutableRuleType> failedRules) {
+        return failedRules;
+    }
+
+    private void startScan(SensorContext context) {
+        List<String> reportPaths = configuration.getReportPaths();
+        File projectDir = getProjectDirectory(context);
+        File baseDir = context.fileSystem().baseDir();
+        SensorMetrics.Execution metrics = sensorMetrics.begin(baseDir.getPath(), projectDir);
+        long start = System.nanoTime();
+        List<ReportLocator.ReportLocation> reportLocations = ReportLocator.resolveReportFiles(projectDir, baseDir, reportPaths, reportLocationCache);
+        metrics.addDuration(LOCATE, System.nanoTime() - start);
+        if (!reportLocations.isEmpty()) {
+            // project level issues of merged reports are created for the module of the first report
+            File moduleDirectory = reportLocations.get(0).getModuleDirectory();
+            List<File> reportFiles = new ArrayList<>(reportLocations.size());
+            for (ReportLocator.ReportLocation reportLocation : reportLocations) {
+                LOGGER.info("Found jQAssistant report for module '{}' at '{}'.", reportLocation.getModuleDirectory().getPath(),
+                    reportLocation.getReportFile().getPath());
+                reportFiles.add(reportLocation.getReportFile());
+            }
+            IssueCache.Session cacheSession = issueCache.isEnabled() ? issueCache.open(context, projectDir, moduleDirectory, reportFiles) : null;
+            if (cacheSession != null && cacheSession.isReportUnchanged()) {
+                LOGGER.info("jQAssistant report is unchanged, using cached issues.");
+                for (IssueCache.CachedRule cachedRule : cacheSession.getCachedRules()) {
+                    issueHandler.replay(context, cachedRule);
+                }
+            } else if (configuration.isStreamingEnabled()) {
+                int parallelism = configuration.getParallelism();
+                if (parallelism > 1) {
+                    // the parser, the resolution of source locations and the creation of issues overlap
+                    try (IssueHandler.Pipeline pipeline = issueHandler.pipeline(context, moduleDirectory, getIssueListener(cacheSession), parallelism)) {
+                        stream(reportFiles, metrics, parallelism, executableRuleType -> evaluate(context, executableRuleType, cacheSession, pipeline));
+                        pipeline.complete();
+                    }
+                } else {
+                    stream(reportFiles, metrics, 0, executableRuleType -> evaluate(context, moduleDirectory, executableRuleType, cacheSession));
+                }
+            } else {
+                start = System.nanoTime();
+                JqassistantReport report = reportCache.get(reportFiles, files -> readReports(context, files));
+                metrics.addDuration(PARSE, System.nanoTime() - start);
+                if (report != null) {
+                    evaluate(context, moduleDirectory, report, cacheSession);
+                }
+            }
+            if (cacheSession != null) {
+                cacheSession.save();
+            }
+            LOGGER.debug("Skipped {} registrations of already registered ad-hoc rules.", issueHandler.getSkippedAdHocRuleRegistrations());
+        } else {
+            LOGGER.info("No jQAssistant report found, skipping.");
+        }
+        metrics.end();
+    }
+
+    /**
+     * Reads the given report files in streaming mode and passes each rule to the
+     * given evaluator, rules contained in more than one report are only evaluated
+     * once.
+     *
+     * @param capacity
+     *            The number of parsed rules which may be queued for evaluation
+     *            while the report is parsed by a separate thread, <code>0</code>
+     *            parses the report on the calling thread.
+     */
+    private void stream(List<File> reportFiles, SensorMetrics.Execution metrics, int capacity, Consumer<ExecutableRuleType> evaluator) {
+        long[] evaluationDuration = new long[1];
+        Set<String> ruleIds = new HashSet<>();
+        ReportReader.RuleListener ruleListener = new ReportReader.RuleListener() {
+            @Override
+            public void onGroup(String groupId) {
+                LOGGER.info("Processing group '{}'", groupId);
+            }
+
+            @Override
+            public void onRule(ExecutableRuleType executableRuleType) {
+                if (ruleIds.add(executableRuleType.getId())) {
+                    long evaluationStart = System.nanoTime();
+                    evaluator.accept(executableRuleType);
+                    evaluationDuration[0] += System.nanoTime() - evaluationStart;
+                }
+            }
+        };
+        long start = System.nanoTime();
+        for (File reportFile : reportFiles) {
+            if (capacity > 0) {
+                ReportReader.getInstance().read(reportFile, ruleFilter, ruleListener, capacity);
+            } else {
+                ReportReader.getInstance().read(reportFile, ruleFilter, ruleListener);
+            }
+        }
+        // rules are evaluated while parsing, i.e. only the time waiting for the parser is recorded
+        metrics.addDuration(PARSE, System.nanoTime() - start - evaluationDuration[0]);
+    }
+
+    /**
+     * Reads the given report files, several reports are read concurrently using
+     * the configured parallelism and merged afterwards. Rows exceeding the
+     * configured heap limits are spilled to the working directory.
+     */
+    private JqassistantReport readReports(SensorContext context, List<File> reportFiles) {
+        RowSpill rowSpill = RowSpill.of(configuration, () -> context.fileSystem().workDir());
+        if (rowSpill != RowSpill.NONE) {
+            reportCache.register(reportFiles, rowSpill);
+        }
+        // the hash of the rows is required by the cache, spilled rows shall not be read again for it
+        boolean digestRows = issueCache.isEnabled();
+        if (reportFiles.size() == 1) {
+            return ReportReader.getInstance().read(reportFiles.get(0), ruleFilter, rowSpill, digestRows);
+        }
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.max(1, Math.min(reportFiles.size(), configuration.getParallelism())));
+        try {
+            List<Future<JqassistantReport>> futures = new ArrayList<>(reportFiles.size());
+            for (File reportFile : reportFiles) {
+                futures.add(executorService.submit(() -> ReportReader.getInstance().read(reportFile, ruleFilter, rowSpill, digestRows)));
+            }
+            List<JqassistantReport> reports = new ArrayList<>(reportFiles.size());
+            for (Future<JqassistantReport> future : futures) {
+                reports.add(getReport(future));
+            }
+            return ReportMerger.merge(reports);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private static JqassistantReport getReport(Future<JqassistantReport> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading jQAssistant reports.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException("Cannot read jQAssistant report.", cause);
+        }
+    }
+
+    private File getProjectDirectory(SensorContext context) {
+        InputProject project = context.project();
+        if (project instanceof DefaultInputProject) {
+            return ((DefaultInputProject) project).getBaseDir().toFile();
+        }
+        return context.fileSystem().baseDir();
+    }
+
+    private void evaluate(SensorContext context, File reportModulePath, JqassistantReport report, IssueCache.Session cacheSession) {
+        List<ExecutableRuleType> failedRules = new ArrayList<>();
+        collectFailedRules(report.getGroupOrConceptOrConstraint(), failedRules);
+        failedRules = getRules(context, reportModulePath, report, failedRules);
+        if (cacheSession != null) {
+            int ruleCount = failedRules.size();
+            failedRules = replayCachedRules(context, failedRules, cacheSession);
+            LOGGER.info("Using cached issues for {} unchanged rules, {} rules have changed.", ruleCount - failedRules.size(), failedRules.size());
+        }
+        if (!failedRules.isEmpty()) {
+            issueHandler.process(context, reportModulePath, failedRules, getIssueListener(cacheSession));
+        }
+    }
+
+    /**
+     * Re-creates the cached issues of all unchanged rules.
+     *
+     * @return The changed rules.
+     */
+    private List<ExecutableRuleType> replayCachedRules(SensorContext context, List<ExecutableRuleType> rules, IssueCache.Session cacheSession) {
+        List<ExecutableRuleType> changedRules = new ArrayList<>();
+        for (ExecutableRuleType rule : rules) {
+            Optional<IssueCache.CachedRule> cachedRule = cacheSession.get(rule);
+            if (cachedRule.isPresent()) {
+                issueHandler.replay(context, cachedRule.get());
+            } else {
+                changedRules.add(rule);
+            }
+        }
+        return changedRules;
+    }
+
+    private IssueHandler.IssueListener getIssueListener(IssueCache.Session cacheSession) {
+        return cacheSession != null ? cacheSession : IssueHandler.IssueListener.NONE;
+    }
+
+    private void collectFailedRules(List<ReferencableRuleType> rules, List<ExecutableRuleType> failedRules) {
+        for (ReferencableRuleType rule : rules) {
+            if (rule instanceof GroupType) {
+                GroupType groupType = (GroupType) rule;
+                LOGGER.info("Processing group '{}'", groupType.getId());
+                collectFailedRules(groupType.getGroupOrConceptOrConstraint(), failedRules);
+            }
+            if (rule instanceof ExecutableRuleType) {
+                ExecutableRuleType executableRuleType = (ExecutableRuleType) rule;
+                if (FAILURE.equals(executableRuleType.getStatus())) {
+                    failedRules.add(executableRuleType);
+                }
+            }
+        }
+    }
+
+    private void evaluate(SensorContext context, File reportModulePath, ExecutableRuleType executableRuleType, IssueCache.Session cacheSession) {
+        if (FAILURE.equals(executableRuleType.getStatus())) {
+            Optional<IssueCache.CachedRule> cachedRule = cacheSession != null ? cacheSession.get(executableRuleType) : Optional.empty();
+            if (cachedRule.isPresent()) {
+                issueHandler.replay(context, cachedRule.get());
+            } else {
+                issueHandler.process(context, reportModulePath, executableRuleType, getIssueListener(cacheSession));
+            }
+        }
+    }
+
+    private void evaluate(SensorContext context, ExecutableRuleType executableRuleType, IssueCache.Session cacheSession, IssueHandler.Pipeline pipeline) {
+        if (FAILURE.equals(executableRuleType.getStatus())) {
+            Optional<IssueCache.CachedRule> cachedRule = cacheSession != null ? cacheSession.get(executableRuleType) : Optional.empty();
+            if (cachedRule.isPresent()) {
+                issueHandler.replay(context, cachedRule.get());
+            } else {
+                pipeline.submit(executableRuleType);
+            }
+        }
+    }
+}
@@ -0,0 +1,630 @@
+package org.jqassistant.contrib.sonarqube.plugin.sensor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import lombok.Getter;
+import lombok.Value;
+import org.jqassistant.contrib.sonarqube.plugin.JQAssistantConfiguration;
+import org.jqassistant.schema.report.v1.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.FileSystem;
+import org.sonar.api.batch.fs.InputComponent;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.scanner.ScannerSide;
+
+import static java.util.Collections.emptyList;
+import static java.util.Optional.empty;
+import static org.jqassistant.schema.report.v1.StatusEnumType.FAILURE;
+
+/**
+ * File based cache for the issues created per rule which allows skipping rules
+ * which are unchanged since the previous analysis.
+ * <p>
+ * The cache is stored per module and is only valid as long as the files of the
+ * module (paths, sizes, modification times and, if only changed files are
+ * reported, their status), the issue type, the rule filters and the ignored
+ * packages are unchanged. The fingerprint of the files does not require their
+ * metadata, i.e. the files are not read. Rules are identified by a hash over
+ * their content, if the whole report file is unchanged the cached issues are
+ * replayed without parsing the report.
+ * <p>
+ * The cache is disabled if the number of issues is limited as the issues
+ * reported for a rule depend on the issues of the other rules.
+ */
+@ScannerSide
+public class IssueCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IssueCache.class);
+
+    /**
+     * The version of the cache format, must be incremented if the format or the
+     * created issues change.
+     */
+    static final int VERSION = 3;
+
+    private static final byte SEPARATOR = 0;
+
+    private final JQAssistantConfiguration configuration;
+
+    public IssueCache(JQAssistantConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * @return TRUE if a cache directory is configured and the number of issues
+     *         is not limited.
+     */
+    public boolean isEnabled() {
+        return configuration.getCacheDirectory().isPresent() && configuration.getMaxIssuesPerRule() <= 0 && configuration.getMaxIssues() <= 0;
+    }
+
+    /**
+     * Opens the cache of the current module.
+     *
+     * @param sensorContext
+     *            The {@link SensorContext} of the module.
+     * @param projectDirectory
+     *            The project directory.
+     * @param reportModulePath
+     *            The directory of the module containing the report.
+     * @param reportFiles
+     *            The report files.
+     * @return The {@link Session}.
+     */
+    public Session open(SensorContext sensorContext, File projectDirectory, File reportModulePath, List<File> reportFiles) {
+        File cacheDirectory = new File(configuration.getCacheDirectory().orElseThrow(() -> new IllegalStateException("Cache is disabled.")));
+        if (!cacheDirectory.isAbsolute()) {
+            cacheDirectory = new File(projectDirectory, cacheDirectory.getPath());
+        }
+        FileSystem fileSystem = sensorContext.fileSystem();
+        String modulePath = getRelativePath(projectDirectory.toPath(), fileSystem.baseDir().toPath());
+        File cacheFile = new File(cacheDirectory, hash(digest -> update(digest, modulePath)).substring(0, 16) + ".cache");
+        String fingerprint = getFingerprint(fileSystem, fileSystem.baseDir().equals(reportModulePath));
+        String reportHash = hash(reportFiles);
+        Session session = new Session(cacheFile, fileSystem.baseDir().toPath(), fingerprint, reportHash);
+        session.load();
+        return session;
+    }
+
+    /**
+     * Determines the fingerprint of a module, cached issues are only valid if it
+     * is unchanged.
+     */
+    private String getFingerprint(FileSystem fileSystem, boolean reportModule) {
+        Path baseDir = fileSystem.baseDir().toPath();
+        boolean changedFilesOnly = configuration.isChangedFilesOnly();
+        List<String> files = new ArrayList<>();
+        for (InputFile inputFile : fileSystem.inputFiles(fileSystem.predicates().all())) {
+            File ioFile = inputFile.path().toFile();
+            String file = getRelativePath(baseDir, inputFile.path()) + ":" + ioFile.length() + ":" + ioFile.lastModified();
+            // issues of unchanged files are not reported, i.e. they depend on the status which requires the metadata
+            files.add(changedFilesOnly ? file + ":" + inputFile.status() : file);
+        }
+        files.sort(null);
+        return hash(digest -> {
+            update(digest, Integer.toString(VERSION));
+            update(digest, configuration.getIssueType().name());
+            update(digest, Boolean.toString(reportModule));
+            update(digest, Boolean.toString(changedFilesOnly));
+            update(digest, Integer.toString(configuration.getMaxMessageLength()));
+            update(digest, configuration.getAggregation().name());
+            update(digest, Integer.toString(configuration.getMaxIssuesPerRule()));
+            update(digest, Integer.toString(configuration.getMaxIssues()));
+            update(digest, configuration.getIncludedRules());
+            update(digest, configuration.getExcludedRules());
+            update(digest, configuration.getIgnoredPackages());
+            for (String file : files) {
+                update(digest, file);
+            }
+        });
+    }
+
+    /**
+     * Determines the hash of a rule including its result. The hash of rows which
+     * have been digested while binding is used, other rows are walked.
+     */
+    static String hash(ExecutableRuleType rule) {
+        return hash(digest -> {
+            update(digest, rule.getClass().getSimpleName());
+            update(digest, rule.getId());
+            update(digest, rule.getDescription());
+            update(digest, rule.getStatus() != null ? rule.getStatus().value() : null);
+            SeverityType severity = rule.getSeverity();
+            if (severity != null) {
+                update(digest, Integer.toString(severity.getLevel()));
+                update(digest, severity.getValue());
+            }
+            ResultType result = rule.getResult();
+            if (result != null) {
+                for (ColumnHeaderType columnHeader : result.getColumns().getColumn()) {
+                    update(digest, columnHeader.getValue());
+                    update(digest, Boolean.toString(columnHeader.isPrimary()));
+                }
+                RowsType rows = result.getRows();
+                String rowsHash = rows instanceof HashedRows ? ((HashedRows) rows).getRowsHash() : null;
+                if (rowsHash == null) {
+                    RowDigest rowDigest = new RowDigest();
+                    rows.getRow().forEach(rowDigest::add);
+                    rowsHash = rowDigest.complete();
+                }
+                update(digest, rowsHash);
+            }
+        });
+    }
+
+    /**
+     * Determines the hash of a selection of rows from the hash of all rows.
+     *
+     * @param rowsHash
+     *            The hash of all rows.
+     * @param rowIndexes
+     *            The indexes of the selected rows.
+     * @return The hash.
+     */
+    static String hash(String rowsHash, int[] rowIndexes) {
+        return hash(digest -> {
+            update(digest, rowsHash);
+            for (int rowIndex : rowIndexes) {
+                update(digest, Integer.toString(rowIndex));
+            }
+        });
+    }
+
+    /**
+     * Determines the hash of the contents of a list of files.
+     *
+     * @return The hash or <code>null</code> if a file cannot be read.
+     */
+    private static String hash(List<File> files) {
+        if (files.size() == 1) {
+            return hash(files.get(0));
+        }
+        List<String> fileHashes = new ArrayList<>(files.size());
+        for (File file : files) {
+            String fileHash = hash(file);
+            if (fileHash == null) {
+                return null;
+            }
+            fileHashes.add(fileHash);
+        }
+        return hash(digest -> {
+            for (String fileHash : fileHashes) {
+                update(digest, fileHash);
+            }
+        });
+    }
+
+    /**
+     * Determines the hash of the content of a file.
+     *
+     * @return The hash or <code>null</code> if the file cannot be read.
+     */
+    private static String hash(File file) {
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream inputStream = new FileInputStream(file)) {
+            return hash(digest -> {
+                int read;
+                while ((read = inputStream.read(buffer)) >= 0) {
+                    digest.update(buffer, 0, read);
+                }
+            });
+        } catch (IOException e) {
+            LOGGER.warn("Cannot determine hash of '{}'.", file.getPath(), e);
+            return null;
+        }
+    }
+
+    private static <E extends Exception> String hash(DigestWriter<E> writer) throws E {
+        MessageDigest digest = createDigest();
+        writer.write(digest);
+        return toHex(digest.digest());
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported.", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hash = new StringBuilder();
+        for (byte b : bytes) {
+            hash.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hash.toString();
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update(SEPARATOR);
+    }
+
+    private static void update(MessageDigest digest, List<String> values) {
+        update(digest, Integer.toString(values.size()));
+        for (String value : values) {
+            update(digest, value);
+        }
+    }
+
+    private static String getRelativePath(Path baseDir, Path path) {
+        Path absolutePath = path.toAbsolutePath();
+        Path absoluteBaseDir = baseDir.toAbsolutePath();
+        Path relativePath = absolutePath.startsWith(absoluteBaseDir) ? absoluteBaseDir.relativize(absolutePath) : absolutePath;
+        return relativePath.toString().replace(File.separatorChar, '/');
+    }
+
+    private interface DigestWriter<E extends Exception> {
+        void write(MessageDigest digest) throws E;
+    }
+
+    /**
+     * Rows which provide their hash, e.g. as it has been determined while they
+     * have been read.
+     */
+    interface HashedRows {
+
+        /**
+         * @return The hash of the rows or <code>null</code> if it is unknown.
+         */
+        String getRowsHash();
+    }
+
+    /**
+     * Determines the hash of rows one by one, e.g. while they are read.
+     */
+    static final class RowDigest {
+
+        private final MessageDigest digest = createDigest();
+
+        /**
+         * Add a row.
+         *
+         * @param row
+         *            The {@link RowType}.
+         */
+        void add(RowType row) {
+            update(digest, "row");
+            for (ColumnType column : row.getColumn()) {
+                update(digest, column.getName());
+                ElementType element = column.getElement();
+                if (element != null) {
+                    update(digest, element.getLanguage());
+                    update(digest, element.getValue());
+                }
+                SourceType source = column.getSource();
+                if (source != null) {
+                    update(digest, source.getName());
+                    update(digest, source.getLine() != null ? source.getLine().toString() : null);
+                }
+                update(digest, column.getValue());
+            }
+        }
+
+        /**
+         * @return The hash of the added rows.
+         */
+        String complete() {
+            return toHex(digest.digest());
+        }
+    }
+
+    /**
+     * The cache of a module during a sensor execution, it records the issues of
+     * all rules which are not cached yet.
+     */
+    public static class Session implements IssueHandler.IssueListener {
+
+        private final File cacheFile;
+
+        private final Path baseDir;
+
+        private final String fingerprint;
+
+        private final String reportHash;
+
+        private String previousReportHash;
+
+        private final Map<String, CachedRule> previousRules = new LinkedHashMap<>();
+
+        private final Map<String, CachedRule> rules = new LinkedHashMap<>();
+
+        private final Map<ExecutableRuleType, CachedRule> pendingRules = new IdentityHashMap<>();
+
+        private Session(File cacheFile, Path baseDir, String fingerprint, String reportHash) {
+            this.cacheFile = cacheFile;
+            this.baseDir = baseDir;
+            this.fingerprint = fingerprint;
+            this.reportHash = reportHash;
+        }
+
+        /**
+         * @return TRUE if the report file and the module are unchanged since the
+         *         previous analysis.
+         */
+        public boolean isReportUnchanged() {
+            return reportHash != null && reportHash.equals(previousReportHash);
+        }
+
+        /**
+         * Return all cached rules of the previous analysis in report order, they are
+         * kept for the next analysis.
+         *
+         * @return The cached rules.
+         */
+        public Collection<CachedRule> getCachedRules() {
+            rules.putAll(previousRules);
+            return previousRules.values();
+        }
+
+        /**
+         * Return the cached rule for the given rule if it is unchanged since the
+         * previous analysis. Otherwise the issues subsequently created for the rule
+         * are recorded.
+         *
+         * @param rule
+         *            The rule.
+         * @return The {@link CachedRule}.
+         */
+        public Optional<CachedRule> get(ExecutableRuleType rule) {
+            String hash = hash(rule);
+            CachedRule cachedRule = previousRules.get(hash);
+            if (cachedRule != null && !rules.containsKey(hash)) {
+                rules.put(hash, cachedRule);
+                return Optional.of(cachedRule);
+            }
+            CachedRule newCachedRule = new CachedRule(rule, hash);
+            if (rules.putIfAbsent(hash, newCachedRule) == null) {
+                pendingRules.put(rule, newCachedRule);
+            }
+            return empty();
+        }
+
+        @Override
+        public void onExternalIssue(ExecutableRuleType rule, InputComponent inputComponent, Integer lineNumber, String message,
+                                    List<IssueHandler.SecondaryLocation> secondaryLocations) {
+            CachedRule cachedRule = pendingRules.get(rule);
+            if (cachedRule != null) {
+                if (inputComponent instanceof InputFile) {
+                    cachedRule.issues
+                        .add(new CachedIssue(getRelativePath(baseDir, ((InputFile) inputComponent).path()), lineNumber, message, secondaryLocations));
+                } else {
+                    cachedRule.cacheable = false;
+                }
+            }
+        }
+
+        @Override
+        public void onProjectIssue(ExecutableRuleType rule, String message) {
+            CachedRule cachedRule = pendingRules.get(rule);
+            if (cachedRule != null) {
+                cachedRule.issues.add(new CachedIssue(null, null, message, emptyList()));
+            }
+        }
+
+        private void load() {
+            if (!cacheFile.exists()) {
+                return;
+            }
+            try (DataInputStream input = new DataInputStream(new GZIPInputStream(new BufferedInputStream(new FileInputStream(cacheFile))))) {
+                if (input.readInt() != VERSION || !fingerprint.equals(readString(input))) {
+                    LOGGER.info("Ignoring jQAssistant issue cache '{}' as the module has changed.", cacheFile.getPath());
+                    return;
+                }
+                previousReportHash = readString(input);
+                int ruleCount = input.readInt();
+                for (int i = 0; i < ruleCount; i++) {
+                    CachedRule cachedRule = CachedRule.read(input);
+                    previousRules.put(cachedRule.getHash(), cachedRule);
+                }
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Cannot read jQAssistant issue cache '{}'.", cacheFile.getPath(), e);
+                previousReportHash = null;
+                previousRules.clear();
+            }
+        }
+
+        /**
+         * Stores the cached rules of the current analysis.
+         */
+        public void save() {
+            File directory = cacheFile.getAbsoluteFile().getParentFile();
+            directory.mkdirs();
+            File tempFile = new File(directory, cacheFile.getName() + ".tmp");
+            try {
+                try (DataOutputStream output = new DataOutputStream(new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile))))) {
+                    output.writeInt(VERSION);
+                    writeString(output, fingerprint);
+                    boolean allCacheable = rules.values().stream().allMatch(rule -> rule.cacheable);
+                    // a report containing rules which cannot be cached must be parsed again
+                    writeString(output, allCacheable ? reportHash : null);
+                    List<CachedRule> cacheableRules = new ArrayList<>();
+                    rules.values().stream().filter(rule -> rule.cacheable).forEach(cacheableRules::add);
+                    output.writeInt(cacheableRules.size());
+                    for (CachedRule cachedRule : cacheableRules) {
+                        cachedRule.write(output);
+                    }
+                }
+                Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                LOGGER.warn("Cannot write jQAssistant issue cache '{}'.", cacheFile.getPath(), e);
+            }
+        }
+    }
+
+    /**
+     * The issues of a rule.
+     */
+    @Getter
+    public static class CachedRule {
+
+        private final RuleType ruleType;
+
+        private final String id;
+
+        private final String description;
+
+        private final Integer severityLevel;
+
+        private final String severityValue;
+
+        private final String hash;
+
+        private final List<CachedIssue> issues;
+
+        private boolean cacheable = true;
+
+        private CachedRule(RuleType ruleType, String id, String description, Integer severityLevel, String severityValue, String hash,
+                           List<CachedIssue> issues) {
+            this.ruleType = ruleType;
+            this.id = id;
+            this.description = description;
+            this.severityLevel = severityLevel;
+            this.severityValue = severityValue;
+            this.hash = hash;
+            this.issues = issues;
+        }
+
+        private CachedRule(ExecutableRuleType rule, String hash) {
+            this(rule instanceof ConceptType ? RuleType.CONCEPT : RuleType.CONSTRAINT, rule.getId(), rule.getDescription(),
+                rule.getSeverity() != null ? rule.getSeverity().getLevel() : null, rule.getSeverity() != null ? rule.getSeverity().getValue() : null, hash,
+                new ArrayList<>());
+        }
+
+        /**
+         * Creates a failed rule without result which can be used for re-creating
+         * the issues.
+         *
+         * @return The rule.
+         */
+        ExecutableRuleType toRule() {
+            ExecutableRuleType rule = ruleType == RuleType.CONCEPT ? new ConceptType() : new ConstraintType();
+            rule.setId(id);
+            rule.setDescription(description);
+            rule.setStatus(FAILURE);
+            if (severityLevel != null || severityValue != null) {
+                SeverityType severity = new SeverityType();
+                if (severityLevel != null) {
+                    severity.setLevel(severityLevel);
+                }
+                severity.setValue(severityValue);
+                rule.setSeverity(severity);
+            }
+            return rule;
+        }
+
+        private void write(DataOutputStream output) throws IOException {
+            writeString(output, ruleType.name());
+            writeString(output, id);
+            writeString(output, description);
+            output.writeInt(severityLevel != null ? severityLevel : -1);
+            writeString(output, severityValue);
+            writeString(output, hash);
+            output.writeInt(issues.size());
+            for (CachedIssue issue : issues) {
+                writeString(output, issue.getPath());
+                output.writeInt(issue.getLineNumber() != null ? issue.getLineNumber() : -1);
+                writeString(output, issue.getMessage());
+                output.writeInt(issue.getSecondaryLocations().size());
+                for (IssueHandler.SecondaryLocation secondaryLocation : issue.getSecondaryLocations()) {
+                    output.writeInt(secondaryLocation.getLineNumber() != null ? secondaryLocation.getLineNumber() : -1);
+                    writeString(output, secondaryLocation.getMessage());
+                }
+            }
+        }
+
+        private static CachedRule read(DataInputStream input) throws IOException {
+            RuleType ruleType = RuleType.valueOf(readString(input));
+            String id = readString(input);
+            String description = readString(input);
+            int severityLevel = input.readInt();
+            String severityValue = readString(input);
+            String hash = readString(input);
+            int issueCount = input.readInt();
+            List<CachedIssue> issues = new ArrayList<>(issueCount);
+            for (int i = 0; i < issueCount; i++) {
+                String path = readString(input);
+                int lineNumber = input.readInt();
+                String message = readString(input);
+                int secondaryLocationCount = input.readInt();
+                List<IssueHandler.SecondaryLocation> secondaryLocations = new ArrayList<>(secondaryLocationCount);
+                for (int j = 0; j < secondaryLocationCount; j++) {
+                    int secondaryLineNumber = input.readInt();
+                    secondaryLocations.add(new IssueHandler.SecondaryLocation(secondaryLineNumber >= 0 ? secondaryLineNumber : null, readString(input)));
+                }
+                issues.add(new CachedIssue(path, lineNumber >= 0 ? lineNumber : null, message, secondaryLocations));
+            }
+            return new CachedRule(ruleType, id, description, severityLevel >= 0 ? severityLevel : null, severityValue, hash, issues);
+        }
+    }
+
+    /**
+     * A cached issue.
+     */
+    @Value
+    public static class CachedIssue {
+
+        /**
+         * The path of the file relative to the module, <code>null</code> for issues
+         * on project level.
+         */
+        String path;
+
+        Integer lineNumber;
+
+        String message;
+
+        /**
+         * The secondary locations within the file.
+         */
+        List<IssueHandler.SecondaryLocation> secondaryLocations;
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
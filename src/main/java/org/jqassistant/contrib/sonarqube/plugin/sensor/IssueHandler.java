@@ -1,12 +1,17 @@
 package org.jqassistant.contrib.sonarqube.plugin.sensor;
 
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
 import org.jqassistant.contrib.sonarqube.plugin.JQAssistant;
 import org.jqassistant.contrib.sonarqube.plugin.JQAssistantConfiguration;
+import org.jqassistant.contrib.sonarqube.plugin.JQAssistantConfiguration.Aggregation;
 import org.jqassistant.contrib.sonarqube.plugin.language.JavaResourceResolver;
 import org.jqassistant.contrib.sonarqube.plugin.language.ResourceResolver;
 import org.jqassistant.schema.report.v1.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sonar.api.Startable;
+import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputComponent;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.InputPath;
@@ -20,26 +25,50 @@ import org.sonar.api.rule.RuleKey;
 import org.sonar.api.scanner.ScannerSide;
 
 import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
 
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.Comparator.comparingInt;
 import static java.util.Optional.empty;
 import static org.jqassistant.contrib.sonarqube.plugin.sensor.RuleType.CONCEPT;
 import static org.jqassistant.contrib.sonarqube.plugin.sensor.RuleType.CONSTRAINT;
+import static org.jqassistant.contrib.sonarqube.plugin.sensor.SensorMetrics.Phase.RESOLVE;
+import static org.jqassistant.contrib.sonarqube.plugin.sensor.SensorMetrics.Phase.SAVE;
 
 /**
  * Base class to create issues.
+ * <p>
+ * If a parallelism greater than 1 is configured the source locations are
+ * resolved using a {@link ForkJoinPool} which is created on first use and shut
+ * down at the end of the analysis.
  *
  * @author rzozmann
  */
 @ScannerSide
-public class IssueHandler {
+public class IssueHandler implements Startable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(IssueHandler.class);
 
-    private static final String NEWLINE = "\n";
+    /**
+     * The maximum number of secondary locations of an aggregated issue.
+     */
+    static final int MAX_SECONDARY_LOCATIONS = 100;
 
     private final Map<String, ResourceResolver> languageResourceResolvers;
 
@@ -47,28 +76,254 @@ public class IssueHandler {
 
     private final RuleKeyResolver ruleResolver;
 
-    public IssueHandler(JQAssistantConfiguration configuration, JavaResourceResolver resourceResolver, RuleKeyResolver ruleResolver) {
+    private final SensorMetrics sensorMetrics;
+
+    /**
+     * The ids of the ad-hoc rules which have already been registered during this analysis.
+     */
+    private final Set<String> adHocRuleIds = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong skippedAdHocRuleRegistrations = new AtomicLong();
+
+    /**
+     * The number of issues of this analysis which have been created, used for
+     * limiting the total number of issues.
+     */
+    private final AtomicLong createdIssues = new AtomicLong();
+
+    private ForkJoinPool forkJoinPool;
+
+    public IssueHandler(JQAssistantConfiguration configuration, JavaResourceResolver resourceResolver, RuleKeyResolver ruleResolver,
+                        SensorMetrics sensorMetrics) {
         this.configuration = configuration;
         this.ruleResolver = ruleResolver;
+        this.sensorMetrics = sensorMetrics;
         this.languageResourceResolvers = new HashMap<>();
         this.languageResourceResolvers.put(resourceResolver.getLanguage().toLowerCase(Locale.ENGLISH), resourceResolver);
     }
 
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (forkJoinPool != null) {
+            forkJoinPool.shutdownNow();
+            forkJoinPool = null;
+        }
+    }
+
+    private synchronized ForkJoinPool getForkJoinPool() {
+        if (forkJoinPool == null) {
+            forkJoinPool = new ForkJoinPool(Math.max(1, configuration.getParallelism()));
+        }
+        return forkJoinPool;
+    }
+
     /**
      * Create issues, based on content.
      */
     void process(SensorContext sensorContext, File reportModulePath, ExecutableRuleType executableRuleType) {
+        process(sensorContext, reportModulePath, executableRuleType, IssueListener.NONE);
+    }
+
+    /**
+     * Create issues, based on content, and notify the given {@link IssueListener}
+     * about each created issue.
+     */
+    void process(SensorContext sensorContext, File reportModulePath, ExecutableRuleType executableRuleType, IssueListener issueListener) {
         ResultType result = executableRuleType.getResult();
+        SensorMetrics.Execution metrics = sensorMetrics.getExecution();
         if (result == null) {
             // 'result' may be null for not applied (failed) concepts
-            newIssue(sensorContext, reportModulePath, empty(), executableRuleType, null, null);
+            long start = System.nanoTime();
+            RuleIssues ruleIssues = new RuleIssues(sensorContext, reportModulePath, executableRuleType, issueListener);
+            if (ruleIssues.accept()) {
+                ruleIssues.add(empty(), RuleIssues.NO_ROW);
+            }
+            ruleIssues.complete();
+            metrics.addDuration(SAVE, System.nanoTime() - start);
+        } else if (configuration.getParallelism() > 1) {
+            process(sensorContext, reportModulePath, singletonList(executableRuleType), issueListener);
         } else {
-            String primaryColumn = getPrimaryColumn(result);
-            for (RowType rowType : result.getRows().getRow()) {
+            RuleIssues ruleIssues = new RuleIssues(sensorContext, reportModulePath, executableRuleType, issueListener);
+            String primaryColumn = ruleIssues.getPrimaryColumn();
+            List<RowType> rows = result.getRows().getRow();
+            for (int i = 0; i < rows.size(); i++) {
+                if (!ruleIssues.accept()) {
+                    // rows exceeding the maximum number of issues are neither resolved nor saved
+                    ruleIssues.skip(rows.size() - i - 1);
+                    break;
+                }
+                RowType rowType = rows.get(i);
+                long start = System.nanoTime();
                 Optional<SourceLocation> target = resolveSourceLocation(sensorContext, rowType, primaryColumn);
-                newIssue(sensorContext, reportModulePath, target, executableRuleType, rowType, primaryColumn);
+                long resolved = System.nanoTime();
+                ruleIssues.add(target, i);
+                metrics.addDuration(RESOLVE, resolved - start);
+                metrics.addDuration(SAVE, System.nanoTime() - resolved);
+                metrics.addRow();
+            }
+            long start = System.nanoTime();
+            ruleIssues.complete();
+            metrics.addDuration(SAVE, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Create issues for a list of rules.
+     * <p>
+     * If a parallelism greater than 1 is configured the source locations of all
+     * rows are resolved concurrently, the issues are created afterwards on the
+     * calling thread in the order of the given rules and their rows. The time
+     * waiting for the resolution is recorded as {@link SensorMetrics.Phase#RESOLVE}.
+     */
+    void process(SensorContext sensorContext, File reportModulePath, List<ExecutableRuleType> executableRuleTypes) {
+        process(sensorContext, reportModulePath, executableRuleTypes, IssueListener.NONE);
+    }
+
+    /**
+     * Create issues for a list of rules and notify the given {@link IssueListener}
+     * about each created issue.
+     */
+    void process(SensorContext sensorContext, File reportModulePath, List<ExecutableRuleType> executableRuleTypes, IssueListener issueListener) {
+        if (configuration.getMaxIssues() > 0) {
+            // the most severe rules shall be reported within the maximum number of issues
+            executableRuleTypes = new ArrayList<>(executableRuleTypes);
+            executableRuleTypes.sort(comparingInt(executableRuleType -> getSeverityLevel(executableRuleType.getSeverity())));
+        }
+        if (configuration.getParallelism() > 1) {
+            // all rules are submitted before the issues of the first one are created
+            try (Pipeline pipeline = new Pipeline(sensorContext, reportModulePath, issueListener, Integer.MAX_VALUE)) {
+                for (ExecutableRuleType executableRuleType : executableRuleTypes) {
+                    pipeline.submit(executableRuleType);
+                }
+                pipeline.complete();
+            }
+        } else {
+            for (ExecutableRuleType executableRuleType : executableRuleTypes) {
+                process(sensorContext, reportModulePath, executableRuleType, issueListener);
+            }
+        }
+    }
+
+    /**
+     * Create a {@link Pipeline} for rules which are submitted one by one, e.g.
+     * while a report is read in streaming mode.
+     * <p>
+     * The source locations of the rows of a submitted rule are resolved
+     * concurrently using the configured parallelism while further rules are
+     * submitted. The issues are created on the calling thread in submission order
+     * as soon as more than the given number of rules are pending, i.e. the
+     * capacity bounds the number of rules held in memory.
+     *
+     * @param sensorContext
+     *            The {@link SensorContext}.
+     * @param reportModulePath
+     *            The module directory of the report.
+     * @param issueListener
+     *            The {@link IssueListener}.
+     * @param capacity
+     *            The maximum number of pending rules.
+     * @return The {@link Pipeline} which must be closed after use.
+     */
+    Pipeline pipeline(SensorContext sensorContext, File reportModulePath, IssueListener issueListener, int capacity) {
+        return new Pipeline(sensorContext, reportModulePath, issueListener, capacity);
+    }
+
+    private void createIssues(SensorContext sensorContext, File reportModulePath, ExecutableRuleType executableRuleType,
+                              List<Optional<SourceLocation>> targets, SensorMetrics.Execution metrics, IssueListener issueListener) {
+        ResultType result = executableRuleType.getResult();
+        RuleIssues ruleIssues = new RuleIssues(sensorContext, reportModulePath, executableRuleType, issueListener);
+        if (result == null) {
+            if (ruleIssues.accept()) {
+                ruleIssues.add(empty(), RuleIssues.NO_ROW);
+            }
+        } else {
+            List<RowType> rows = result.getRows().getRow();
+            for (int i = 0; i < rows.size(); i++) {
+                if (!ruleIssues.accept()) {
+                    ruleIssues.skip(rows.size() - i - 1);
+                    break;
+                }
+                // rows which have not been resolved in advance may still create issues if the limit is not reached
+                Optional<SourceLocation> target = i < targets.size() ? targets.get(i)
+                    : resolveSourceLocation(sensorContext, rows.get(i), ruleIssues.getPrimaryColumn());
+                ruleIssues.add(target, i);
+                metrics.addRow();
             }
         }
+        ruleIssues.complete();
+    }
+
+    /**
+     * Determines the number of rows of a rule which are resolved in advance
+     * considering the maximum number of issues per rule and the remaining number
+     * of issues of the analysis. Further rows are resolved when the issues are
+     * created if the limits have not been reached.
+     *
+     * @param rows
+     *            The number of rows of the rule.
+     * @param reservedRows
+     *            The number of rows reserved by preceding rules whose issues
+     *            have not been created yet.
+     * @return The number of rows to resolve.
+     */
+    private int getRowLimit(int rows, long reservedRows) {
+        int limit = rows;
+        int maxIssuesPerRule = configuration.getMaxIssuesPerRule();
+        if (maxIssuesPerRule > 0) {
+            limit = Math.min(limit, maxIssuesPerRule);
+        }
+        int maxIssues = configuration.getMaxIssues();
+        if (maxIssues > 0) {
+            limit = (int) Math.min(limit, Math.max(0, maxIssues - createdIssues.get() - reservedRows));
+        }
+        return limit;
+    }
+
+    private static int getSeverityLevel(SeverityType severity) {
+        return severity != null ? severity.getLevel() : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Re-creates the issues of a rule from the {@link IssueCache}, they are
+     * counted as created issues of the analysis.
+     *
+     * @param sensorContext
+     *            The {@link SensorContext}.
+     * @param cachedRule
+     *            The {@link IssueCache.CachedRule}.
+     */
+    void replay(SensorContext sensorContext, IssueCache.CachedRule cachedRule) {
+        ExecutableRuleType executableRuleType = cachedRule.toRule();
+        FileSystem fileSystem = sensorContext.fileSystem();
+        // the cached issues have been created grouped by their files
+        TextRangeCache textRangeCache = new TextRangeCache();
+        for (IssueCache.CachedIssue cachedIssue : cachedRule.getIssues()) {
+            createdIssues.incrementAndGet();
+            if (cachedIssue.getPath() == null) {
+                resolveRuleKey(executableRuleType)
+                    .ifPresent(ruleKey -> saveProjectIssue(sensorContext, executableRuleType, ruleKey, cachedIssue.getMessage(), IssueListener.NONE));
+            } else {
+                InputFile inputFile = fileSystem.inputFile(fileSystem.predicates().hasPath(cachedIssue.getPath()));
+                if (inputFile != null) {
+                    saveExternalIssue(sensorContext, executableRuleType, inputFile, Optional.ofNullable(cachedIssue.getLineNumber()), cachedIssue.getMessage(),
+                        cachedIssue.getSecondaryLocations(), textRangeCache, IssueListener.NONE);
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the number of ad-hoc rule registrations which have been skipped as
+     * the rule has already been registered before.
+     *
+     * @return The number of skipped registrations.
+     */
+    public long getSkippedAdHocRuleRegistrations() {
+        return skippedAdHocRuleRegistrations.get();
     }
 
     private RuleType getRuleType(ExecutableRuleType executableRuleType) {
@@ -81,56 +336,60 @@ public class IssueHandler {
         }
     }
 
-    private void newIssue(SensorContext sensorContext, File reportModulePath, Optional<SourceLocation> target, ExecutableRuleType executableRuleType,
-                          RowType rowType, String primaryColumn) {
-        if (target.isPresent()) {
-            SourceLocation sourceLocation = target.get();
-            Optional<InputComponent> inputComponent = sourceLocation.getResource();
-            if (inputComponent.isPresent()) {
-                // Create an external issue if a SourceLocation exists and InputComponent could
-                // be resolved (e.g. a class in a module)
-                newExternalIssue(sensorContext, executableRuleType, rowType, inputComponent.get(), sourceLocation.getLineNumber(), Optional.of(primaryColumn));
-            }
-        } else if (sensorContext.fileSystem().baseDir().equals(reportModulePath)) {
-            // Create issue on project level for all items that cannot be mapped to a
-            // SourceLocation (e.g. packages or empty concepts)
-            newIssue(sensorContext, executableRuleType, rowType, sensorContext.project());
-        }
+    private static boolean isUnchanged(InputComponent inputComponent) {
+        return inputComponent instanceof InputFile && ((InputFile) inputComponent).status() == InputFile.Status.SAME;
     }
 
-    private void newExternalIssue(SensorContext sensorContext, ExecutableRuleType executableRuleType, RowType rowType, InputComponent inputComponent,
-                                  Optional<Integer> lineNumber, Optional<String> matchedColumn) {
+    private void saveExternalIssue(SensorContext sensorContext, ExecutableRuleType executableRuleType, InputComponent inputComponent,
+                                   Optional<Integer> lineNumber, String message, List<SecondaryLocation> secondaryLocations,
+                                   TextRangeCache textRangeCache, IssueListener issueListener) {
         RuleType ruleType = getRuleType(executableRuleType);
         org.sonar.api.rules.RuleType issueType = configuration.getIssueType();
 
-        sensorContext.newAdHocRule().engineId(JQAssistant.NAME).ruleId(executableRuleType.getId()).name(executableRuleType.getId())
-            .description(executableRuleType.getDescription()).type(issueType).severity(ruleType.getDefaultSeverity()).save();
+        if (adHocRuleIds.add(executableRuleType.getId())) {
+            sensorContext.newAdHocRule().engineId(JQAssistant.NAME).ruleId(executableRuleType.getId()).name(executableRuleType.getId())
+                .description(executableRuleType.getDescription()).type(issueType).severity(ruleType.getDefaultSeverity()).save();
+        } else {
+            skippedAdHocRuleRegistrations.incrementAndGet();
+        }
 
         NewExternalIssue newExternalIssue = sensorContext.newExternalIssue().type(issueType);
-        StringBuilder message = appendResult(rowType, matchedColumn, new StringBuilder(executableRuleType.getDescription()));
-        NewIssueLocation newIssueLocation = newExternalIssue.newLocation().message(message.toString()).on(inputComponent);
-        if (lineNumber.isPresent()) {
-            TextRange textRange = ((InputFile) inputComponent).selectLine(lineNumber.get());
-            newIssueLocation.at(textRange);
+        NewIssueLocation newIssueLocation = newLocation(newExternalIssue.newLocation(), inputComponent, lineNumber, message, textRangeCache);
+        for (SecondaryLocation secondaryLocation : secondaryLocations) {
+            newExternalIssue.addLocation(newLocation(newExternalIssue.newLocation(), inputComponent, Optional.ofNullable(secondaryLocation.getLineNumber()),
+                secondaryLocation.getMessage(), textRangeCache));
         }
         convertSeverity(executableRuleType.getSeverity()).ifPresent(newExternalIssue::severity);
         newExternalIssue.engineId(JQAssistant.NAME).ruleId(executableRuleType.getId()).at(newIssueLocation).save();
+        sensorMetrics.getExecution().addIssue();
+        issueListener.onExternalIssue(executableRuleType, inputComponent, lineNumber.orElse(null), message, secondaryLocations);
     }
 
-    private void newIssue(SensorContext sensorContext, ExecutableRuleType executableRuleType, RowType rowType, InputComponent inputComponent) {
-        RuleType ruleType = getRuleType(executableRuleType);
-        Optional<RuleKey> ruleKey = ruleResolver.resolve(ruleType);
+    private static NewIssueLocation newLocation(NewIssueLocation newIssueLocation, InputComponent inputComponent, Optional<Integer> lineNumber,
+                                                String message, TextRangeCache textRangeCache) {
+        newIssueLocation.message(message).on(inputComponent);
+        if (lineNumber.isPresent()) {
+            newIssueLocation.at(textRangeCache.selectLine((InputFile) inputComponent, lineNumber.get()));
+        }
+        return newIssueLocation;
+    }
+
+    private Optional<RuleKey> resolveRuleKey(ExecutableRuleType executableRuleType) {
+        Optional<RuleKey> ruleKey = ruleResolver.resolve(getRuleType(executableRuleType));
         if (!ruleKey.isPresent()) {
             LOGGER.warn("Cannot resolve rule key for id '{}', no issue will be created. Is the rule not activated?", executableRuleType.getId());
-        } else {
-            StringBuilder message = new StringBuilder().append('[').append(executableRuleType.getId()).append("]").append(" ")
-                .append(createMessage(ruleType, executableRuleType));
-            appendResult(rowType, empty(), message);
-            NewIssue newIssue = sensorContext.newIssue();
-            NewIssueLocation newIssueLocation = newIssue.newLocation().message(message.toString()).on(inputComponent);
-            convertSeverity(executableRuleType.getSeverity()).ifPresent(newIssue::overrideSeverity);
-            newIssue.forRule(ruleKey.get()).at(newIssueLocation).save();
         }
+        return ruleKey;
+    }
+
+    private void saveProjectIssue(SensorContext sensorContext, ExecutableRuleType executableRuleType, RuleKey ruleKey, String message,
+                                  IssueListener issueListener) {
+        NewIssue newIssue = sensorContext.newIssue();
+        NewIssueLocation newIssueLocation = newIssue.newLocation().message(message).on(sensorContext.project());
+        convertSeverity(executableRuleType.getSeverity()).ifPresent(newIssue::overrideSeverity);
+        newIssue.forRule(ruleKey).at(newIssueLocation).save();
+        sensorMetrics.getExecution().addIssue();
+        issueListener.onProjectIssue(executableRuleType, message);
     }
 
     private Optional<Severity> convertSeverity(SeverityType severity) {
@@ -160,7 +419,7 @@ public class IssueHandler {
      * @param result The result.
      * @return The name of the primary column or <code>null</code>.
      */
-    private String getPrimaryColumn(ResultType result) {
+    static String getPrimaryColumn(ResultType result) {
         if (result == null) {
             return null;
         }
@@ -197,6 +456,7 @@ public class IssueHandler {
                 }
                 String element = languageElement.getValue();
                 InputPath resource = resourceResolver.resolve(sensorContext.fileSystem(), element, source.getName(), column.getValue());
+                sensorMetrics.getExecution().addElement(resource != null);
                 SourceLocation sourceLocation = SourceLocation.builder().resource(Optional.ofNullable(resource))
                     .lineNumber(Optional.ofNullable(source.getLine())).build();
                 return Optional.of(sourceLocation);
@@ -206,32 +466,527 @@ public class IssueHandler {
     }
 
     /**
-     * Appends the result to a message.
-     *
-     * @param rowType       The {@link RowType} containing values.
-     * @param matchedColumn The name of the column that could be matched to a source location.
-     * @param message       The message builder.
-     */
-    private StringBuilder appendResult(RowType rowType, Optional<String> matchedColumn, StringBuilder message) {
-        if (rowType != null) {
-            message.append(NEWLINE);
-            int count = 0;
-            for (ColumnType column : rowType.getColumn()) {
-                if (count > 0) {
-                    message.append(", ").append(NEWLINE);
+     * Resolves the source locations of submitted rules concurrently and creates
+     * their issues in submission order on the calling thread.
+     * <p>
+     * The rows of pending rules are reserved against the maximum number of issues
+     * of the analysis, i.e. rows exceeding the limit are not resolved.
+     */
+    class Pipeline implements AutoCloseable {
+
+        private final SensorContext sensorContext;
+
+        private final File reportModulePath;
+
+        private final IssueListener issueListener;
+
+        private final int capacity;
+
+        private final ForkJoinPool forkJoinPool;
+
+        private final Deque<PendingRule> pendingRules = new ArrayDeque<>();
+
+        private long reservedRows;
+
+        private Pipeline(SensorContext sensorContext, File reportModulePath, IssueListener issueListener, int capacity) {
+            this.sensorContext = sensorContext;
+            this.reportModulePath = reportModulePath;
+            this.issueListener = issueListener;
+            this.capacity = Math.max(1, capacity);
+            this.forkJoinPool = getForkJoinPool();
+        }
+
+        /**
+         * Submit a rule, the issues of the oldest pending rule are created if the
+         * capacity is exceeded.
+         *
+         * @param executableRuleType
+         *            The {@link ExecutableRuleType}.
+         */
+        void submit(ExecutableRuleType executableRuleType) {
+            ResultType result = executableRuleType.getResult();
+            List<RowType> rows = result != null ? result.getRows().getRow() : emptyList();
+            // rows which exceed the maximum number of issues are not resolved
+            int resolvedRows = getRowLimit(rows.size(), reservedRows);
+            reservedRows += resolvedRows;
+            ForkJoinTask<List<Optional<SourceLocation>>> task = forkJoinPool
+                .submit(new SourceLocationTask(sensorContext, rows, getPrimaryColumn(result), 0, resolvedRows));
+            pendingRules.add(new PendingRule(executableRuleType, resolvedRows, task));
+            while (pendingRules.size() > capacity) {
+                completeNext();
+            }
+        }
+
+        /**
+         * Create the issues of all pending rules.
+         */
+        void complete() {
+            while (!pendingRules.isEmpty()) {
+                completeNext();
+            }
+        }
+
+        private void completeNext() {
+            PendingRule pendingRule = pendingRules.remove();
+            SensorMetrics.Execution metrics = sensorMetrics.getExecution();
+            long start = System.nanoTime();
+            List<Optional<SourceLocation>> targets = pendingRule.task.join();
+            long resolved = System.nanoTime();
+            reservedRows -= pendingRule.resolvedRows;
+            createIssues(sensorContext, reportModulePath, pendingRule.executableRuleType, targets, metrics, issueListener);
+            metrics.addDuration(RESOLVE, resolved - start);
+            metrics.addDuration(SAVE, System.nanoTime() - resolved);
+        }
+
+        /**
+         * Cancels the rules which are still pending, the {@link ForkJoinPool} is
+         * kept for further pipelines.
+         */
+        @Override
+        public void close() {
+            for (PendingRule pendingRule : pendingRules) {
+                pendingRule.task.cancel(true);
+            }
+            pendingRules.clear();
+        }
+    }
+
+    /**
+     * A rule submitted to a {@link Pipeline} whose issues have not been created
+     * yet.
+     */
+    @RequiredArgsConstructor
+    private static class PendingRule {
+
+        private final ExecutableRuleType executableRuleType;
+
+        private final int resolvedRows;
+
+        private final ForkJoinTask<List<Optional<SourceLocation>>> task;
+    }
+
+    /**
+     * {@link RecursiveTask} resolving the {@link SourceLocation}s for a range of
+     * rows of a rule, ranges exceeding {@link #ROWS_PER_TASK} are split.
+     */
+    private class SourceLocationTask extends RecursiveTask<List<Optional<SourceLocation>>> {
+
+        private static final int ROWS_PER_TASK = 256;
+
+        private final SensorContext sensorContext;
+
+        private final List<RowType> rows;
+
+        private final String primaryColumn;
+
+        private final int from;
+
+        private final int to;
+
+        SourceLocationTask(SensorContext sensorContext, List<RowType> rows, String primaryColumn, int from, int to) {
+            this.sensorContext = sensorContext;
+            this.rows = rows;
+            this.primaryColumn = primaryColumn;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Optional<SourceLocation>> compute() {
+            if (to - from <= ROWS_PER_TASK) {
+                List<Optional<SourceLocation>> sourceLocations = new ArrayList<>(to - from);
+                for (int i = from; i < to; i++) {
+                    sourceLocations.add(resolveSourceLocation(sensorContext, rows.get(i), primaryColumn));
+                }
+                return sourceLocations;
+            }
+            int middle = (from + to) >>> 1;
+            SourceLocationTask lower = new SourceLocationTask(sensorContext, rows, primaryColumn, from, middle);
+            SourceLocationTask upper = new SourceLocationTask(sensorContext, rows, primaryColumn, middle, to);
+            lower.fork();
+            List<Optional<SourceLocation>> sourceLocations = new ArrayList<>(to - from);
+            List<Optional<SourceLocation>> upperSourceLocations = upper.compute();
+            sourceLocations.addAll(lower.join());
+            sourceLocations.addAll(upperSourceLocations);
+            return sourceLocations;
+        }
+    }
+
+    /**
+     * Creates the issues for the rows of a rule.
+     * <p>
+     * Only issues which are created in the current module count against the
+     * maximum number of issues per rule and per analysis, i.e. rows which are
+     * not resolved, belong to other modules or to unchanged files are not
+     * counted. Once a limit has been reached further rows are skipped before
+     * they are resolved, see {@link #accept()}. A summary issue on project level
+     * is created for the skipped rows of the module containing the report.
+     * <p>
+     * The rows are bucketed by their {@link InputComponent} and the issues are
+     * created file by file after all rows have been added, i.e. the line metadata
+     * of the files is accessed sequentially and the {@link TextRange}s of lines
+     * shared by several rows are computed only once. Only the indexes of the rows
+     * are held until then, rows spilled by a {@link RowSpill} are read again when
+     * the issues are created instead of being kept in memory.
+     * <p>
+     * If an {@link Aggregation} is configured the rows are grouped by their target
+     * and a single issue is created per group. The issue is reported at the first
+     * row of the group, the following rows are added as secondary locations (up
+     * to {@link #MAX_SECONDARY_LOCATIONS}).
+     */
+    private class RuleIssues {
+
+        /**
+         * The index of the row of a rule without result.
+         */
+        static final int NO_ROW = -1;
+
+        private final SensorContext sensorContext;
+
+        private final ExecutableRuleType executableRuleType;
+
+        private final List<RowType> rows;
+
+        private final IssueListener issueListener;
+
+        private final String primaryColumn;
+
+        private final boolean reportModule;
+
+        private final boolean changedFilesOnly;
+
+        private final Aggregation aggregation;
+
+        private final MessageRenderer messageRenderer;
+
+        private final Map<String, FileIssues> fileIssues = new LinkedHashMap<>();
+
+        private IssueGroup projectIssueGroup;
+
+        private final int maxIssuesPerRule;
+
+        private final int maxIssues;
+
+        private long ruleCreatedIssues;
+
+        private long skippedRows;
+
+        RuleIssues(SensorContext sensorContext, File reportModulePath, ExecutableRuleType executableRuleType, IssueListener issueListener) {
+            this.sensorContext = sensorContext;
+            this.executableRuleType = executableRuleType;
+            this.rows = executableRuleType.getResult() != null ? executableRuleType.getResult().getRows().getRow() : emptyList();
+            this.issueListener = issueListener;
+            this.primaryColumn = IssueHandler.getPrimaryColumn(executableRuleType.getResult());
+            this.reportModule = reportModulePath.equals(sensorContext.fileSystem().baseDir());
+            this.changedFilesOnly = configuration.isChangedFilesOnly();
+            this.aggregation = configuration.getAggregation();
+            String projectIssuePrefix = "[" + executableRuleType.getId() + "] " + createMessage(getRuleType(executableRuleType), executableRuleType);
+            this.messageRenderer = new MessageRenderer(executableRuleType.getDescription(), projectIssuePrefix, configuration.getMaxMessageLength());
+            this.maxIssuesPerRule = configuration.getMaxIssuesPerRule();
+            this.maxIssues = configuration.getMaxIssues();
+        }
+
+        /**
+         * Determines if a further row of the rule may be reported considering the
+         * maximum number of issues per rule and per analysis, otherwise the row is
+         * counted as skipped.
+         *
+         * @return <code>true</code> if the row shall be resolved and added.
+         */
+        boolean accept() {
+            if (isLimitReached()) {
+                skip(1);
+                return false;
+            }
+            return true;
+        }
+
+        private boolean isLimitReached() {
+            return (maxIssuesPerRule > 0 && ruleCreatedIssues >= maxIssuesPerRule) || (maxIssues > 0 && createdIssues.get() >= maxIssues);
+        }
+
+        /**
+         * Counts a new issue of the rule if the limits have not been reached,
+         * otherwise the row is counted as skipped.
+         *
+         * @return <code>true</code> if the issue shall be created.
+         */
+        private boolean createIssue() {
+            if (!accept()) {
+                return false;
+            }
+            ruleCreatedIssues++;
+            createdIssues.incrementAndGet();
+            return true;
+        }
+
+        /**
+         * Count rows which are skipped as the maximum number of issues has been
+         * reached.
+         *
+         * @param rows
+         *            The number of skipped rows.
+         */
+        void skip(long rows) {
+            skippedRows += rows;
+            sensorMetrics.getExecution().addSkippedRows(rows);
+        }
+
+        String getPrimaryColumn() {
+            return primaryColumn;
+        }
+
+        /**
+         * Add a row of the rule.
+         *
+         * @param target
+         *            The resolved {@link SourceLocation} of the row.
+         * @param rowIndex
+         *            The index of the row or {@link #NO_ROW} for rules without
+         *            result.
+         */
+        void add(Optional<SourceLocation> target, int rowIndex) {
+            if (target.isPresent()) {
+                SourceLocation sourceLocation = target.get();
+                Optional<InputComponent> resource = sourceLocation.getResource();
+                if (resource.isPresent() && !(changedFilesOnly && isUnchanged(resource.get()))) {
+                    // Create an external issue if a SourceLocation exists and InputComponent could
+                    // be resolved (e.g. a class in a module)
+                    InputComponent inputComponent = resource.get();
+                    Optional<Integer> lineNumber = sourceLocation.getLineNumber();
+                    FileIssues issuesOfFile = fileIssues.computeIfAbsent(inputComponent.key(), key -> new FileIssues(inputComponent));
+                    // rows added to an existing group do not create a further issue
+                    IssueGroup issueGroup = issuesOfFile.getIssueGroup(aggregation, lineNumber);
+                    if (issueGroup == null && createIssue()) {
+                        issueGroup = issuesOfFile.newIssueGroup(aggregation, lineNumber, rowIndex);
+                    }
+                    if (issueGroup != null) {
+                        issueGroup.add(lineNumber, rowIndex);
+                    }
                 }
-                String name = column.getName();
-                if (!(matchedColumn.isPresent() && name.equals(matchedColumn.get()))) {
-                    String value = column.getValue();
-                    message.append(name);
-                    message.append(':');
-                    message.append(value);
-                    message.append(NEWLINE);
-                    count++;
+            } else if (reportModule) {
+                // Create issue on project level for all items that cannot be mapped to a
+                // SourceLocation (e.g. packages or empty concepts)
+                if (!isAggregated()) {
+                    if (createIssue()) {
+                        String message = messageRenderer.renderProjectIssueMessage(getRow(rowIndex));
+                        resolveRuleKey(executableRuleType)
+                            .ifPresent(ruleKey -> saveProjectIssue(sensorContext, executableRuleType, ruleKey, message, issueListener));
+                    }
+                } else {
+                    if (projectIssueGroup == null && createIssue()) {
+                        projectIssueGroup = new IssueGroup(null, empty(), rowIndex);
+                    }
+                    if (projectIssueGroup != null) {
+                        projectIssueGroup.add(empty(), rowIndex);
+                    }
                 }
             }
         }
-        return message;
+
+        private RowType getRow(int rowIndex) {
+            return rowIndex != NO_ROW ? rows.get(rowIndex) : null;
+        }
+
+        private boolean isAggregated() {
+            return aggregation == Aggregation.LINE || aggregation == Aggregation.FILE;
+        }
+
+        /**
+         * Creates the issues of the added rows file by file, the messages are rendered
+         * only now to avoid holding them for all rows of the rule.
+         */
+        void complete() {
+            IntFunction<String> externalIssueMessage = rowIndex -> messageRenderer.renderExternalIssueMessage(getRow(rowIndex), primaryColumn);
+            for (FileIssues issuesOfFile : fileIssues.values()) {
+                TextRangeCache textRangeCache = new TextRangeCache();
+                for (IssueGroup issueGroup : issuesOfFile.issueGroups) {
+                    saveExternalIssue(sensorContext, executableRuleType, issuesOfFile.inputComponent, issueGroup.lineNumber,
+                        issueGroup.getMessage(externalIssueMessage), issueGroup.getSecondaryLocations(externalIssueMessage), textRangeCache, issueListener);
+                }
+            }
+            fileIssues.clear();
+            if (projectIssueGroup != null) {
+                String message = projectIssueGroup.getMessage(rowIndex -> messageRenderer.renderProjectIssueMessage(getRow(rowIndex)));
+                resolveRuleKey(executableRuleType).ifPresent(ruleKey -> saveProjectIssue(sensorContext, executableRuleType, ruleKey, message, issueListener));
+                projectIssueGroup = null;
+            }
+            // the rows of a rule are evaluated by all modules, the summary is reported once
+            if (skippedRows > 0 && reportModule) {
+                LOGGER.warn("Maximum number of issues reached, {} rows of rule '{}' are not reported.", skippedRows, executableRuleType.getId());
+                String message = "[" + executableRuleType.getId() + "] " + skippedRows
+                    + " violations are not reported as the maximum number of issues has been reached.";
+                resolveRuleKey(executableRuleType).ifPresent(ruleKey -> saveProjectIssue(sensorContext, executableRuleType, ruleKey, message, issueListener));
+            }
+        }
+    }
+
+    /**
+     * The issues of a rule within one {@link InputComponent}.
+     */
+    private static class FileIssues {
+
+        private final InputComponent inputComponent;
+
+        private final List<IssueGroup> issueGroups = new ArrayList<>();
+
+        private final Map<Integer, IssueGroup> lineIssueGroups = new HashMap<>();
+
+        FileIssues(InputComponent inputComponent) {
+            this.inputComponent = inputComponent;
+        }
+
+        /**
+         * Return the existing {@link IssueGroup} for a row depending on the
+         * {@link Aggregation}.
+         *
+         * @return The {@link IssueGroup} or <code>null</code> if a new group is
+         *         required.
+         */
+        IssueGroup getIssueGroup(Aggregation aggregation, Optional<Integer> lineNumber) {
+            if (aggregation == Aggregation.LINE) {
+                return lineIssueGroups.get(lineNumber.orElse(0));
+            } else if (aggregation == Aggregation.FILE && !issueGroups.isEmpty()) {
+                return issueGroups.get(0);
+            }
+            return null;
+        }
+
+        /**
+         * Create a new {@link IssueGroup} for a row.
+         */
+        IssueGroup newIssueGroup(Aggregation aggregation, Optional<Integer> lineNumber, int rowIndex) {
+            IssueGroup issueGroup = new IssueGroup(inputComponent, lineNumber, rowIndex);
+            issueGroups.add(issueGroup);
+            if (aggregation == Aggregation.LINE) {
+                lineIssueGroups.put(lineNumber.orElse(0), issueGroup);
+            }
+            return issueGroup;
+        }
+    }
+
+    /**
+     * Caches the {@link TextRange}s of the lines of the {@link InputFile} which has
+     * been accessed last, i.e. issues must be created grouped by their files to
+     * benefit from the cache.
+     */
+    private static class TextRangeCache {
+
+        private final Map<Integer, TextRange> textRanges = new HashMap<>();
+
+        private InputFile inputFile;
+
+        TextRange selectLine(InputFile inputFile, int line) {
+            if (this.inputFile != inputFile) {
+                this.inputFile = inputFile;
+                textRanges.clear();
+            }
+            return textRanges.computeIfAbsent(line, inputFile::selectLine);
+        }
+    }
+
+    /**
+     * The aggregated rows of a rule with the same target.
+     * <p>
+     * Only the indexes of the rows and their line numbers are held, the messages
+     * are rendered when the issue is saved.
+     */
+    private static class IssueGroup {
+
+        private final InputComponent inputComponent;
+
+        private final Optional<Integer> lineNumber;
+
+        private final int rowIndex;
+
+        private final List<Integer> secondaryLineNumbers = new ArrayList<>();
+
+        private final List<Integer> secondaryRowIndexes = new ArrayList<>();
+
+        private int count;
+
+        IssueGroup(InputComponent inputComponent, Optional<Integer> lineNumber, int rowIndex) {
+            this.inputComponent = inputComponent;
+            this.lineNumber = lineNumber;
+            this.rowIndex = rowIndex;
+        }
+
+        String getMessage(IntFunction<String> messageRenderer) {
+            String message = messageRenderer.apply(rowIndex);
+            return count > 1 ? message + "\n(" + count + " occurrences)" : message;
+        }
+
+        List<SecondaryLocation> getSecondaryLocations(IntFunction<String> messageRenderer) {
+            List<SecondaryLocation> secondaryLocations = new ArrayList<>(secondaryRowIndexes.size());
+            for (int i = 0; i < secondaryRowIndexes.size(); i++) {
+                secondaryLocations.add(new SecondaryLocation(secondaryLineNumbers.get(i), messageRenderer.apply(secondaryRowIndexes.get(i))));
+            }
+            return secondaryLocations;
+        }
+
+        void add(Optional<Integer> lineNumber, int rowIndex) {
+            // the first row is the primary location
+            if (count > 0 && inputComponent != null && secondaryRowIndexes.size() < MAX_SECONDARY_LOCATIONS) {
+                secondaryLineNumbers.add(lineNumber.orElse(null));
+                secondaryRowIndexes.add(rowIndex);
+            }
+            count++;
+        }
+    }
+
+    /**
+     * A secondary location of an issue within the file of the primary location.
+     */
+    @Value
+    public static class SecondaryLocation {
+
+        /**
+         * The line number or <code>null</code>.
+         */
+        Integer lineNumber;
+
+        String message;
+    }
+
+    /**
+     * Listener for the issues created by the {@link IssueHandler}.
+     */
+    interface IssueListener {
+
+        /**
+         * The {@link IssueListener} ignoring all issues.
+         */
+        IssueListener NONE = new IssueListener() {
+        };
+
+        /**
+         * An external issue has been created.
+         *
+         * @param executableRuleType
+         *            The rule.
+         * @param inputComponent
+         *            The {@link InputComponent} of the issue.
+         * @param lineNumber
+         *            The line number or <code>null</code>.
+         * @param message
+         *            The message.
+         * @param secondaryLocations
+         *            The secondary locations within the {@link InputComponent}.
+         */
+        default void onExternalIssue(ExecutableRuleType executableRuleType, InputComponent inputComponent, Integer lineNumber, String message,
+                                     List<SecondaryLocation> secondaryLocations) {
+        }
+
+        /**
+         * An issue on project level has been created.
+         *
+         * @param executableRuleType
+         *            The rule.
+         * @param message
+         *            The message.
+         */
+        default void onProjectIssue(ExecutableRuleType executableRuleType, String message) {
+        }
     }
 
     private String createMessage(RuleType ruleType, ExecutableRuleType executableRuleType) {
@@ -0,0 +1,34 @@
+package org.jqassistant.contrib.sonarqube.plugin.sensor;
+
+import org.jqassistant.contrib.sonarqube.plugin.JQAssistantConfiguration;
+import org.sonar.api.batch.sensor.SensorDescriptor;
+import org.sonar.api.scanner.sensor.ProjectSensor;
+
+/**
+ * {@link ProjectSensor} implementation scanning for jqassistant-report.xml
+ * files.
+ * <p>
+ * The sensor is executed once per analysis if enabled by
+ * {@link JQAssistantConfiguration#PROJECT_SENSOR}, the {@link JQAssistantSensor}
+ * is skipped for all modules in this case. Reports are located starting from
+ * the project directory and the rows are resolved against the file system of
+ * the whole project, i.e. the issues are created on the files of all modules in
+ * a single pass.
+ */
+public class JQAssistantProjectSensor extends AbstractJQAssistantSensor implements ProjectSensor {
+
+    public JQAssistantProjectSensor(JQAssistantConfiguration configuration, IssueHandler issueHandler, ReportCache reportCache,
+                                    SensorMetrics sensorMetrics, IssueCache issueCache, ReportLocationCache reportLocationCache) {
+        super(configuration, issueHandler, reportCache, sensorMetrics, issueCache, reportLocationCache);
+    }
+
+    @Override
+    public void describe(SensorDescriptor descriptor) {
+        descriptor.name("JQA (project)");
+    }
+
+    @Override
+    protected boolean isActive(JQAssistantConfiguration configuration) {
+        return configuration.isProjectSensorEnabled();
+    }
+}
@@ -0,0 +1,133 @@
+package org.jqassistant.contrib.sonarqube.plugin.sensor;
+
+import org.jqassistant.schema.report.v1.ColumnType;
+import org.jqassistant.schema.report.v1.RowType;
+
+/**
+ * Renders the issue messages for the rows of a rule.
+ * <p>
+ * The prefixes of the messages (i.e. the description of the rule) are
+ * precomputed once per rule and kept in a buffer which is re-used for all rows.
+ * Messages exceeding the maximum length are truncated while they are rendered,
+ * i.e. the values of further columns are not copied at all. An instance is not
+ * thread-safe.
+ */
+final class MessageRenderer {
+
+    static final String TRUNCATION_MARKER = "...";
+
+    private static final String NEWLINE = "\n";
+
+    private static final String COLUMN_SEPARATOR = ", " + NEWLINE;
+
+    private final String externalIssuePrefix;
+
+    private final String projectIssuePrefix;
+
+    private final int maxLength;
+
+    private final StringBuilder buffer = new StringBuilder();
+
+    private String bufferPrefix;
+
+    private int bufferPrefixLength;
+
+    private boolean truncated;
+
+    /**
+     * Constructor.
+     *
+     * @param externalIssuePrefix
+     *            The prefix of messages of issues on source files.
+     * @param projectIssuePrefix
+     *            The prefix of messages of issues on project level.
+     * @param maxLength
+     *            The maximum length of a message, a value less or equal to 0
+     *            disables truncation.
+     */
+    MessageRenderer(String externalIssuePrefix, String projectIssuePrefix, int maxLength) {
+        this.externalIssuePrefix = externalIssuePrefix;
+        this.projectIssuePrefix = projectIssuePrefix;
+        this.maxLength = maxLength > 0 ? Math.max(maxLength, TRUNCATION_MARKER.length()) : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Render the message of an issue on a source file.
+     *
+     * @param rowType
+     *            The {@link RowType} or <code>null</code>.
+     * @param matchedColumn
+     *            The name of the column that could be matched to the source file,
+     *            its value is omitted.
+     * @return The message.
+     */
+    String renderExternalIssueMessage(RowType rowType, String matchedColumn) {
+        return render(externalIssuePrefix, rowType, matchedColumn);
+    }
+
+    /**
+     * Render the message of an issue on project level.
+     *
+     * @param rowType
+     *            The {@link RowType} or <code>null</code>.
+     * @return The message.
+     */
+    String renderProjectIssueMessage(RowType rowType) {
+        return render(projectIssuePrefix, rowType, null);
+    }
+
+    private String render(String prefix, RowType rowType, String matchedColumn) {
+        if (bufferPrefix != prefix) {
+            buffer.setLength(0);
+            truncated = false;
+            append(prefix);
+            bufferPrefix = prefix;
+            bufferPrefixLength = buffer.length();
+        } else {
+            buffer.setLength(bufferPrefixLength);
+        }
+        if (rowType != null) {
+            truncated = false;
+            append(NEWLINE);
+            int count = 0;
+            for (ColumnType column : rowType.getColumn()) {
+                if (truncated) {
+                    break;
+                }
+                if (count > 0) {
+                    append(COLUMN_SEPARATOR);
+                }
+                String name = column.getName();
+                if (!name.equals(matchedColumn)) {
+                    append(name);
+                    append(":");
+                    append(column.getValue());
+                    append(NEWLINE);
+                    count++;
+                }
+            }
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Appends a value to the buffer, the buffer is truncated if the value exceeds
+     * the maximum length.
+     */
+    private void append(String value) {
+        if (truncated) {
+            return;
+        }
+        // null values are rendered as "null" like StringBuilder#append(String)
+        String text = String.valueOf(value);
+        int remaining = maxLength - buffer.length();
+        if (text.length() <= remaining) {
+            buffer.append(text);
+        } else {
+            buffer.append(text, 0, Math.max(0, remaining - TRUNCATION_MARKER.length()));
+            buffer.setLength(Math.min(buffer.length(), maxLength - TRUNCATION_MARKER.length()));
+            buffer.append(TRUNCATION_MARKER);
+            truncated = true;
+        }
+    }
+}
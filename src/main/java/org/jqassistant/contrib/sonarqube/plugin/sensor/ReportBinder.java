@@ -0,0 +1,561 @@
+package org.jqassistant.contrib.sonarqube.plugin.sensor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.jqassistant.schema.report.v1.ColumnHeaderType;
+import org.jqassistant.schema.report.v1.ColumnType;
+import org.jqassistant.schema.report.v1.ColumnsHeaderType;
+import org.jqassistant.schema.report.v1.ConceptType;
+import org.jqassistant.schema.report.v1.ConstraintType;
+import org.jqassistant.schema.report.v1.ElementType;
+import org.jqassistant.schema.report.v1.ExecutableRuleType;
+import org.jqassistant.schema.report.v1.GroupType;
+import org.jqassistant.schema.report.v1.JqassistantReport;
+import org.jqassistant.schema.report.v1.ReferencableRuleType;
+import org.jqassistant.schema.report.v1.ResultType;
+import org.jqassistant.schema.report.v1.RowType;
+import org.jqassistant.schema.report.v1.RowsType;
+import org.jqassistant.schema.report.v1.SeverityType;
+import org.jqassistant.schema.report.v1.SourceType;
+import org.jqassistant.schema.report.v1.StatusEnumType;
+
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+/**
+ * Binds the elements of the jQAssistant report schema (v1) from a
+ * {@link XMLStreamReader} to the JAXB classes without using reflection, i.e.
+ * no {@link javax.xml.bind.JAXBContext} is required.
+ * <p>
+ * Like JAXB the binder ignores namespaces, skips unknown elements and binds
+ * missing numeric attributes (e.g. the count of rows) as 0. Values which cannot
+ * be converted (e.g. a non-numeric duration) are reported as
+ * {@link IllegalArgumentException}, malformed XML as {@link XMLStreamException}.
+ * An instance is stateless and thread-safe.
+ * <p>
+ * The results of the rules are bound to a compact object graph: the strings
+ * repeated in the rows of a rule (column names, element languages and types)
+ * are de-duplicated using a {@link Dictionary} per rule, equal elements are
+ * shared and the columns of a row are backed by an array of their exact size.
+ * Values and source names are mostly unique and therefore not de-duplicated.
+ * As the columns of a row are therefore fixed-size, no columns can be added to
+ * bound rows. The rows of a rule may be spilled to a temporary file using a
+ * {@link RowSpill}.
+ */
+final class ReportBinder {
+
+    static final String ROOT_ELEMENT = "jqassistant-report";
+    static final String GROUP_ELEMENT = "group";
+    static final String CONCEPT_ELEMENT = "concept";
+    static final String CONSTRAINT_ELEMENT = "constraint";
+    static final String ID_ATTRIBUTE = "id";
+
+    private static final String DATE_ATTRIBUTE = "date";
+    private static final String DURATION_ELEMENT = "duration";
+    private static final String DESCRIPTION_ELEMENT = "description";
+    private static final String RESULT_ELEMENT = "result";
+    private static final String STATUS_ELEMENT = "status";
+    private static final String SEVERITY_ELEMENT = "severity";
+    private static final String LEVEL_ATTRIBUTE = "level";
+    private static final String COLUMNS_ELEMENT = "columns";
+    private static final String ROWS_ELEMENT = "rows";
+    private static final String ROW_ELEMENT = "row";
+    private static final String COLUMN_ELEMENT = "column";
+    private static final String COUNT_ATTRIBUTE = "count";
+    private static final String PRIMARY_ATTRIBUTE = "primary";
+    private static final String NAME_ATTRIBUTE = "name";
+    private static final String ELEMENT_ELEMENT = "element";
+    private static final String LANGUAGE_ATTRIBUTE = "language";
+    private static final String SOURCE_ELEMENT = "source";
+    private static final String LINE_ATTRIBUTE = "line";
+    private static final String VALUE_ELEMENT = "value";
+
+    /**
+     * Read the whole report.
+     *
+     * @param reader
+     *            The {@link XMLStreamReader} positioned at the root element.
+     * @return The {@link JqassistantReport}.
+     * @throws XMLStreamException
+     *             If the report cannot be read.
+     */
+    JqassistantReport readReport(XMLStreamReader reader) throws XMLStreamException {
+        return readReport(reader, RuleFilter.ALL);
+    }
+
+    /**
+     * Read the report, groups and rules which are not accepted by the given
+     * {@link RuleFilter} are skipped.
+     *
+     * @param reader
+     *            The {@link XMLStreamReader} positioned at the root element.
+     * @param ruleFilter
+     *            The {@link RuleFilter}.
+     * @return The {@link JqassistantReport}.
+     * @throws XMLStreamException
+     *             If the report cannot be read.
+     */
+    JqassistantReport readReport(XMLStreamReader reader, RuleFilter ruleFilter) throws XMLStreamException {
+        return readReport(reader, ruleFilter, RowSpill.NONE);
+    }
+
+    /**
+     * Read the report, groups and rules which are not accepted by the given
+     * {@link RuleFilter} are skipped and rows exceeding the heap limits of the
+     * given {@link RowSpill} are spilled.
+     *
+     * @param reader
+     *            The {@link XMLStreamReader} positioned at the root element.
+     * @param ruleFilter
+     *            The {@link RuleFilter}.
+     * @param rowSpill
+     *            The {@link RowSpill}.
+     * @return The {@link JqassistantReport}.
+     * @throws XMLStreamException
+     *             If the report cannot be read.
+     */
+    JqassistantReport readReport(XMLStreamReader reader, RuleFilter ruleFilter, RowSpill rowSpill) throws XMLStreamException {
+        return readReport(reader, ruleFilter, rowSpill, StatusLookahead.NONE);
+    }
+
+    /**
+     * Read the report, groups and rules which are not accepted by the given
+     * {@link RuleFilter} are skipped and rows exceeding the heap limits of the
+     * given {@link RowSpill} are spilled. The results of rules which are not
+     * retained according to the status provided by the {@link StatusLookahead}
+     * are skipped.
+     *
+     * @param reader
+     *            The {@link XMLStreamReader} positioned at the root element.
+     * @param ruleFilter
+     *            The {@link RuleFilter}.
+     * @param rowSpill
+     *            The {@link RowSpill}.
+     * @param statusLookahead
+     *            The {@link StatusLookahead}.
+     * @return The {@link JqassistantReport}.
+     * @throws XMLStreamException
+     *             If the report cannot be read.
+     */
+    JqassistantReport readReport(XMLStreamReader reader, RuleFilter ruleFilter, RowSpill rowSpill, StatusLookahead statusLookahead)
+        throws XMLStreamException {
+        return readReport(reader, ruleFilter, rowSpill, statusLookahead, false);
+    }
+
+    /**
+     * Read the report, groups and rules which are not accepted by the given
+     * {@link RuleFilter} are skipped and rows exceeding the heap limits of the
+     * given {@link RowSpill} are spilled. The results of rules which are not
+     * retained according to the status provided by the {@link StatusLookahead}
+     * are skipped. The rows may be digested while they are read, their hash is
+     * provided as {@link IssueCache.HashedRows} without reading spilled rows
+     * again.
+     *
+     * @param reader
+     *            The {@link XMLStreamReader} positioned at the root element.
+     * @param ruleFilter
+     *            The {@link RuleFilter}.
+     * @param rowSpill
+     *            The {@link RowSpill}.
+     * @param statusLookahead
+     *            The {@link StatusLookahead}.
+     * @param digestRows
+     *            TRUE if the rows shall be digested.
+     * @return The {@link JqassistantReport}.
+     * @throws XMLStreamException
+     *             If the report cannot be read.
+     */
+    JqassistantReport readReport(XMLStreamReader reader, RuleFilter ruleFilter, RowSpill rowSpill, StatusLookahead statusLookahead, boolean digestRows)
+        throws XMLStreamException {
+        if (!ROOT_ELEMENT.equals(reader.getLocalName())) {
+            throw new XMLStreamException("Unexpected root element " + reader.getLocalName(), reader.getLocation());
+        }
+        JqassistantReport report = new JqassistantReport();
+        while (reader.nextTag() == START_ELEMENT) {
+            readRuleGroup(reader, report.getGroupOrConceptOrConstraint(), new Context(ruleFilter, rowSpill, statusLookahead, digestRows), false);
+        }
+        return report;
+    }
+
+    /**
+     * Read a concept, the {@link XMLStreamReader} is positioned at the end element
+     * afterwards.
+     */
+    ConceptType readConcept(XMLStreamReader reader) throws XMLStreamException {
+        return readConcept(reader, RuleFilter.ALL, StatusLookahead.NONE);
+    }
+
+    /**
+     * Read a concept, its result is skipped if the rule is not retained by the
+     * {@link RuleFilter} according to the status provided by the
+     * {@link StatusLookahead}.
+     */
+    ConceptType readConcept(XMLStreamReader reader, RuleFilter ruleFilter, StatusLookahead statusLookahead) throws XMLStreamException {
+        return readExecutableRule(reader, new ConceptType(), new Context(ruleFilter, RowSpill.NONE, statusLookahead, false));
+    }
+
+    /**
+     * Read a constraint, the {@link XMLStreamReader} is positioned at the end
+     * element afterwards.
+     */
+    ConstraintType readConstraint(XMLStreamReader reader) throws XMLStreamException {
+        return readConstraint(reader, RuleFilter.ALL, StatusLookahead.NONE);
+    }
+
+    /**
+     * Read a constraint, its result is skipped if the rule is not retained by
+     * the {@link RuleFilter} according to the status provided by the
+     * {@link StatusLookahead}.
+     */
+    ConstraintType readConstraint(XMLStreamReader reader, RuleFilter ruleFilter, StatusLookahead statusLookahead) throws XMLStreamException {
+        return readExecutableRule(reader, new ConstraintType(), new Context(ruleFilter, RowSpill.NONE, statusLookahead, false));
+    }
+
+    private void readRuleGroup(XMLStreamReader reader, List<ReferencableRuleType> rules, Context context, boolean groupIncluded)
+        throws XMLStreamException {
+        RuleFilter ruleFilter = context.ruleFilter;
+        String id = reader.getAttributeValue(null, ID_ATTRIBUTE);
+        switch (reader.getLocalName()) {
+        case GROUP_ELEMENT:
+            if (ruleFilter.isExcluded(id)) {
+                skipElement(reader);
+            } else {
+                rules.add(readGroup(reader, context, ruleFilter.isIncluded(id, groupIncluded)));
+            }
+            break;
+        case CONCEPT_ELEMENT:
+            if (ruleFilter.accept(id, groupIncluded)) {
+                addRule(readExecutableRule(reader, new ConceptType(), context), rules, ruleFilter);
+            } else {
+                skipElement(reader);
+            }
+            break;
+        case CONSTRAINT_ELEMENT:
+            if (ruleFilter.accept(id, groupIncluded)) {
+                addRule(readExecutableRule(reader, new ConstraintType(), context), rules, ruleFilter);
+            } else {
+                skipElement(reader);
+            }
+            break;
+        default:
+            skipElement(reader);
+        }
+    }
+
+    private static void addRule(ExecutableRuleType rule, List<ReferencableRuleType> rules, RuleFilter ruleFilter) {
+        if (ruleFilter.retain(rule)) {
+            rules.add(rule);
+        }
+    }
+
+    private GroupType readGroup(XMLStreamReader reader, Context context, boolean groupIncluded) throws XMLStreamException {
+        GroupType group = new GroupType();
+        group.setId(reader.getAttributeValue(null, ID_ATTRIBUTE));
+        String date = reader.getAttributeValue(null, DATE_ATTRIBUTE);
+        if (date != null) {
+            group.setDate(DatatypeFactoryHolder.DATATYPE_FACTORY.newXMLGregorianCalendar(date.trim()));
+        }
+        while (reader.nextTag() == START_ELEMENT) {
+            if (DURATION_ELEMENT.equals(reader.getLocalName())) {
+                group.setDuration(parseInt(reader.getElementText()));
+            } else {
+                readRuleGroup(reader, group.getGroupOrConceptOrConstraint(), context, groupIncluded);
+            }
+        }
+        return group;
+    }
+
+    private <R extends ExecutableRuleType> R readExecutableRule(XMLStreamReader reader, R rule, Context context) throws XMLStreamException {
+        rule.setId(reader.getAttributeValue(null, ID_ATTRIBUTE));
+        Dictionary dictionary = new Dictionary();
+        while (reader.nextTag() == START_ELEMENT) {
+            switch (reader.getLocalName()) {
+            case DESCRIPTION_ELEMENT:
+                rule.setDescription(reader.getElementText());
+                break;
+            case RESULT_ELEMENT:
+                StatusEnumType status = context.statusLookahead.getStatus(rule.getId());
+                if (status == null || context.ruleFilter.retain(status)) {
+                    rule.setResult(readResult(reader, dictionary, context));
+                } else {
+                    // the rule is dropped after its status has been read
+                    skipElement(reader);
+                }
+                break;
+            case STATUS_ELEMENT:
+                rule.setStatus(StatusEnumType.fromValue(reader.getElementText().trim()));
+                break;
+            case SEVERITY_ELEMENT:
+                SeverityType severity = new SeverityType();
+                severity.setLevel(getIntAttribute(reader, LEVEL_ATTRIBUTE));
+                severity.setValue(reader.getElementText());
+                rule.setSeverity(severity);
+                break;
+            case DURATION_ELEMENT:
+                rule.setDuration(parseInt(reader.getElementText()));
+                break;
+            default:
+                skipElement(reader);
+            }
+        }
+        return rule;
+    }
+
+    private ResultType readResult(XMLStreamReader reader, Dictionary dictionary, Context context) throws XMLStreamException {
+        ResultType result = new ResultType();
+        while (reader.nextTag() == START_ELEMENT) {
+            switch (reader.getLocalName()) {
+            case COLUMNS_ELEMENT:
+                result.setColumns(readColumnsHeader(reader, dictionary));
+                break;
+            case ROWS_ELEMENT:
+                result.setRows(readRows(reader, dictionary, context));
+                break;
+            default:
+                skipElement(reader);
+            }
+        }
+        return result;
+    }
+
+    private ColumnsHeaderType readColumnsHeader(XMLStreamReader reader, Dictionary dictionary) throws XMLStreamException {
+        ColumnsHeaderType columnsHeader = new ColumnsHeaderType();
+        columnsHeader.setCount(getIntAttribute(reader, COUNT_ATTRIBUTE));
+        while (reader.nextTag() == START_ELEMENT) {
+            if (COLUMN_ELEMENT.equals(reader.getLocalName())) {
+                ColumnHeaderType columnHeader = new ColumnHeaderType();
+                String primary = reader.getAttributeValue(null, PRIMARY_ATTRIBUTE);
+                if (primary != null) {
+                    columnHeader.setPrimary(parseBoolean(primary));
+                }
+                columnHeader.setValue(dictionary.intern(reader.getElementText()));
+                columnsHeader.getColumn().add(columnHeader);
+            } else {
+                skipElement(reader);
+            }
+        }
+        return columnsHeader;
+    }
+
+    private RowsType readRows(XMLStreamReader reader, Dictionary dictionary, Context context) throws XMLStreamException {
+        int count = getIntAttribute(reader, COUNT_ATTRIBUTE);
+        RowSpill.Rows rowList = context.rowSpill.rows();
+        IssueCache.RowDigest rowDigest = context.digestRows ? new IssueCache.RowDigest() : null;
+        while (reader.nextTag() == START_ELEMENT) {
+            if (ROW_ELEMENT.equals(reader.getLocalName())) {
+                RowType row = readRow(reader, dictionary);
+                if (rowDigest != null) {
+                    rowDigest.add(row);
+                }
+                rowList.add(row);
+            } else {
+                skipElement(reader);
+            }
+        }
+        RowsType rows = rowDigest != null ? new HashedRowsType(rowList.complete(), rowDigest.complete()) : new CompactRowsType(rowList.complete());
+        rows.setCount(count);
+        return rows;
+    }
+
+    private RowType readRow(XMLStreamReader reader, Dictionary dictionary) throws XMLStreamException {
+        List<ColumnType> columns = dictionary.columns;
+        columns.clear();
+        while (reader.nextTag() == START_ELEMENT) {
+            if (COLUMN_ELEMENT.equals(reader.getLocalName())) {
+                columns.add(readColumn(reader, dictionary));
+            } else {
+                skipElement(reader);
+            }
+        }
+        return new CompactRowType(columns.toArray(new ColumnType[columns.size()]));
+    }
+
+    private ColumnType readColumn(XMLStreamReader reader, Dictionary dictionary) throws XMLStreamException {
+        ColumnType column = new ColumnType();
+        column.setName(dictionary.intern(reader.getAttributeValue(null, NAME_ATTRIBUTE)));
+        while (reader.nextTag() == START_ELEMENT) {
+            switch (reader.getLocalName()) {
+            case ELEMENT_ELEMENT:
+                String language = reader.getAttributeValue(null, LANGUAGE_ATTRIBUTE);
+                column.setElement(dictionary.element(language, reader.getElementText()));
+                break;
+            case SOURCE_ELEMENT:
+                SourceType source = new SourceType();
+                source.setName(reader.getAttributeValue(null, NAME_ATTRIBUTE));
+                String line = reader.getAttributeValue(null, LINE_ATTRIBUTE);
+                if (line != null) {
+                    source.setLine(parseInt(line));
+                }
+                skipElement(reader);
+                column.setSource(source);
+                break;
+            case VALUE_ELEMENT:
+                column.setValue(reader.getElementText());
+                break;
+            default:
+                skipElement(reader);
+            }
+        }
+        return column;
+    }
+
+    /**
+     * The state of reading a report.
+     */
+    private static final class Context {
+
+        private final RuleFilter ruleFilter;
+
+        private final RowSpill rowSpill;
+
+        private final StatusLookahead statusLookahead;
+
+        private final boolean digestRows;
+
+        private Context(RuleFilter ruleFilter, RowSpill rowSpill, StatusLookahead statusLookahead, boolean digestRows) {
+            this.ruleFilter = ruleFilter;
+            this.rowSpill = rowSpill;
+            this.statusLookahead = statusLookahead;
+            this.digestRows = digestRows;
+        }
+    }
+
+    /**
+     * Skip the current element including all children, the
+     * {@link XMLStreamReader} is positioned at its end element afterwards.
+     */
+    static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamReader.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Return the value of a numeric attribute, like JAXB a missing attribute is
+     * bound as 0.
+     */
+    private static int getIntAttribute(XMLStreamReader reader, String name) {
+        String value = reader.getAttributeValue(null, name);
+        return value != null ? parseInt(value) : 0;
+    }
+
+    private static int parseInt(String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Missing numeric value.");
+        }
+        return Integer.parseInt(value.trim());
+    }
+
+    private static boolean parseBoolean(String value) {
+        String trimmed = value.trim();
+        return "true".equals(trimmed) || "1".equals(trimmed);
+    }
+
+    /**
+     * A row whose columns are backed by an array of their exact size instead of a
+     * growable list.
+     */
+    private static final class CompactRowType extends RowType {
+
+        private CompactRowType(ColumnType[] columns) {
+            this.column = Arrays.asList(columns);
+        }
+    }
+
+    /**
+     * The rows of a rule which are provided by a {@link RowSpill}, i.e. they may be
+     * read from a temporary file on access.
+     */
+    private static class CompactRowsType extends RowsType {
+
+        private CompactRowsType(List<RowType> rows) {
+            this.row = rows;
+        }
+    }
+
+    /**
+     * The rows of a rule which have been digested while reading.
+     */
+    private static final class HashedRowsType extends CompactRowsType implements IssueCache.HashedRows {
+
+        private final String rowsHash;
+
+        private HashedRowsType(List<RowType> rows, String rowsHash) {
+            super(rows);
+            this.rowsHash = rowsHash;
+        }
+
+        @Override
+        public String getRowsHash() {
+            return rowsHash;
+        }
+    }
+
+    /**
+     * The dictionary of a rule which de-duplicates the column names and elements
+     * of its result which are repeated for every row. The dictionary is only used
+     * while the rule is bound, i.e. it does not retain any strings after the rule
+     * has been read.
+     */
+    private static final class Dictionary {
+
+        private final Map<String, String> strings = new HashMap<>();
+
+        private final Map<String, Map<String, ElementType>> elements = new HashMap<>();
+
+        /**
+         * Buffer for the columns of the current row.
+         */
+        private final List<ColumnType> columns = new ArrayList<>();
+
+        private String intern(String value) {
+            if (value == null) {
+                return null;
+            }
+            String interned = strings.putIfAbsent(value, value);
+            return interned != null ? interned : value;
+        }
+
+        private ElementType element(String language, String value) {
+            String internedLanguage = intern(language);
+            String internedValue = intern(value);
+            return elements.computeIfAbsent(internedLanguage, key -> new HashMap<>()).computeIfAbsent(internedValue, key -> {
+                ElementType element = new ElementType();
+                element.setLanguage(internedLanguage);
+                element.setValue(internedValue);
+                return element;
+            });
+        }
+    }
+
+    /**
+     * Holder for the {@link DatatypeFactory} which is only required for the dates
+     * of groups.
+     */
+    private static final class DatatypeFactoryHolder {
+
+        private static final DatatypeFactory DATATYPE_FACTORY = createDatatypeFactory();
+
+        private static DatatypeFactory createDatatypeFactory() {
+            try {
+                return DatatypeFactory.newInstance();
+            } catch (DatatypeConfigurationException e) {
+                throw new IllegalStateException("Cannot create datatype factory.", e);
+            }
+        }
+    }
+}
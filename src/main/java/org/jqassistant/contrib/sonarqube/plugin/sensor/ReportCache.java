@@ -0,0 +1,171 @@
+package org.jqassistant.contrib.sonarqube.plugin.sensor;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import lombok.Value;
+import org.jqassistant.schema.report.v1.JqassistantReport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.Startable;
+import org.sonar.api.scanner.ScannerSide;
+
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Cache for parsed jQAssistant XML reports which is shared by the sensor
+ * executions of all modules of an analysis.
+ * <p>
+ * Reports are identified by the canonical paths, sizes and modification times
+ * of the report files, i.e. a report merged from several files is cached as a
+ * whole. The cache holds a limited number of reports using
+ * {@link SoftReference}s, i.e. they may be reclaimed by the garbage collector,
+ * and is cleared at the end of the analysis. Resources required by a cached
+ * report (e.g. files containing spilled rows) are closed as soon as the report
+ * is evicted, has been reclaimed or at the end of the analysis, i.e. they are
+ * bounded by the number of cached reports.
+ */
+@ScannerSide
+public class ReportCache implements Startable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReportCache.class);
+
+    /**
+     * The maximum number of cached reports.
+     */
+    static final int MAX_ENTRIES = 4;
+
+    private final Map<List<Key>, SoftReference<JqassistantReport>> reports = new LinkedHashMap<List<Key>, SoftReference<JqassistantReport>>(MAX_ENTRIES,
+        0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<Key>, SoftReference<JqassistantReport>> eldest) {
+            if (size() > MAX_ENTRIES) {
+                close(eldest.getKey());
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private final Map<List<Key>, List<Closeable>> resources = new HashMap<>();
+
+    /**
+     * Return the report for the given file, it is read using the given reader if
+     * it is not cached yet or if the file has been modified.
+     *
+     * @param reportFile
+     *            The report file.
+     * @param reader
+     *            The reader for the report file.
+     * @return The {@link JqassistantReport}.
+     */
+    public JqassistantReport get(File reportFile, Function<File, JqassistantReport> reader) {
+        return get(singletonList(reportFile), reportFiles -> reader.apply(reportFiles.get(0)));
+    }
+
+    /**
+     * Return the report for the given files, they are read using the given reader
+     * if they are not cached yet or if one of the files has been modified.
+     * <p>
+     * The reader is not executed while holding the lock of the cache, i.e.
+     * concurrent reads of different reports are possible.
+     *
+     * @param reportFiles
+     *            The report files.
+     * @param reader
+     *            The reader for the report files, e.g. merging several reports.
+     * @return The {@link JqassistantReport}.
+     */
+    public JqassistantReport get(List<File> reportFiles, Function<List<File>, JqassistantReport> reader) {
+        List<Key> key = reportFiles.stream().map(Key::of).collect(toList());
+        JqassistantReport report;
+        synchronized (this) {
+            SoftReference<JqassistantReport> reference = reports.get(key);
+            report = reference != null ? reference.get() : null;
+            if (reference != null && report == null) {
+                // the report has been reclaimed, its resources are not required anymore
+                close(key);
+            }
+        }
+        if (report == null) {
+            report = reader.apply(reportFiles);
+            synchronized (this) {
+                reports.put(key, new SoftReference<>(report));
+            }
+        } else {
+            LOGGER.debug("Using cached jQAssistant report {}.", reportFiles);
+        }
+        return report;
+    }
+
+    /**
+     * Register a resource which is required by the cached report for the given
+     * files, it is closed if the report is evicted or reclaimed and at the end of
+     * the analysis.
+     *
+     * @param reportFiles
+     *            The report files.
+     * @param resource
+     *            The resource.
+     */
+    public synchronized void register(List<File> reportFiles, Closeable resource) {
+        resources.computeIfAbsent(reportFiles.stream().map(Key::of).collect(toList()), key -> new ArrayList<>()).add(resource);
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public synchronized void stop() {
+        reports.clear();
+        for (List<Key> key : new ArrayList<>(resources.keySet())) {
+            close(key);
+        }
+    }
+
+    private void close(List<Key> key) {
+        List<Closeable> reportResources = resources.remove(key);
+        if (reportResources != null) {
+            for (Closeable resource : reportResources) {
+                try {
+                    resource.close();
+                } catch (IOException e) {
+                    LOGGER.warn("Cannot close resource of cached jQAssistant report.", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * The key of a cached report.
+     */
+    @Value
+    private static class Key {
+
+        String canonicalPath;
+
+        long size;
+
+        long lastModified;
+
+        private static Key of(File reportFile) {
+            String path;
+            try {
+                path = reportFile.getCanonicalPath();
+            } catch (IOException e) {
+                path = reportFile.getAbsolutePath();
+            }
+            return new Key(path, reportFile.length(), reportFile.lastModified());
+        }
+    }
+}
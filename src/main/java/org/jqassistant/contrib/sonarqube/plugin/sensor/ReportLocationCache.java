@@ -0,0 +1,93 @@
+package org.jqassistant.contrib.sonarqube.plugin.sensor;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.Value;
+import org.sonar.api.Startable;
+import org.sonar.api.scanner.ScannerSide;
+
+/**
+ * Cache for the locations of jQAssistant XML reports which is shared by the
+ * sensor executions of all modules of an analysis.
+ * <p>
+ * For each probed directory and report path the result of the discovery is
+ * stored, i.e. the located reports or an empty list if no report has been
+ * found in the directory or one of its parents. Sibling modules therefore only
+ * probe their own directories and re-use the results of common parent
+ * directories. The cache is cleared at the end of the analysis.
+ */
+@ScannerSide
+public class ReportLocationCache implements Startable {
+
+    private final Map<Key, List<ReportLocator.ReportLocation>> locations = new ConcurrentHashMap<>();
+
+    /**
+     * Return the cached locations for a directory and report path.
+     *
+     * @param projectDir
+     *            The project directory.
+     * @param directory
+     *            The probed directory or <code>null</code> for absolute report
+     *            paths.
+     * @param reportPath
+     *            The report path or pattern.
+     * @return The cached {@link ReportLocator.ReportLocation}s or
+     *         <code>null</code> if the directory has not been probed yet.
+     */
+    List<ReportLocator.ReportLocation> get(File projectDir, File directory, String reportPath) {
+        return locations.get(Key.of(projectDir, directory, reportPath));
+    }
+
+    /**
+     * Store the locations for a directory and report path.
+     *
+     * @param projectDir
+     *            The project directory.
+     * @param directory
+     *            The probed directory or <code>null</code> for absolute report
+     *            paths.
+     * @param reportPath
+     *            The report path or pattern.
+     * @param reportLocations
+     *            The {@link ReportLocator.ReportLocation}s, may be empty.
+     */
+    void put(File projectDir, File directory, String reportPath, List<ReportLocator.ReportLocation> reportLocations) {
+        locations.put(Key.of(projectDir, directory, reportPath), reportLocations);
+    }
+
+    /**
+     * @return The number of cached entries.
+     */
+    int size() {
+        return locations.size();
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void stop() {
+        locations.clear();
+    }
+
+    /**
+     * The key of cached locations.
+     */
+    @Value
+    private static class Key {
+
+        File projectDir;
+
+        File directory;
+
+        String reportPath;
+
+        private static Key of(File projectDir, File directory, String reportPath) {
+            return new Key(projectDir.getAbsoluteFile(), directory != null ? directory.getAbsoluteFile() : null, reportPath);
+        }
+    }
+}
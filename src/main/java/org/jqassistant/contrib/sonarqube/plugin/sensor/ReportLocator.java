@@ -1,8 +1,21 @@
 package org.jqassistant.contrib.sonarqube.plugin.sensor;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 import lombok.Builder;
 import lombok.EqualsAndHashCode;
@@ -12,6 +25,9 @@ import lombok.ToString;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
 import static lombok.AccessLevel.PRIVATE;
 
 /**
@@ -55,6 +71,16 @@ public final class ReportLocator {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ReportLocator.class);
 
+    /**
+     * The extension of gzip compressed reports.
+     */
+    static final String GZIP_EXTENSION = ".gz";
+
+    /**
+     * The characters indicating a glob pattern.
+     */
+    private static final String GLOB_CHARACTERS = "*?[{";
+
     private ReportLocator() {
     }
 
@@ -62,7 +88,9 @@ public final class ReportLocator {
      * Return the configured report {@link File}.
      * <p>
      * Absolute paths are resolved directly, relative paths are scanned starting
-     * from moduleDir upwards to projectDir until the first file is found.
+     * from moduleDir upwards to projectDir until the first file is found. If the
+     * file does not exist a gzip compressed file with the additional extension
+     * <code>.gz</code> is used instead.
      *
      * @param projectDir
      *            The project directory (i.e. root module directory).
@@ -74,22 +102,217 @@ public final class ReportLocator {
      * @return The configured {@link File} representing the jQAssistant XML report.
      */
     public static Optional<ReportLocation> resolveReportFile(File projectDir, File moduleDir, String reportPath) {
+        return resolveReportFile(projectDir, moduleDir, reportPath, new ReportLocationCache());
+    }
+
+    /**
+     * Return the configured report {@link File} like
+     * {@link #resolveReportFile(File, File, String)}, re-using the results of
+     * directories which have already been probed for previous modules.
+     *
+     * @param projectDir
+     *            The project directory (i.e. root module directory).
+     * @param moduleDir
+     *            The module directory.
+     * @param reportPath
+     *            The configured path to the XML report file.
+     * @param locationCache
+     *            The {@link ReportLocationCache}.
+     * @return The configured {@link File} representing the jQAssistant XML report.
+     */
+    public static Optional<ReportLocation> resolveReportFile(File projectDir, File moduleDir, String reportPath, ReportLocationCache locationCache) {
         LOGGER.debug("Using jQAssistant report path {}.", reportPath);
         File reportFile = new File(reportPath);
-        if (reportFile.isAbsolute() && reportFile.exists()) {
-            LOGGER.info("Found jQAssistant XML report with absolute path {}.", reportFile);
-            return Optional.of(ReportLocation.builder().moduleDirectory(projectDir).reportFile(reportFile).build());
+        if (reportFile.isAbsolute()) {
+            List<ReportLocation> reportLocations = locationCache.get(projectDir, null, reportPath);
+            if (reportLocations == null) {
+                File existingReportFile = getExistingReportFile(reportFile);
+                if (existingReportFile != null) {
+                    LOGGER.info("Found jQAssistant XML report with absolute path {}.", existingReportFile);
+                    reportLocations = singletonList(ReportLocation.builder().moduleDirectory(projectDir).reportFile(existingReportFile).build());
+                } else {
+                    reportLocations = emptyList();
+                }
+                locationCache.put(projectDir, null, reportPath, reportLocations);
+            }
+            if (!reportLocations.isEmpty()) {
+                return Optional.of(reportLocations.get(0));
+            }
         }
         LOGGER.debug("Scanning for jQAssistant XML report with relative path starting from module {}.", moduleDir);
+        return resolveUpwards(projectDir, moduleDir, reportPath, locationCache, currentModuleDir -> {
+            File existingReportFile = getExistingReportFile(new File(currentModuleDir, reportPath));
+            return existingReportFile != null ? singletonList(ReportLocation.builder().moduleDirectory(currentModuleDir).reportFile(existingReportFile).build())
+                    : emptyList();
+        }).stream().findFirst();
+    }
+
+    /**
+     * Return the {@link ReportLocation}s of all configured report paths.
+     * <p>
+     * Each path is resolved like {@link #resolveReportFile(File, File, String)},
+     * paths may also be glob patterns (e.g. <code>target/jqassistant/*.xml</code>).
+     * A relative pattern is matched starting from moduleDir upwards to projectDir
+     * until the first directory containing matching files is found.
+     *
+     * @param projectDir
+     *            The project directory (i.e. root module directory).
+     * @param moduleDir
+     *            The module directory.
+     * @param reportPaths
+     *            The configured paths or patterns of the XML report files.
+     * @return The {@link ReportLocation}s in the order of the configured paths,
+     *         each report file is contained once.
+     */
+    public static List<ReportLocation> resolveReportFiles(File projectDir, File moduleDir, List<String> reportPaths) {
+        return resolveReportFiles(projectDir, moduleDir, reportPaths, new ReportLocationCache());
+    }
+
+    /**
+     * Return the {@link ReportLocation}s of all configured report paths like
+     * {@link #resolveReportFiles(File, File, List)}, re-using the results of
+     * directories which have already been probed for previous modules.
+     *
+     * @param projectDir
+     *            The project directory (i.e. root module directory).
+     * @param moduleDir
+     *            The module directory.
+     * @param reportPaths
+     *            The configured paths or patterns of the XML report files.
+     * @param locationCache
+     *            The {@link ReportLocationCache}.
+     * @return The {@link ReportLocation}s in the order of the configured paths,
+     *         each report file is contained once.
+     */
+    public static List<ReportLocation> resolveReportFiles(File projectDir, File moduleDir, List<String> reportPaths, ReportLocationCache locationCache) {
+        List<ReportLocation> reportLocations = new ArrayList<>();
+        Set<File> reportFiles = new LinkedHashSet<>();
+        for (String reportPath : reportPaths) {
+            List<ReportLocation> locations = isPattern(reportPath) ? resolveReportPattern(projectDir, moduleDir, reportPath, locationCache)
+                    : resolveReportFile(projectDir, moduleDir, reportPath, locationCache).map(Collections::singletonList).orElse(emptyList());
+            for (ReportLocation location : locations) {
+                if (reportFiles.add(location.getReportFile().getAbsoluteFile())) {
+                    reportLocations.add(location);
+                }
+            }
+        }
+        return reportLocations;
+    }
+
+    private static List<ReportLocation> resolveReportPattern(File projectDir, File moduleDir, String reportPattern, ReportLocationCache locationCache) {
+        String pattern = reportPattern.replace('\\', '/');
+        if (new File(pattern).isAbsolute()) {
+            List<ReportLocation> reportLocations = locationCache.get(projectDir, null, pattern);
+            if (reportLocations == null) {
+                int separator = pattern.lastIndexOf('/', getGlobIndex(pattern));
+                File directory = new File(pattern.substring(0, separator + 1));
+                reportLocations = matchFiles(directory, pattern.substring(separator + 1)).stream()
+                        .map(reportFile -> ReportLocation.builder().moduleDirectory(projectDir).reportFile(reportFile).build()).collect(toList());
+                locationCache.put(projectDir, null, pattern, reportLocations);
+            }
+            return reportLocations;
+        }
+        return resolveUpwards(projectDir, moduleDir, pattern, locationCache, directory -> matchFiles(directory, pattern).stream()
+                .map(reportFile -> ReportLocation.builder().moduleDirectory(directory).reportFile(reportFile).build()).collect(toList()));
+    }
+
+    /**
+     * Probe the directories starting from moduleDir upwards to projectDir until
+     * reports are found or a directory is reached which has already been probed.
+     * The result is stored for all probed directories, i.e. each directory is
+     * probed at most once per report path.
+     *
+     * @param projectDir
+     *            The project directory.
+     * @param moduleDir
+     *            The module directory.
+     * @param reportPath
+     *            The relative report path or pattern.
+     * @param locationCache
+     *            The {@link ReportLocationCache}.
+     * @param probe
+     *            The {@link Function} returning the reports within a directory.
+     * @return The {@link ReportLocation}s, may be empty.
+     */
+    private static List<ReportLocation> resolveUpwards(File projectDir, File moduleDir, String reportPath, ReportLocationCache locationCache,
+            Function<File, List<ReportLocation>> probe) {
+        String projectPath = projectDir.getAbsolutePath();
+        List<File> probedDirs = new ArrayList<>();
+        List<ReportLocation> reportLocations = emptyList();
         File currentModuleDir = moduleDir;
-        while (currentModuleDir.getAbsolutePath().startsWith(projectDir.getAbsolutePath())) {
-            reportFile = new File(currentModuleDir, reportPath);
-            if (reportFile.exists()) {
-                return Optional.of(ReportLocation.builder().moduleDirectory(currentModuleDir).reportFile(reportFile).build());
+        while (currentModuleDir != null && currentModuleDir.getAbsolutePath().startsWith(projectPath)) {
+            List<ReportLocation> cachedLocations = locationCache.get(projectDir, currentModuleDir, reportPath);
+            if (cachedLocations != null) {
+                LOGGER.debug("Using cached jQAssistant XML report locations of directory {}.", currentModuleDir);
+                reportLocations = cachedLocations;
+                break;
+            }
+            probedDirs.add(currentModuleDir);
+            reportLocations = probe.apply(currentModuleDir);
+            if (!reportLocations.isEmpty()) {
+                break;
             }
             currentModuleDir = currentModuleDir.getParentFile();
         }
-        return Optional.empty();
+        for (File probedDir : probedDirs) {
+            locationCache.put(projectDir, probedDir, reportPath, reportLocations);
+        }
+        return reportLocations;
+    }
+
+    /**
+     * Return the files within a directory matching a relative glob pattern, only
+     * the sub-directory preceding the first glob character is walked.
+     */
+    private static List<File> matchFiles(File directory, String pattern) {
+        int globIndex = getGlobIndex(pattern);
+        int separator = pattern.lastIndexOf('/', globIndex);
+        Path basePath = directory.toPath();
+        Path startPath = separator >= 0 ? basePath.resolve(pattern.substring(0, separator)) : basePath;
+        if (!Files.isDirectory(startPath)) {
+            return emptyList();
+        }
+        int maxDepth = pattern.contains("**") ? Integer.MAX_VALUE : (int) pattern.substring(separator + 1).chars().filter(c -> c == '/').count() + 1;
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        LOGGER.debug("Scanning for jQAssistant XML reports matching {} in {}.", pattern, directory);
+        try (Stream<Path> paths = Files.walk(startPath, maxDepth)) {
+            return paths.filter(path -> Files.isRegularFile(path) && matcher.matches(basePath.relativize(path))).sorted().map(Path::toFile)
+                    .collect(toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot scan for jQAssistant XML reports in " + startPath, e);
+        }
+    }
+
+    private static boolean isPattern(String reportPath) {
+        return getGlobIndex(reportPath) < reportPath.length();
+    }
+
+    private static int getGlobIndex(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            if (GLOB_CHARACTERS.indexOf(pattern.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return pattern.length();
+    }
+
+    /**
+     * Return the given report file or its gzip compressed variant if it exists.
+     *
+     * @param reportFile
+     *            The report file.
+     * @return The existing file or <code>null</code>.
+     */
+    private static File getExistingReportFile(File reportFile) {
+        if (reportFile.exists()) {
+            return reportFile;
+        }
+        File compressedReportFile = new File(reportFile.getPath() + GZIP_EXTENSION);
+        if (!reportFile.getName().endsWith(GZIP_EXTENSION) && compressedReportFile.exists()) {
+            LOGGER.debug("Using gzip compressed jQAssistant XML report {}.", compressedReportFile);
+            return compressedReportFile;
+        }
+        return null;
     }
 
 }
@@ -0,0 +1,73 @@
+package org.jqassistant.contrib.sonarqube.plugin.sensor;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.jqassistant.schema.report.v1.ExecutableRuleType;
+import org.jqassistant.schema.report.v1.GroupType;
+import org.jqassistant.schema.report.v1.JqassistantReport;
+import org.jqassistant.schema.report.v1.ReferencableRuleType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Merges several jQAssistant reports into one report.
+ * <p>
+ * The groups and rules are added in the order of the reports. A concept or
+ * constraint which is contained in more than one report is only added for its
+ * first occurrence. The given reports are not modified, groups are copied as
+ * they may contain rules which must be removed.
+ */
+final class ReportMerger {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReportMerger.class);
+
+    private ReportMerger() {
+    }
+
+    /**
+     * Merge the given reports.
+     *
+     * @param reports
+     *            The reports.
+     * @return The merged {@link JqassistantReport}.
+     */
+    static JqassistantReport merge(List<JqassistantReport> reports) {
+        JqassistantReport mergedReport = new JqassistantReport();
+        Set<String> ruleIds = new HashSet<>();
+        int duplicateRules = 0;
+        for (JqassistantReport report : reports) {
+            duplicateRules += merge(report.getGroupOrConceptOrConstraint(), mergedReport.getGroupOrConceptOrConstraint(), ruleIds);
+        }
+        if (duplicateRules > 0) {
+            LOGGER.info("Skipped {} rules contained in more than one jQAssistant report.", duplicateRules);
+        }
+        return mergedReport;
+    }
+
+    /**
+     * Add the rules to the target list, skipping rules with already known ids.
+     *
+     * @return The number of skipped rules.
+     */
+    private static int merge(List<ReferencableRuleType> rules, List<ReferencableRuleType> mergedRules, Set<String> ruleIds) {
+        int duplicateRules = 0;
+        for (ReferencableRuleType rule : rules) {
+            if (rule instanceof GroupType) {
+                GroupType group = (GroupType) rule;
+                GroupType mergedGroup = new GroupType();
+                mergedGroup.setId(group.getId());
+                mergedGroup.setDate(group.getDate());
+                mergedGroup.setDuration(group.getDuration());
+                duplicateRules += merge(group.getGroupOrConceptOrConstraint(), mergedGroup.getGroupOrConceptOrConstraint(), ruleIds);
+                mergedRules.add(mergedGroup);
+            } else if (rule instanceof ExecutableRuleType && !ruleIds.add(rule.getId())) {
+                duplicateRules++;
+            } else {
+                mergedRules.add(rule);
+            }
+        }
+        return duplicateRules;
+    }
+}
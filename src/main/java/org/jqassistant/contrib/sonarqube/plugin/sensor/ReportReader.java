@@ -2,6 +2,7 @@ package org.jqassistant.contrib.sonarqube.plugin.sensor;
 
 import com.sun.xml.bind.api.JAXBRIContext;
 import lombok.extern.slf4j.Slf4j;
+import org.jqassistant.schema.report.v1.ExecutableRuleType;
 import org.jqassistant.schema.report.v1.JqassistantReport;
 
 import javax.xml.bind.JAXBContext;
@@ -11,14 +12,33 @@ import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.util.StreamReaderDelegate;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
 
 /**
- * Reads jQA report files using JAXB.
+ * Reads jQA report files.
+ * <p>
+ * The reports are bound using the reflection-free {@link ReportBinder}. JAXB is
+ * only used as fallback if the binder cannot convert a value, the
+ * {@link JAXBContext} is created lazily on first use.
+ * <p>
+ * Reports compressed using gzip are detected by their header and decompressed
+ * while they are read.
+ * <p>
+ * If only failed rules are retained the report is additionally scanned by a
+ * {@link StatusLookahead}, i.e. the results of all other rules are skipped
+ * instead of being bound.
  */
 @Slf4j
 public final class ReportReader {
@@ -29,20 +49,26 @@ public final class ReportReader {
 
     private static final ReportReader INSTANCE = new ReportReader();
 
-    private XMLInputFactory inputFactory;
+    private static final int BUFFER_SIZE = 64 * 1024;
 
-    private JAXBContext jaxbContext;
+    private static final int GZIP_MAGIC = 0x1f8b;
+
+    private static final int ZSTD_MAGIC = 0x28b52ffd;
+
+    private static final String PARSER_THREAD_NAME = "jqassistant-report-parser";
+
+    /**
+     * Marks the end of a report parsed by a separate thread.
+     */
+    private static final Object END_OF_REPORT = new Object();
+
+    private final ReportBinder reportBinder = new ReportBinder();
+
+    private volatile XMLInputFactory inputFactory;
+
+    private volatile JAXBContext jaxbContext;
 
     private ReportReader() {
-        inputFactory = XMLInputFactory.newInstance();
-        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
-        jaxbContext = withPluginClassLoader(() -> {
-            try {
-                return JAXBContext.newInstance(JqassistantReport.class);
-            } catch (JAXBException e) {
-                throw new IllegalStateException("Cannot create JAXB context for " + JqassistantReport.class.getName(), e);
-            }
-        });
     }
 
     /**
@@ -53,8 +79,83 @@ public final class ReportReader {
      * @return The {@link JqassistantReport}.
      */
     public JqassistantReport read(File reportFile) {
+        return read(reportFile, RuleFilter.ALL);
+    }
+
+    /**
+     * Read the report file, groups and rules which are not accepted by the given
+     * {@link RuleFilter} are skipped.
+     *
+     * @param reportFile
+     *            The report file.
+     * @param ruleFilter
+     *            The {@link RuleFilter}.
+     * @return The {@link JqassistantReport}.
+     */
+    JqassistantReport read(File reportFile, RuleFilter ruleFilter) {
+        return read(reportFile, ruleFilter, RowSpill.NONE);
+    }
+
+    /**
+     * Read the report file, groups and rules which are not accepted by the given
+     * {@link RuleFilter} are skipped and rows exceeding the heap limits of the
+     * given {@link RowSpill} are spilled to a temporary file.
+     * <p>
+     * Rows of reports which are read using the JAXB fallback are never spilled.
+     *
+     * @param reportFile
+     *            The report file.
+     * @param ruleFilter
+     *            The {@link RuleFilter}.
+     * @param rowSpill
+     *            The {@link RowSpill}.
+     * @return The {@link JqassistantReport}.
+     */
+    JqassistantReport read(File reportFile, RuleFilter ruleFilter, RowSpill rowSpill) {
+        return read(reportFile, ruleFilter, rowSpill, false);
+    }
+
+    /**
+     * Read the report file, groups and rules which are not accepted by the given
+     * {@link RuleFilter} are skipped and rows exceeding the heap limits of the
+     * given {@link RowSpill} are spilled to a temporary file. The rows are
+     * optionally digested while they are read, i.e. their hash is known without
+     * reading spilled rows again.
+     * <p>
+     * Rows of reports which are read using the JAXB fallback are neither spilled
+     * nor digested.
+     *
+     * @param reportFile
+     *            The report file.
+     * @param ruleFilter
+     *            The {@link RuleFilter}.
+     * @param rowSpill
+     *            The {@link RowSpill}.
+     * @param digestRows
+     *            TRUE if the rows shall be digested.
+     * @return The {@link JqassistantReport}.
+     */
+    JqassistantReport read(File reportFile, RuleFilter ruleFilter, RowSpill rowSpill, boolean digestRows) {
+        try (InputStream inputStream = openReport(reportFile); StatusLookahead statusLookahead = openStatusLookahead(reportFile, ruleFilter)) {
+            return bind(inputStream, ruleFilter, rowSpill, statusLookahead, digestRows);
+        } catch (IllegalArgumentException e) {
+            log.warn("Cannot bind jQAssistant report from file {} ({}), falling back to JAXB.", reportFile, e.getMessage());
+            return ruleFilter.apply(readJaxb(reportFile));
+        } catch (IOException | XMLStreamException e) {
+            throw new IllegalStateException("Cannot read jQAssistant report from file " + reportFile, e);
+        }
+    }
+
+    /**
+     * Read the report file using JAXB.
+     *
+     * @param reportFile
+     *            The report file.
+     * @return The {@link JqassistantReport}.
+     */
+    JqassistantReport readJaxb(File reportFile) {
         return withPluginClassLoader(() -> {
-            try (InputStream inputStream = new FileInputStream(reportFile)) {
+            try (InputStream inputStream = openReport(reportFile)) {
                 return unmarshal(inputStream);
             } catch (IOException | XMLStreamException | JAXBException e) {
                 throw new IllegalStateException("Cannot read jQAssistant report from file " + reportFile, e);
@@ -62,6 +163,204 @@ public final class ReportReader {
         });
     }
 
+    /**
+     * Read the report file in streaming mode, i.e. each concept or constraint is
+     * passed to the given {@link RuleListener} as soon as it has been parsed
+     * instead of building the tree of the whole report.
+     *
+     * @param reportFile
+     *            The report file.
+     * @param ruleListener
+     *            The {@link RuleListener}.
+     */
+    public void read(File reportFile, RuleListener ruleListener) {
+        read(reportFile, RuleFilter.ALL, ruleListener);
+    }
+
+    /**
+     * Read the report file in streaming mode, groups and rules which are not
+     * accepted by the given {@link RuleFilter} are skipped.
+     *
+     * @param reportFile
+     *            The report file.
+     * @param ruleFilter
+     *            The {@link RuleFilter}.
+     * @param ruleListener
+     *            The {@link RuleListener}.
+     */
+    void read(File reportFile, RuleFilter ruleFilter, RuleListener ruleListener) {
+        try (InputStream inputStream = openReport(reportFile); StatusLookahead statusLookahead = openStatusLookahead(reportFile, ruleFilter)) {
+            stream(inputStream, ruleFilter, ruleListener, statusLookahead);
+        } catch (IOException | XMLStreamException | IllegalArgumentException e) {
+            // rules may already have been passed to the listener, so there is no fallback
+            throw new IllegalStateException("Cannot read jQAssistant report from file " + reportFile, e);
+        }
+    }
+
+    /**
+     * Read the report file in streaming mode using a separate parser thread.
+     * <p>
+     * The parsed groups and rules are passed through a queue holding at most the
+     * given number of elements to the {@link RuleListener}, which is notified on
+     * the calling thread. Parsing therefore overlaps with the processing of the
+     * previous rules, the parser blocks while the queue is full.
+     *
+     * @param reportFile
+     *            The report file.
+     * @param ruleListener
+     *            The {@link RuleListener}.
+     * @param capacity
+     *            The maximum number of parsed elements which are not yet passed to
+     *            the listener.
+     */
+    public void read(File reportFile, RuleListener ruleListener, int capacity) {
+        read(reportFile, RuleFilter.ALL, ruleListener, capacity);
+    }
+
+    /**
+     * Read the report file in streaming mode using a separate parser thread,
+     * groups and rules which are not accepted by the given {@link RuleFilter} are
+     * skipped.
+     *
+     * @param reportFile
+     *            The report file.
+     * @param ruleFilter
+     *            The {@link RuleFilter}.
+     * @param ruleListener
+     *            The {@link RuleListener}.
+     * @param capacity
+     *            The maximum number of parsed elements which are not yet passed to
+     *            the listener.
+     */
+    void read(File reportFile, RuleFilter ruleFilter, RuleListener ruleListener, int capacity) {
+        read(reportFile, listener -> read(reportFile, ruleFilter, listener), ruleListener, capacity);
+    }
+
+    /**
+     * Executes the given parser on a separate parser thread and passes the groups
+     * and rules to the {@link RuleListener} on the calling thread.
+     * <p>
+     * A failure of the parser, including an {@link Error}, is re-thrown on the
+     * calling thread.
+     */
+    static void read(File reportFile, Consumer<RuleListener> parser, RuleListener ruleListener, int capacity) {
+        BlockingQueue<Object> elements = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        Thread parserThread = new Thread(() -> parse(reportFile, parser, elements), PARSER_THREAD_NAME);
+        parserThread.setDaemon(true);
+        parserThread.start();
+        try {
+            Object element;
+            while ((element = elements.take()) != END_OF_REPORT) {
+                if (element instanceof ExecutableRuleType) {
+                    ruleListener.onRule((ExecutableRuleType) element);
+                } else if (element instanceof String) {
+                    ruleListener.onGroup((String) element);
+                } else if (element instanceof Error) {
+                    throw (Error) element;
+                } else {
+                    throw (RuntimeException) element;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading jQAssistant report from file " + reportFile, e);
+        } finally {
+            // stops the parser if the listener failed
+            parserThread.interrupt();
+        }
+    }
+
+    /**
+     * Parses the report file on the parser thread and puts the group ids, rules
+     * and finally either {@link #END_OF_REPORT} or the failure into the queue.
+     * Errors are queued as well, otherwise the calling thread would wait forever.
+     */
+    private static void parse(File reportFile, Consumer<RuleListener> parser, BlockingQueue<Object> elements) {
+        Object last = END_OF_REPORT;
+        try {
+            parser.accept(new RuleListener() {
+                @Override
+                public void onGroup(String groupId) {
+                    put(elements, groupId);
+                }
+
+                @Override
+                public void onRule(ExecutableRuleType executableRuleType) {
+                    put(elements, executableRuleType);
+                }
+            });
+        } catch (CancellationException e) {
+            return;
+        } catch (RuntimeException | Error e) {
+            last = e;
+        }
+        try {
+            put(elements, last);
+        } catch (CancellationException e) {
+            log.debug("Parsing of jQAssistant report {} has been cancelled.", reportFile);
+        }
+    }
+
+    private static void put(BlockingQueue<Object> elements, Object element) {
+        try {
+            elements.put(element);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Parsing of jQAssistant report has been cancelled.");
+        }
+    }
+
+    /**
+     * Opens the report file, a gzip compressed file is decompressed on the fly.
+     *
+     * @param reportFile
+     *            The report file.
+     * @return The {@link InputStream} providing the XML document.
+     * @throws IOException
+     *             If the file cannot be opened or uses an unsupported compression.
+     */
+    static InputStream openReport(File reportFile) throws IOException {
+        InputStream inputStream = new BufferedInputStream(new FileInputStream(reportFile), BUFFER_SIZE);
+        try {
+            byte[] header = new byte[4];
+            inputStream.mark(header.length);
+            int length = inputStream.read(header);
+            inputStream.reset();
+            if (length >= 2 && ((header[0] & 0xff) << 8 | (header[1] & 0xff)) == GZIP_MAGIC) {
+                return new GZIPInputStream(inputStream, BUFFER_SIZE);
+            }
+            // frames of Zstandard are stored little endian
+            if (length == 4 && ((header[3] & 0xff) << 24 | (header[2] & 0xff) << 16 | (header[1] & 0xff) << 8 | (header[0] & 0xff)) == ZSTD_MAGIC) {
+                throw new IOException("Zstandard compressed reports are not supported, use gzip instead.");
+            }
+            return inputStream;
+        } catch (IOException e) {
+            inputStream.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a {@link StatusLookahead} on the report file if the {@link RuleFilter}
+     * retains rules depending on their status.
+     */
+    private StatusLookahead openStatusLookahead(File reportFile, RuleFilter ruleFilter) throws IOException, XMLStreamException {
+        if (!ruleFilter.isStatusFiltered()) {
+            return StatusLookahead.NONE;
+        }
+        InputStream inputStream = openReport(reportFile);
+        try {
+            return new StatusLookahead(inputStream, getInputFactory().createXMLStreamReader(inputStream));
+        } catch (XMLStreamException | RuntimeException e) {
+            inputStream.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Executes the given {@link Supplier} with the class loader of the plugin as
+     * context class loader, which is required by JAXB.
+     */
     private <T> T withPluginClassLoader(Supplier<T> supplier) {
         ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
         ClassLoader pluginClassLoader = this.getClass().getClassLoader();
@@ -74,12 +373,102 @@ public final class ReportReader {
         }
     }
 
+    private XMLInputFactory getInputFactory() {
+        XMLInputFactory factory = inputFactory;
+        if (factory == null) {
+            factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            inputFactory = factory;
+        }
+        return factory;
+    }
+
+    private JAXBContext getJaxbContext() {
+        JAXBContext context = jaxbContext;
+        if (context == null) {
+            synchronized (this) {
+                context = jaxbContext;
+                if (context == null) {
+                    try {
+                        context = JAXBContext.newInstance(JqassistantReport.class);
+                    } catch (JAXBException e) {
+                        throw new IllegalStateException("Cannot create JAXB context for " + JqassistantReport.class.getName(), e);
+                    }
+                    jaxbContext = context;
+                }
+            }
+        }
+        return context;
+    }
+
+    private JqassistantReport bind(InputStream stream, RuleFilter ruleFilter, RowSpill rowSpill, StatusLookahead statusLookahead,
+                                   boolean digestRows) throws XMLStreamException {
+        XMLStreamReader xmlStreamReader = getInputFactory().createXMLStreamReader(stream);
+        try {
+            xmlStreamReader.nextTag();
+            return reportBinder.readReport(xmlStreamReader, ruleFilter, rowSpill, statusLookahead, digestRows);
+        } finally {
+            xmlStreamReader.close();
+        }
+    }
+
     private JqassistantReport unmarshal(InputStream stream) throws JAXBException, XMLStreamException {
-        XMLStreamReader xmlStreamReader = new NamespaceMappingStreamReader(inputFactory.createXMLStreamReader(stream), getTargetNamespace());
-        Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
+        JAXBContext context = getJaxbContext();
+        XMLStreamReader xmlStreamReader = new NamespaceMappingStreamReader(getInputFactory().createXMLStreamReader(stream), getTargetNamespace(context));
+        Unmarshaller unmarshaller = context.createUnmarshaller();
         return unmarshaller.unmarshal(xmlStreamReader, JqassistantReport.class).getValue();
     }
 
+    private void stream(InputStream stream, RuleFilter ruleFilter, RuleListener ruleListener, StatusLookahead statusLookahead)
+        throws XMLStreamException {
+        XMLStreamReader xmlStreamReader = getInputFactory().createXMLStreamReader(stream);
+        try {
+            xmlStreamReader.nextTag();
+            if (!ReportBinder.ROOT_ELEMENT.equals(xmlStreamReader.getLocalName())) {
+                throw new XMLStreamException("Unexpected root element " + xmlStreamReader.getLocalName(), xmlStreamReader.getLocation());
+            }
+            // the inclusion of the enclosing groups
+            Deque<Boolean> includedGroups = new ArrayDeque<>();
+            includedGroups.push(false);
+            while (xmlStreamReader.hasNext()) {
+                if (xmlStreamReader.isStartElement()) {
+                    String id = xmlStreamReader.getAttributeValue(null, ReportBinder.ID_ATTRIBUTE);
+                    switch (xmlStreamReader.getLocalName()) {
+                    case ReportBinder.GROUP_ELEMENT:
+                        if (ruleFilter.isExcluded(id)) {
+                            ReportBinder.skipElement(xmlStreamReader);
+                        } else {
+                            includedGroups.push(ruleFilter.isIncluded(id, includedGroups.peek()));
+                            ruleListener.onGroup(id);
+                        }
+                        break;
+                    case ReportBinder.CONCEPT_ELEMENT:
+                    case ReportBinder.CONSTRAINT_ELEMENT:
+                        if (ruleFilter.accept(id, includedGroups.peek())) {
+                            // the binder consumes the whole element up to its end tag
+                            ExecutableRuleType rule = ReportBinder.CONCEPT_ELEMENT.equals(xmlStreamReader.getLocalName())
+                                ? reportBinder.readConcept(xmlStreamReader, ruleFilter, statusLookahead)
+                                : reportBinder.readConstraint(xmlStreamReader, ruleFilter, statusLookahead);
+                            if (ruleFilter.retain(rule)) {
+                                ruleListener.onRule(rule);
+                            }
+                        } else {
+                            ReportBinder.skipElement(xmlStreamReader);
+                        }
+                        break;
+                    default:
+                        break;
+                    }
+                } else if (xmlStreamReader.isEndElement() && ReportBinder.GROUP_ELEMENT.equals(xmlStreamReader.getLocalName())) {
+                    includedGroups.pop();
+                }
+                xmlStreamReader.next();
+            }
+        } finally {
+            xmlStreamReader.close();
+        }
+    }
+
     /**
      * Determines the target namespace from the root element registered in the
      * {@link JAXBContext}.
@@ -88,8 +477,30 @@ public final class ReportReader {
      * @throws JAXBException
      *             If the root element cannot be determined.
      */
-    private String getTargetNamespace() throws JAXBException {
-        return ((JAXBRIContext) this.jaxbContext).getElementName(JqassistantReport.class).getNamespaceURI();
+    private static String getTargetNamespace(JAXBContext jaxbContext) throws JAXBException {
+        return ((JAXBRIContext) jaxbContext).getElementName(JqassistantReport.class).getNamespaceURI();
+    }
+
+    /**
+     * Callback for rules which are read from a report in streaming mode.
+     */
+    public interface RuleListener {
+
+        /**
+         * Notifies about the start of a group.
+         *
+         * @param groupId
+         *            The id of the group.
+         */
+        void onGroup(String groupId);
+
+        /**
+         * Notifies about a concept or constraint including its result.
+         *
+         * @param executableRuleType
+         *            The {@link ExecutableRuleType}.
+         */
+        void onRule(ExecutableRuleType executableRuleType);
     }
 
     /**
@@ -0,0 +1,282 @@
+package org.jqassistant.contrib.sonarqube.plugin.sensor;
+
+import java.io.File;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.jqassistant.contrib.sonarqube.plugin.language.JavaResourceResolver;
+import org.jqassistant.contrib.sonarqube.plugin.language.ResourceResolver;
+import org.jqassistant.schema.report.v1.ColumnType;
+import org.jqassistant.schema.report.v1.ConceptType;
+import org.jqassistant.schema.report.v1.ConstraintType;
+import org.jqassistant.schema.report.v1.ElementType;
+import org.jqassistant.schema.report.v1.ExecutableRuleType;
+import org.jqassistant.schema.report.v1.JqassistantReport;
+import org.jqassistant.schema.report.v1.ResultType;
+import org.jqassistant.schema.report.v1.RowType;
+import org.jqassistant.schema.report.v1.RowsType;
+import org.jqassistant.schema.report.v1.SourceType;
+import org.sonar.api.batch.fs.FileSystem;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.scanner.ScannerSide;
+
+/**
+ * Partitions the rows of the failed rules of a report by the source files
+ * referenced in their primary columns.
+ * <p>
+ * The partition is created once per report and allows to determine the rows
+ * belonging to a module by the source files of the module instead of trying to
+ * resolve all rows in every module.
+ */
+@ScannerSide
+public class RowPartitioner {
+
+    private final Map<String, ResourceResolver> languageResourceResolvers;
+
+    private final Map<JqassistantReport, Partition> partitions = Collections.synchronizedMap(new WeakHashMap<>());
+
+    public RowPartitioner(JavaResourceResolver resourceResolver) {
+        this.languageResourceResolvers = new HashMap<>();
+        this.languageResourceResolvers.put(resourceResolver.getLanguage().toLowerCase(Locale.ENGLISH), resourceResolver);
+    }
+
+    /**
+     * Return the failed rules of a report restricted to the rows which belong to
+     * the current module.
+     * <p>
+     * These are the rows referencing a source file of the module and, for the
+     * module containing the report, the rows which cannot be mapped to a source
+     * file and are reported on project level.
+     *
+     * @param sensorContext
+     *            The {@link SensorContext} of the module.
+     * @param reportModulePath
+     *            The directory of the module containing the report.
+     * @param report
+     *            The {@link JqassistantReport}.
+     * @param failedRules
+     *            The failed rules of the report in report order.
+     * @param changedFilesOnly
+     *            If <code>true</code> only rows referencing added or changed
+     *            source files are selected, rules without such rows are skipped.
+     * @return The failed rules containing only the rows of the module.
+     */
+    List<ExecutableRuleType> getModuleRules(SensorContext sensorContext, File reportModulePath, JqassistantReport report,
+                                            List<ExecutableRuleType> failedRules, boolean changedFilesOnly) {
+        Partition partition = partitions.computeIfAbsent(report, key -> new Partition(failedRules));
+        FileSystem fileSystem = sensorContext.fileSystem();
+        return partition.getModuleRules(fileSystem, fileSystem.baseDir().equals(reportModulePath), changedFilesOnly);
+    }
+
+    /**
+     * The partition of the rows of a report.
+     */
+    private class Partition {
+
+        private final List<ExecutableRuleType> rules;
+
+        /**
+         * The rules (without result) or rows per rule which are reported on project level.
+         */
+        private final BitSet projectRules = new BitSet();
+
+        private final BitSet[] projectRows;
+
+        /**
+         * The references to rows per source file path and resolver, a reference
+         * contains the index of the rule (upper 32 bits) and the row (lower 32 bits).
+         */
+        private final Map<ResourceResolver, Map<String, RowReferences>> sourceFileRows = new HashMap<>();
+
+        private Partition(List<ExecutableRuleType> rules) {
+            this.rules = new ArrayList<>(rules);
+            this.projectRows = new BitSet[rules.size()];
+            for (int ruleIndex = 0; ruleIndex < rules.size(); ruleIndex++) {
+                projectRows[ruleIndex] = new BitSet();
+                ResultType result = rules.get(ruleIndex).getResult();
+                if (result == null) {
+                    projectRules.set(ruleIndex);
+                } else {
+                    String primaryColumn = IssueHandler.getPrimaryColumn(result);
+                    List<RowType> rows = result.getRows().getRow();
+                    for (int rowIndex = 0; rowIndex < rows.size(); rowIndex++) {
+                        add(ruleIndex, rowIndex, getColumn(rows.get(rowIndex), primaryColumn));
+                    }
+                }
+            }
+        }
+
+        private void add(int ruleIndex, int rowIndex, ColumnType column) {
+            ElementType element = column != null ? column.getElement() : null;
+            ResourceResolver resourceResolver = element != null ? languageResourceResolvers.get(element.getLanguage().toLowerCase(Locale.ENGLISH)) : null;
+            if (resourceResolver == null) {
+                projectRows[ruleIndex].set(rowIndex);
+            } else {
+                SourceType source = column.getSource();
+                String sourceFilePath = source != null ? resourceResolver.getSourceFilePath(element.getValue(), source.getName()) : null;
+                // rows referencing elements without a source file cannot be resolved in any module
+                if (sourceFilePath != null) {
+                    sourceFileRows.computeIfAbsent(resourceResolver, key -> new HashMap<>()).computeIfAbsent(sourceFilePath, key -> new RowReferences())
+                        .add(((long) ruleIndex << 32) | rowIndex);
+                }
+            }
+        }
+
+        private ColumnType getColumn(RowType row, String name) {
+            if (name != null) {
+                for (ColumnType column : row.getColumn()) {
+                    if (name.equals(column.getName())) {
+                        return column;
+                    }
+                }
+            }
+            return null;
+        }
+
+        private List<ExecutableRuleType> getModuleRules(FileSystem fileSystem, boolean reportModule, boolean changedFilesOnly) {
+            BitSet[] moduleRows = new BitSet[rules.size()];
+            for (int ruleIndex = 0; ruleIndex < rules.size(); ruleIndex++) {
+                moduleRows[ruleIndex] = reportModule ? (BitSet) projectRows[ruleIndex].clone() : new BitSet();
+            }
+            for (Map.Entry<ResourceResolver, Map<String, RowReferences>> entry : sourceFileRows.entrySet()) {
+                ResourceResolver resourceResolver = entry.getKey();
+                Set<String> moduleSourceFilePaths = changedFilesOnly ? resourceResolver.getChangedSourceFilePaths(fileSystem)
+                    : resourceResolver.getSourceFilePaths(fileSystem);
+                Map<String, RowReferences> rowsBySourceFilePath = entry.getValue();
+                // iterate over the smaller of both sets
+                if (moduleSourceFilePaths.size() < rowsBySourceFilePath.size()) {
+                    for (String moduleSourceFilePath : moduleSourceFilePaths) {
+                        select(rowsBySourceFilePath.get(moduleSourceFilePath), moduleRows);
+                    }
+                } else {
+                    for (Map.Entry<String, RowReferences> rowsEntry : rowsBySourceFilePath.entrySet()) {
+                        if (moduleSourceFilePaths.contains(rowsEntry.getKey())) {
+                            select(rowsEntry.getValue(), moduleRows);
+                        }
+                    }
+                }
+            }
+            List<ExecutableRuleType> moduleRules = new ArrayList<>();
+            for (int ruleIndex = 0; ruleIndex < rules.size(); ruleIndex++) {
+                ExecutableRuleType rule = rules.get(ruleIndex);
+                if (projectRules.get(ruleIndex)) {
+                    if (reportModule) {
+                        moduleRules.add(rule);
+                    }
+                } else if (!moduleRows[ruleIndex].isEmpty()) {
+                    moduleRules.add(copy(rule, moduleRows[ruleIndex]));
+                }
+            }
+            return moduleRules;
+        }
+
+        private void select(RowReferences rowReferences, BitSet[] moduleRows) {
+            if (rowReferences != null) {
+                for (int i = 0; i < rowReferences.size; i++) {
+                    long rowReference = rowReferences.references[i];
+                    moduleRows[(int) (rowReference >>> 32)].set((int) rowReference);
+                }
+            }
+        }
+
+        /**
+         * Creates a copy of a rule containing only the selected rows. The rows are
+         * not copied but accessed using a view, i.e. rows which have been spilled
+         * by a {@link RowSpill} are not loaded into memory.
+         */
+        private ExecutableRuleType copy(ExecutableRuleType rule, BitSet selectedRows) {
+            List<RowType> rows = rule.getResult().getRows().getRow();
+            if (selectedRows.cardinality() == rows.size()) {
+                return rule;
+            }
+            ExecutableRuleType copy = rule instanceof ConceptType ? new ConceptType() : new ConstraintType();
+            copy.setId(rule.getId());
+            copy.setDescription(rule.getDescription());
+            copy.setStatus(rule.getStatus());
+            copy.setSeverity(rule.getSeverity());
+            copy.setDuration(rule.getDuration());
+            ResultType result = new ResultType();
+            result.setColumns(rule.getResult().getColumns());
+            RowsType ruleRows = rule.getResult().getRows();
+            int[] rowIndexes = selectedRows.stream().toArray();
+            String rowsHash = ruleRows instanceof IssueCache.HashedRows ? ((IssueCache.HashedRows) ruleRows).getRowsHash() : null;
+            RowsType rowsType = new SelectedRowsType(new SelectedRows(rows, rowIndexes), rowsHash != null ? IssueCache.hash(rowsHash, rowIndexes) : null);
+            rowsType.setCount(rowsType.getRow().size());
+            result.setRows(rowsType);
+            copy.setResult(result);
+            return copy;
+        }
+    }
+
+    /**
+     * The references to the rows of a source file, held in a growable array to
+     * avoid boxing a {@link Long} per row.
+     */
+    private static final class RowReferences {
+
+        private long[] references = new long[4];
+
+        private int size;
+
+        private void add(long reference) {
+            if (size == references.length) {
+                references = Arrays.copyOf(references, size * 2);
+            }
+            references[size++] = reference;
+        }
+    }
+
+    /**
+     * The rows of a rule restricted to the rows selected for a module, the hash
+     * is derived from the hash of all rows if it is known.
+     */
+    private static final class SelectedRowsType extends RowsType implements IssueCache.HashedRows {
+
+        private final String rowsHash;
+
+        private SelectedRowsType(List<RowType> rows, String rowsHash) {
+            this.row = rows;
+            this.rowsHash = rowsHash;
+        }
+
+        @Override
+        public String getRowsHash() {
+            return rowsHash;
+        }
+    }
+
+    /**
+     * A view of the selected rows of a rule.
+     */
+    private static final class SelectedRows extends AbstractList<RowType> implements RandomAccess {
+
+        private final List<RowType> rows;
+
+        private final int[] rowIndexes;
+
+        private SelectedRows(List<RowType> rows, int[] rowIndexes) {
+            this.rows = rows;
+            this.rowIndexes = rowIndexes;
+        }
+
+        @Override
+        public RowType get(int index) {
+            return rows.get(rowIndexes[index]);
+        }
+
+        @Override
+        public int size() {
+            return rowIndexes.length;
+        }
+    }
+}
@@ -0,0 +1,535 @@
+package org.jqassistant.contrib.sonarqube.plugin.sensor;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.jqassistant.contrib.sonarqube.plugin.JQAssistantConfiguration;
+import org.jqassistant.schema.report.v1.ColumnType;
+import org.jqassistant.schema.report.v1.ElementType;
+import org.jqassistant.schema.report.v1.RowType;
+import org.jqassistant.schema.report.v1.SourceType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Spills the rows of a report to a temporary file as soon as the estimated heap
+ * size of the rows held in memory exceeds the configured budget or the heap
+ * usage reported by the {@link MemoryMXBean} exceeds the configured threshold.
+ * The limits are checked again periodically, i.e. rows of subsequent rules are
+ * held in memory again if the heap usage has dropped below the threshold.
+ * <p>
+ * Rows are written in a compact binary format, strings which are repeated in
+ * every row (column names, element languages and types) are written once and
+ * referenced by their index. Spilled rows are read on demand, i.e. each access
+ * creates a new {@link RowType} which may be reclaimed by the garbage collector
+ * after use. Large reports are therefore evaluated slower instead of exceeding
+ * the heap.
+ * <p>
+ * A spill is used by all rules of a report and is thread-safe. The temporary
+ * file is deleted when the spill is closed, spilled rows cannot be read
+ * afterwards.
+ */
+final class RowSpill implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RowSpill.class);
+
+    /**
+     * The spill which holds all rows in memory.
+     */
+    static final RowSpill NONE = new RowSpill(null, Long.MAX_VALUE, 0, null);
+
+    /**
+     * The number of rows after which the heap usage is checked again, it is
+     * always checked for the first row. Spilled rows are counted as well.
+     */
+    static final int HEAP_CHECK_INTERVAL = 1024;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int ELEMENT = 1;
+    private static final int SOURCE = 2;
+    private static final int LINE = 4;
+    private static final int VALUE = 8;
+
+    private final File directory;
+
+    private final long heapBudget;
+
+    private final int heapThreshold;
+
+    private final MemoryMXBean memoryMXBean;
+
+    private final AtomicLong heapSize = new AtomicLong();
+
+    private final AtomicLong rowCount = new AtomicLong();
+
+    private volatile boolean spilling = false;
+
+    /**
+     * The strings referenced by index, they are only added but never modified.
+     */
+    private final List<String> strings = new CopyOnWriteArrayList<>();
+
+    private final Map<String, Integer> stringIndexes = new HashMap<>();
+
+    private final Encoder encoder = new Encoder();
+
+    private File file;
+
+    private FileChannel channel;
+
+    private ByteBuffer writeBuffer;
+
+    /**
+     * The position of the end of the written data, including buffered data.
+     */
+    private long position = 0;
+
+    private long spilledRows = 0;
+
+    RowSpill(File directory, long heapBudget, int heapThreshold, MemoryMXBean memoryMXBean) {
+        this.directory = directory;
+        this.heapBudget = heapBudget;
+        this.heapThreshold = heapThreshold;
+        this.memoryMXBean = memoryMXBean;
+    }
+
+    /**
+     * Create the spill for the configured heap budget and threshold.
+     *
+     * @param configuration
+     *            The {@link JQAssistantConfiguration}.
+     * @param directory
+     *            Provides the directory for the temporary file, e.g. the working
+     *            directory of the scanner.
+     * @return The {@link RowSpill}, {@link #NONE} if neither a heap budget nor a
+     *         threshold is configured.
+     */
+    static RowSpill of(JQAssistantConfiguration configuration, Supplier<File> directory) {
+        int heapBudget = configuration.getHeapBudget();
+        int heapThreshold = configuration.getHeapThreshold();
+        if (heapBudget <= 0 && heapThreshold <= 0) {
+            return NONE;
+        }
+        return new RowSpill(directory.get(), heapBudget > 0 ? heapBudget * 1024L * 1024L : Long.MAX_VALUE, heapThreshold,
+            ManagementFactory.getMemoryMXBean());
+    }
+
+    /**
+     * Create the collector for the rows of a rule.
+     *
+     * @return The {@link Rows}.
+     */
+    Rows rows() {
+        return new Rows();
+    }
+
+    /**
+     * @return The number of rows which have been spilled.
+     */
+    synchronized long getSpilledRows() {
+        return spilledRows;
+    }
+
+    /**
+     * Determines if a row shall be held in memory, i.e. if the budget is not
+     * exhausted and the heap usage is below the threshold.
+     *
+     * @param row
+     *            The row.
+     * @param ruleSpilling
+     *            TRUE if preceding rows of the rule have been spilled, i.e. the
+     *            row must be spilled as well.
+     */
+    private boolean reserve(RowType row, boolean ruleSpilling) {
+        if (this == NONE) {
+            return true;
+        }
+        if (rowCount.getAndIncrement() % HEAP_CHECK_INTERVAL == 0) {
+            // the heap usage may have dropped, e.g. after a garbage collection
+            spilling = isHeapThresholdExceeded();
+        }
+        if (spilling || ruleSpilling) {
+            return false;
+        }
+        long size = estimateSize(row);
+        if (heapSize.addAndGet(size) > heapBudget) {
+            // only rows held in memory count against the budget
+            heapSize.addAndGet(-size);
+            spilling = true;
+            return false;
+        }
+        return true;
+    }
+
+    private boolean isHeapThresholdExceeded() {
+        if (heapThreshold <= 0) {
+            return false;
+        }
+        MemoryUsage heapMemoryUsage = memoryMXBean.getHeapMemoryUsage();
+        long max = heapMemoryUsage.getMax();
+        return max > 0 && heapMemoryUsage.getUsed() * 100 / max >= heapThreshold;
+    }
+
+    /**
+     * Estimates the heap size of a bound row, strings and elements shared by the
+     * rows of a rule are not considered.
+     */
+    static long estimateSize(RowType row) {
+        List<ColumnType> columns = row.getColumn();
+        // row, list and array of the columns
+        long size = 48 + 4L * columns.size();
+        for (ColumnType column : columns) {
+            size += 24;
+            SourceType source = column.getSource();
+            if (source != null) {
+                size += 40 + estimateSize(source.getName());
+            }
+            size += estimateSize(column.getValue());
+        }
+        return size;
+    }
+
+    private static long estimateSize(String value) {
+        return value != null ? 40 + value.length() : 0;
+    }
+
+    /**
+     * Write a row.
+     *
+     * @return The position of the end of the row.
+     */
+    private synchronized long write(RowType row) throws IOException {
+        if (channel == null) {
+            open();
+        }
+        encoder.reset();
+        List<ColumnType> columns = row.getColumn();
+        encoder.writeInt(columns.size());
+        for (ColumnType column : columns) {
+            ElementType element = column.getElement();
+            SourceType source = column.getSource();
+            int flags = (element != null ? ELEMENT : 0) | (source != null ? SOURCE : 0) | (source != null && source.getLine() != null ? LINE : 0)
+                | (column.getValue() != null ? VALUE : 0);
+            encoder.writeInt(flags);
+            encoder.writeInt(index(column.getName()));
+            if (element != null) {
+                encoder.writeInt(index(element.getLanguage()));
+                encoder.writeInt(index(element.getValue()));
+            }
+            if (source != null) {
+                encoder.writeString(source.getName());
+                if (source.getLine() != null) {
+                    encoder.writeInt(source.getLine());
+                }
+            }
+            if (column.getValue() != null) {
+                encoder.writeString(column.getValue());
+            }
+        }
+        if (encoder.size() > writeBuffer.remaining()) {
+            flush();
+        }
+        if (encoder.size() > writeBuffer.remaining()) {
+            writeFully(ByteBuffer.wrap(encoder.bytes, 0, encoder.size()), position);
+        } else {
+            writeBuffer.put(encoder.bytes, 0, encoder.size());
+        }
+        position += encoder.size();
+        spilledRows++;
+        return position;
+    }
+
+    /**
+     * Return the index of a string which is repeated in every row, <code>0</code>
+     * represents <code>null</code>.
+     */
+    private int index(String value) {
+        if (value == null) {
+            return 0;
+        }
+        return stringIndexes.computeIfAbsent(value, key -> {
+            strings.add(key);
+            return strings.size();
+        });
+    }
+
+    private String string(int index) {
+        return index > 0 ? strings.get(index - 1) : null;
+    }
+
+    private void open() throws IOException {
+        directory.mkdirs();
+        file = File.createTempFile("jqassistant-rows-", ".spill", directory);
+        file.deleteOnExit();
+        channel = FileChannel.open(file.toPath(), READ, WRITE);
+        writeBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+        LOGGER.info("Heap limit for jQAssistant report rows exceeded, spilling rows to '{}'.", file.getPath());
+    }
+
+    /**
+     * Writes the buffered rows to the file, they can be read afterwards.
+     */
+    private synchronized void flush() throws IOException {
+        if (writeBuffer != null && writeBuffer.position() > 0) {
+            writeBuffer.flip();
+            writeFully(writeBuffer, position - writeBuffer.remaining());
+            writeBuffer.clear();
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer, long offset) throws IOException {
+        long writePosition = offset;
+        while (buffer.hasRemaining()) {
+            writePosition += channel.write(buffer, writePosition);
+        }
+    }
+
+    /**
+     * Read a row, positional reads allow concurrent access.
+     */
+    private RowType read(long start, long end) {
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+        try {
+            long readPosition = start;
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, readPosition);
+                if (read < 0) {
+                    throw new IOException("Unexpected end of file.");
+                }
+                readPosition += read;
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read spilled jQAssistant report rows from " + file, e);
+        }
+        buffer.flip();
+        RowType row = new RowType();
+        int columnCount = readInt(buffer);
+        List<ColumnType> columns = row.getColumn();
+        for (int i = 0; i < columnCount; i++) {
+            int flags = readInt(buffer);
+            ColumnType column = new ColumnType();
+            column.setName(string(readInt(buffer)));
+            if ((flags & ELEMENT) != 0) {
+                ElementType element = new ElementType();
+                element.setLanguage(string(readInt(buffer)));
+                element.setValue(string(readInt(buffer)));
+                column.setElement(element);
+            }
+            if ((flags & SOURCE) != 0) {
+                SourceType source = new SourceType();
+                source.setName(readString(buffer));
+                if ((flags & LINE) != 0) {
+                    source.setLine(readInt(buffer));
+                }
+                column.setSource(source);
+            }
+            if ((flags & VALUE) != 0) {
+                column.setValue(readString(buffer));
+            }
+            columns.add(column);
+        }
+        return row;
+    }
+
+    private static int readInt(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = readInt(buffer) - 1;
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null && channel.isOpen()) {
+            channel.close();
+            Files.deleteIfExists(file.toPath());
+            LOGGER.debug("Deleted {} spilled jQAssistant report rows from '{}'.", spilledRows, file.getPath());
+        }
+    }
+
+    /**
+     * Collects the rows of a rule, rows are held in memory as long as the heap
+     * limits are not exceeded. All further rows of the rule are spilled to
+     * preserve their order.
+     */
+    final class Rows {
+
+        private final List<RowType> heapRows = new ArrayList<>();
+
+        /**
+         * The start and end positions of the spilled rows. The rows of concurrently
+         * read rules are interleaved in the file, i.e. both positions are recorded
+         * for each row.
+         */
+        private long[] positions;
+
+        private int spilledRowCount = 0;
+
+        private Rows() {
+        }
+
+        /**
+         * Add a row.
+         *
+         * @param row
+         *            The {@link RowType}.
+         */
+        void add(RowType row) {
+            if (reserve(row, positions != null)) {
+                heapRows.add(row);
+                return;
+            }
+            try {
+                synchronized (RowSpill.this) {
+                    if (positions == null) {
+                        positions = new long[32];
+                    } else if (2 * spilledRowCount == positions.length) {
+                        positions = Arrays.copyOf(positions, positions.length * 2);
+                    }
+                    positions[2 * spilledRowCount] = position;
+                    positions[2 * spilledRowCount + 1] = write(row);
+                    spilledRowCount++;
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot spill jQAssistant report rows to " + file, e);
+            }
+        }
+
+        /**
+         * Complete the rows of the rule.
+         *
+         * @return The rows, spilled rows are read on access.
+         */
+        List<RowType> complete() {
+            if (positions == null) {
+                return heapRows;
+            }
+            try {
+                flush();
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot spill jQAssistant report rows to " + file, e);
+            }
+            return new SpilledRows(heapRows, Arrays.copyOf(positions, 2 * spilledRowCount));
+        }
+    }
+
+    /**
+     * The rows of a rule, starting with the rows held in memory followed by the
+     * spilled rows.
+     */
+    private final class SpilledRows extends AbstractList<RowType> implements RandomAccess {
+
+        private final List<RowType> heapRows;
+
+        private final long[] positions;
+
+        private SpilledRows(List<RowType> heapRows, long[] positions) {
+            this.heapRows = heapRows;
+            this.positions = positions;
+        }
+
+        @Override
+        public RowType get(int index) {
+            if (index < heapRows.size()) {
+                return heapRows.get(index);
+            }
+            int spilledIndex = index - heapRows.size();
+            if (spilledIndex >= positions.length / 2) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            return read(positions[2 * spilledIndex], positions[2 * spilledIndex + 1]);
+        }
+
+        @Override
+        public int size() {
+            return heapRows.size() + positions.length / 2;
+        }
+    }
+
+    /**
+     * Encodes a row into a re-usable buffer using variable length integers.
+     */
+    private static final class Encoder {
+
+        private byte[] bytes = new byte[256];
+
+        private int size = 0;
+
+        private void reset() {
+            size = 0;
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private void writeInt(int value) {
+            int remaining = value;
+            while ((remaining & ~0x7F) != 0) {
+                write((byte) ((remaining & 0x7F) | 0x80));
+                remaining >>>= 7;
+            }
+            write((byte) remaining);
+        }
+
+        private void writeString(String value) {
+            if (value == null) {
+                writeInt(0);
+            } else {
+                byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+                writeInt(encoded.length + 1);
+                ensureCapacity(encoded.length);
+                System.arraycopy(encoded, 0, bytes, size, encoded.length);
+                size += encoded.length;
+            }
+        }
+
+        private void write(byte b) {
+            ensureCapacity(1);
+            bytes[size++] = b;
+        }
+
+        private void ensureCapacity(int length) {
+            if (size + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package org.jqassistant.contrib.sonarqube.plugin.sensor;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.jqassistant.contrib.sonarqube.plugin.JQAssistantConfiguration;
+import org.jqassistant.schema.report.v1.ExecutableRuleType;
+import org.jqassistant.schema.report.v1.GroupType;
+import org.jqassistant.schema.report.v1.JqassistantReport;
+import org.jqassistant.schema.report.v1.ReferencableRuleType;
+import org.jqassistant.schema.report.v1.StatusEnumType;
+
+import static java.util.stream.Collectors.joining;
+import static org.jqassistant.schema.report.v1.StatusEnumType.FAILURE;
+
+/**
+ * Filter for the groups and rules of a report which is applied while the
+ * report is read, i.e. rules which are filtered out are skipped without binding
+ * their results.
+ * <p>
+ * The include and exclude patterns are matched against the ids of rules and
+ * groups and may contain the wildcards <code>*</code> and <code>?</code>. A
+ * rule is included if no include patterns are configured, if its id matches or
+ * if it is contained in a group with a matching id. Excluded groups are skipped
+ * including all contained rules. Optionally only failed rules are retained, as
+ * the status of a rule follows its result in the report it is determined using
+ * a {@link StatusLookahead} and the results of all other rules are skipped.
+ */
+final class RuleFilter {
+
+    /**
+     * The filter accepting all groups and rules.
+     */
+    static final RuleFilter ALL = new RuleFilter(null, null, false);
+
+    private final Pattern includes;
+
+    private final Pattern excludes;
+
+    private final boolean failuresOnly;
+
+    private RuleFilter(Pattern includes, Pattern excludes, boolean failuresOnly) {
+        this.includes = includes;
+        this.excludes = excludes;
+        this.failuresOnly = failuresOnly;
+    }
+
+    /**
+     * Create the filter for the configured include and exclude patterns which
+     * only retains failed rules.
+     *
+     * @param configuration
+     *            The {@link JQAssistantConfiguration}.
+     * @return The {@link RuleFilter}.
+     */
+    static RuleFilter of(JQAssistantConfiguration configuration) {
+        return new RuleFilter(compile(configuration.getIncludedRules()), compile(configuration.getExcludedRules()), true);
+    }
+
+    /**
+     * Determines if a group shall be skipped including all contained rules.
+     *
+     * @param groupId
+     *            The id of the group.
+     * @return <code>true</code> if the group is excluded.
+     */
+    boolean isExcluded(String groupId) {
+        return groupId != null && excludes != null && excludes.matcher(groupId).matches();
+    }
+
+    /**
+     * Determines if all rules of a group are included.
+     *
+     * @param groupId
+     *            The id of the group.
+     * @param parentIncluded
+     *            <code>true</code> if an enclosing group is included.
+     * @return <code>true</code> if the rules of the group are included.
+     */
+    boolean isIncluded(String groupId, boolean parentIncluded) {
+        return parentIncluded || includes == null || (groupId != null && includes.matcher(groupId).matches());
+    }
+
+    /**
+     * Determines if a rule shall be read.
+     *
+     * @param ruleId
+     *            The id of the rule.
+     * @param groupIncluded
+     *            <code>true</code> if an enclosing group is included.
+     * @return <code>true</code> if the rule is accepted.
+     */
+    boolean accept(String ruleId, boolean groupIncluded) {
+        if (ruleId != null && excludes != null && excludes.matcher(ruleId).matches()) {
+            return false;
+        }
+        return groupIncluded || includes == null || (ruleId != null && includes.matcher(ruleId).matches());
+    }
+
+    /**
+     * Determines if a rule which has been read shall be retained.
+     *
+     * @param executableRuleType
+     *            The {@link ExecutableRuleType}.
+     * @return <code>true</code> if the rule is retained.
+     */
+    boolean retain(ExecutableRuleType executableRuleType) {
+        return retain(executableRuleType.getStatus());
+    }
+
+    /**
+     * Determines if a rule with the given status shall be retained.
+     *
+     * @param status
+     *            The status of the rule.
+     * @return <code>true</code> if the rule is retained.
+     */
+    boolean retain(StatusEnumType status) {
+        return !failuresOnly || FAILURE.equals(status);
+    }
+
+    /**
+     * @return <code>true</code> if rules are retained depending on their status,
+     *         i.e. reading the status ahead of the results is beneficial.
+     */
+    boolean isStatusFiltered() {
+        return failuresOnly;
+    }
+
+    /**
+     * Apply the filter to a report which has been read completely, e.g. using
+     * JAXB.
+     *
+     * @param report
+     *            The {@link JqassistantReport} which is modified.
+     * @return The {@link JqassistantReport}.
+     */
+    JqassistantReport apply(JqassistantReport report) {
+        if (this != ALL) {
+            apply(report.getGroupOrConceptOrConstraint(), false);
+        }
+        return report;
+    }
+
+    private void apply(List<ReferencableRuleType> rules, boolean groupIncluded) {
+        for (Iterator<ReferencableRuleType> iterator = rules.iterator(); iterator.hasNext();) {
+            ReferencableRuleType rule = iterator.next();
+            if (rule instanceof GroupType) {
+                if (isExcluded(rule.getId())) {
+                    iterator.remove();
+                } else {
+                    apply(((GroupType) rule).getGroupOrConceptOrConstraint(), isIncluded(rule.getId(), groupIncluded));
+                }
+            } else if (rule instanceof ExecutableRuleType && !(accept(rule.getId(), groupIncluded) && retain((ExecutableRuleType) rule))) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Compiles the given wildcard patterns into one regular expression.
+     *
+     * @return The {@link Pattern} or <code>null</code> if no patterns are given.
+     */
+    private static Pattern compile(List<String> patterns) {
+        if (patterns.isEmpty()) {
+            return null;
+        }
+        return Pattern.compile(patterns.stream().map(RuleFilter::toRegex).collect(joining("|")));
+    }
+
+    private static String toRegex(String pattern) {
+        StringBuilder regex = new StringBuilder("(?:");
+        int start = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '*' || c == '?') {
+                if (i > start) {
+                    regex.append(Pattern.quote(pattern.substring(start, i)));
+                }
+                regex.append(c == '*' ? ".*" : ".");
+                start = i + 1;
+            }
+        }
+        if (start < pattern.length()) {
+            regex.append(Pattern.quote(pattern.substring(start)));
+        }
+        return regex.append(')').toString();
+    }
+}
@@ -6,7 +6,9 @@ import org.sonar.api.batch.rule.ActiveRules;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.scanner.ScannerSide;
 
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author rzozmann
@@ -16,11 +18,20 @@ public class RuleKeyResolver {
 
     private ActiveRules ruleFinder;
 
+    /**
+     * The resolved rule keys, the active rules do not change during an analysis.
+     */
+    private final Map<RuleType, Optional<RuleKey>> ruleKeys = new ConcurrentHashMap<>();
+
     public RuleKeyResolver(ActiveRules ruleFinder) {
         this.ruleFinder = ruleFinder;
     }
 
     public Optional<RuleKey> resolve(RuleType type) {
+        return ruleKeys.computeIfAbsent(type, this::findRuleKey);
+    }
+
+    private Optional<RuleKey> findRuleKey(RuleType type) {
         ActiveRule rule = ruleFinder.findByInternalKey(JQAssistant.KEY, type.getKey());
         if (rule != null) {
             return Optional.of(rule.ruleKey());
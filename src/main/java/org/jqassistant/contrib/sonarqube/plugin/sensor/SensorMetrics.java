@@ -0,0 +1,288 @@
+package org.jqassistant.contrib.sonarqube.plugin.sensor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jqassistant.contrib.sonarqube.plugin.JQAssistantConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.Startable;
+import org.sonar.api.scanner.ScannerSide;
+
+/**
+ * Collects the durations of the phases and the counters of the sensor
+ * executions of an analysis.
+ * <p>
+ * A summary is logged at the end of each sensor execution, if configured the
+ * metrics of all executions are written to a JSON file at the end of the
+ * analysis.
+ */
+@ScannerSide
+public class SensorMetrics implements Startable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SensorMetrics.class);
+
+    /**
+     * The phases of a sensor execution.
+     */
+    public enum Phase {
+        /**
+         * Locating the report file.
+         */
+        LOCATE,
+        /**
+         * Parsing the report.
+         */
+        PARSE,
+        /**
+         * Resolving the source locations of rows, in parallel mode the time waiting
+         * for the resolution.
+         */
+        RESOLVE,
+        /**
+         * Creating and saving the issues.
+         */
+        SAVE
+    }
+
+    private final JQAssistantConfiguration configuration;
+
+    private final List<Execution> executions = new ArrayList<>();
+
+    private File projectDirectory;
+
+    private volatile Execution execution = new Execution("");
+
+    public SensorMetrics(JQAssistantConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * Begin a new sensor execution.
+     *
+     * @param module
+     *            The name of the module.
+     * @param projectDirectory
+     *            The project directory, used for resolving a relative metrics
+     *            file.
+     * @return The {@link Execution}.
+     */
+    public synchronized Execution begin(String module, File projectDirectory) {
+        this.projectDirectory = projectDirectory;
+        execution = new Execution(module);
+        executions.add(execution);
+        return execution;
+    }
+
+    /**
+     * Return the current sensor execution.
+     *
+     * @return The {@link Execution}.
+     */
+    public Execution getExecution() {
+        return execution;
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public synchronized void stop() {
+        Optional<String> metricsFile = configuration.getMetricsFile();
+        if (metricsFile.isPresent() && !executions.isEmpty()) {
+            File file = new File(metricsFile.get());
+            if (!file.isAbsolute() && projectDirectory != null) {
+                file = new File(projectDirectory, metricsFile.get());
+            }
+            write(file);
+        }
+        executions.clear();
+    }
+
+    private void write(File file) {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write("{\n  \"executions\": [");
+            for (int i = 0; i < executions.size(); i++) {
+                writer.write(i > 0 ? ",\n" : "\n");
+                executions.get(i).writeJson(writer);
+            }
+            writer.write("\n  ]\n}\n");
+            LOGGER.info("Wrote jQAssistant sensor metrics to '{}'.", file.getPath());
+        } catch (IOException e) {
+            LOGGER.warn("Cannot write jQAssistant sensor metrics to '{}'.", file.getPath(), e);
+        }
+    }
+
+    /**
+     * The metrics of a single sensor execution, the counters may be updated
+     * concurrently.
+     */
+    public static class Execution {
+
+        private final String module;
+
+        private final long start = System.nanoTime();
+
+        private long duration;
+
+        private final LongAdder[] phaseDurations = new LongAdder[Phase.values().length];
+
+        private final LongAdder rows = new LongAdder();
+
+        private final LongAdder skippedRows = new LongAdder();
+
+        private final LongAdder issues = new LongAdder();
+
+        private final LongAdder resolvedElements = new LongAdder();
+
+        private final LongAdder unresolvedElements = new LongAdder();
+
+        Execution(String module) {
+            this.module = module;
+            for (int i = 0; i < phaseDurations.length; i++) {
+                phaseDurations[i] = new LongAdder();
+            }
+        }
+
+        /**
+         * Add a duration to a phase.
+         *
+         * @param phase
+         *            The {@link Phase}.
+         * @param nanos
+         *            The duration in nanoseconds.
+         */
+        public void addDuration(Phase phase, long nanos) {
+            phaseDurations[phase.ordinal()].add(nanos);
+        }
+
+        public void addRow() {
+            rows.increment();
+        }
+
+        /**
+         * Count rows which are not reported as the maximum number of issues has been
+         * reached.
+         *
+         * @param count
+         *            The number of rows.
+         */
+        public void addSkippedRows(long count) {
+            skippedRows.add(count);
+        }
+
+        public void addIssue() {
+            issues.increment();
+        }
+
+        /**
+         * Count a row element which has been looked up by a resource resolver.
+         *
+         * @param resolved
+         *            <code>true</code> if a matching source file was found.
+         */
+        public void addElement(boolean resolved) {
+            (resolved ? resolvedElements : unresolvedElements).increment();
+        }
+
+        /**
+         * End the execution and log the summary.
+         */
+        public void end() {
+            duration = System.nanoTime() - start;
+            LOGGER.info(
+                "jQAssistant sensor finished in {} ms (locate: {} ms, parse: {} ms, resolve: {} ms, save: {} ms), {} rows ({} rows/s), {} skipped rows, "
+                    + "{} issues, {} resolved and {} unresolved elements.",
+                toMillis(duration), getDuration(Phase.LOCATE), getDuration(Phase.PARSE), getDuration(Phase.RESOLVE), getDuration(Phase.SAVE),
+                getRows(), getRowsPerSecond(), getSkippedRows(), getIssues(), getResolvedElements(), getUnresolvedElements());
+        }
+
+        /**
+         * Return the duration of a phase.
+         *
+         * @param phase
+         *            The {@link Phase}.
+         * @return The duration in milliseconds.
+         */
+        public long getDuration(Phase phase) {
+            return toMillis(phaseDurations[phase.ordinal()].sum());
+        }
+
+        public long getRows() {
+            return rows.sum();
+        }
+
+        public long getSkippedRows() {
+            return skippedRows.sum();
+        }
+
+        public long getIssues() {
+            return issues.sum();
+        }
+
+        public long getResolvedElements() {
+            return resolvedElements.sum();
+        }
+
+        public long getUnresolvedElements() {
+            return unresolvedElements.sum();
+        }
+
+        private long getRowsPerSecond() {
+            return duration > 0 ? getRows() * TimeUnit.SECONDS.toNanos(1) / duration : 0;
+        }
+
+        private void writeJson(Writer writer) throws IOException {
+            writer.write("    {\n");
+            writer.write("      \"module\": \"" + escape(module) + "\",\n");
+            writer.write("      \"durationMs\": " + toMillis(duration) + ",\n");
+            for (Phase phase : Phase.values()) {
+                writer.write("      \"" + phase.name().toLowerCase(Locale.ENGLISH) + "Ms\": " + getDuration(phase) + ",\n");
+            }
+            writer.write("      \"rows\": " + getRows() + ",\n");
+            writer.write("      \"rowsPerSecond\": " + getRowsPerSecond() + ",\n");
+            writer.write("      \"skippedRows\": " + getSkippedRows() + ",\n");
+            writer.write("      \"issues\": " + getIssues() + ",\n");
+            writer.write("      \"resolvedElements\": " + getResolvedElements() + ",\n");
+            writer.write("      \"unresolvedElements\": " + getUnresolvedElements() + "\n");
+            writer.write("    }");
+        }
+
+        private static long toMillis(long nanos) {
+            return TimeUnit.NANOSECONDS.toMillis(nanos);
+        }
+
+        /**
+         * Escapes a value for a JSON string, i.e. quotes, backslashes and control
+         * characters.
+         */
+        static String escape(String value) {
+            StringBuilder escaped = new StringBuilder(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    escaped.append('\\').append(c);
+                } else if (c < 0x20) {
+                    escaped.append(String.format("\\u%04x", (int) c));
+                } else {
+                    escaped.append(c);
+                }
+            }
+            return escaped.toString();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.jqassistant.contrib.sonarqube.plugin.sensor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.jqassistant.schema.report.v1.StatusEnumType;
+
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+/**
+ * Reads the status of the rules of a report ahead of the {@link ReportBinder}
+ * using a second {@link XMLStreamReader} on the same report.
+ * <p>
+ * The status of a rule follows its result in the report, i.e. the binder
+ * cannot decide if the result is required before it has been read. The
+ * lookahead only scans the report without binding any values and moves forward
+ * only, the report is therefore read twice but results of rules which are not
+ * retained are neither bound nor spilled.
+ */
+final class StatusLookahead implements Closeable {
+
+    /**
+     * The {@link StatusLookahead} which never knows the status of a rule.
+     */
+    static final StatusLookahead NONE = new StatusLookahead(null, null);
+
+    private static final String STATUS_ELEMENT = "status";
+
+    private final InputStream inputStream;
+
+    private final XMLStreamReader reader;
+
+    StatusLookahead(InputStream inputStream, XMLStreamReader reader) {
+        this.inputStream = inputStream;
+        this.reader = reader;
+    }
+
+    /**
+     * Return the status of the next rule with the given id, the lookahead is
+     * positioned after this rule afterwards.
+     *
+     * @param ruleId
+     *            The id of the rule.
+     * @return The status or <code>null</code> if it is unknown.
+     * @throws XMLStreamException
+     *             If the report cannot be read.
+     */
+    StatusEnumType getStatus(String ruleId) throws XMLStreamException {
+        if (reader == null || ruleId == null) {
+            return null;
+        }
+        while (reader.hasNext()) {
+            if (reader.next() == START_ELEMENT && isRule(reader.getLocalName()) && ruleId.equals(reader.getAttributeValue(null, ReportBinder.ID_ATTRIBUTE))) {
+                return readStatus();
+            }
+        }
+        return null;
+    }
+
+    private static boolean isRule(String localName) {
+        return ReportBinder.CONCEPT_ELEMENT.equals(localName) || ReportBinder.CONSTRAINT_ELEMENT.equals(localName);
+    }
+
+    private StatusEnumType readStatus() throws XMLStreamException {
+        StatusEnumType status = null;
+        while (reader.nextTag() == START_ELEMENT) {
+            if (STATUS_ELEMENT.equals(reader.getLocalName())) {
+                String value = reader.getElementText().trim();
+                try {
+                    status = StatusEnumType.fromValue(value);
+                } catch (IllegalArgumentException e) {
+                    // the binder reports the invalid value
+                    status = null;
+                }
+            } else {
+                ReportBinder.skipElement(reader);
+            }
+        }
+        return status;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                throw new IOException("Cannot close report.", e);
+            } finally {
+                inputStream.close();
+            }
+        }
+    }
+}
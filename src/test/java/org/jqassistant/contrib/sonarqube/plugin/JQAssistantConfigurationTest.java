@@ -59,7 +59,199 @@ class JQAssistantConfigurationTest {
     void getPropertyDefinitions() {
         List<PropertyDefinition> propertyDefinitions = JQAssistantConfiguration.getPropertyDefinitions();
         List<String> properties = propertyDefinitions.stream().map(PropertyDefinition::key).collect(toList());
-        assertThat(properties).containsExactly(REPORT_PATH, DISABLED, ISSUE_TYPE);
+        assertThat(properties).containsExactly(REPORT_PATH, DISABLED, ISSUE_TYPE, STREAMING, PARALLELISM, ROW_PARTITIONING, METRICS_FILE, CACHE_DIRECTORY,
+            CHANGED_FILES_ONLY, MAX_MESSAGE_LENGTH, AGGREGATION, MAX_ISSUES_PER_RULE, MAX_ISSUES,
+            IGNORED_PACKAGES, REPORT_PATHS, PROJECT_SENSOR, INCLUDED_RULES, EXCLUDED_RULES, HEAP_BUDGET, HEAP_THRESHOLD);
+    }
+
+    @Test
+    void streamingNotSet() {
+        assertThat(configuration.isStreamingEnabled()).isEqualTo(false);
+    }
+
+    @Test
+    void streamingSet() {
+        doReturn(Optional.of(Boolean.TRUE)).when(sonarConfiguration).getBoolean(STREAMING);
+
+        assertThat(configuration.isStreamingEnabled()).isEqualTo(true);
+    }
+
+    @Test
+    void projectSensorNotSet() {
+        assertThat(configuration.isProjectSensorEnabled()).isEqualTo(false);
+    }
+
+    @Test
+    void projectSensorSet() {
+        doReturn(Optional.of(Boolean.TRUE)).when(sonarConfiguration).getBoolean(PROJECT_SENSOR);
+
+        assertThat(configuration.isProjectSensorEnabled()).isEqualTo(true);
+    }
+
+    @Test
+    void getDefaultParallelism() {
+        assertThat(configuration.getParallelism()).isEqualTo(DEFAULT_PARALLELISM);
+    }
+
+    @Test
+    void getParallelism() {
+        doReturn(Optional.of(4)).when(sonarConfiguration).getInt(PARALLELISM);
+
+        assertThat(configuration.getParallelism()).isEqualTo(4);
+    }
+
+    @Test
+    void getParallelismOfAvailableProcessors() {
+        doReturn(Optional.of(0)).when(sonarConfiguration).getInt(PARALLELISM);
+
+        assertThat(configuration.getParallelism()).isEqualTo(Runtime.getRuntime().availableProcessors());
+    }
+
+    @Test
+    void rowPartitioningNotSet() {
+        assertThat(configuration.isRowPartitioningEnabled()).isEqualTo(true);
+    }
+
+    @Test
+    void rowPartitioningDisabled() {
+        doReturn(Optional.of(Boolean.FALSE)).when(sonarConfiguration).getBoolean(ROW_PARTITIONING);
+
+        assertThat(configuration.isRowPartitioningEnabled()).isEqualTo(false);
+    }
+
+    @Test
+    void metricsFileNotSet() {
+        assertThat(configuration.getMetricsFile()).isEmpty();
+    }
+
+    @Test
+    void metricsFileSet() {
+        doReturn(Optional.of("target/jqassistant-metrics.json")).when(sonarConfiguration).get(METRICS_FILE);
+
+        assertThat(configuration.getMetricsFile()).contains("target/jqassistant-metrics.json");
+    }
+
+    @Test
+    void cacheDirectoryNotSet() {
+        assertThat(configuration.getCacheDirectory()).isEmpty();
+    }
+
+    @Test
+    void cacheDirectorySet() {
+        doReturn(Optional.of(".jqassistant-cache")).when(sonarConfiguration).get(CACHE_DIRECTORY);
+
+        assertThat(configuration.getCacheDirectory()).contains(".jqassistant-cache");
+    }
+
+    @Test
+    void changedFilesOnlyNotSet() {
+        assertThat(configuration.isChangedFilesOnly()).isEqualTo(false);
+    }
+
+    @Test
+    void changedFilesOnlyForPullRequest() {
+        doReturn(true).when(sonarConfiguration).hasKey(PULL_REQUEST_KEY);
+
+        assertThat(configuration.isChangedFilesOnly()).isEqualTo(true);
+    }
+
+    @Test
+    void changedFilesOnlySet() {
+        doReturn(Optional.of(Boolean.FALSE)).when(sonarConfiguration).getBoolean(CHANGED_FILES_ONLY);
+
+        assertThat(configuration.isChangedFilesOnly()).isEqualTo(false);
+    }
+
+    @Test
+    void maxMessageLengthNotSet() {
+        assertThat(configuration.getMaxMessageLength()).isEqualTo(DEFAULT_MAX_MESSAGE_LENGTH);
+    }
+
+    @Test
+    void maxMessageLengthSet() {
+        doReturn(Optional.of(500)).when(sonarConfiguration).getInt(MAX_MESSAGE_LENGTH);
+
+        assertThat(configuration.getMaxMessageLength()).isEqualTo(500);
+    }
+
+    @Test
+    void aggregationNotSet() {
+        assertThat(configuration.getAggregation()).isEqualTo(Aggregation.NONE);
+    }
+
+    @Test
+    void aggregationSet() {
+        doReturn(Optional.of("line")).when(sonarConfiguration).get(AGGREGATION);
+
+        assertThat(configuration.getAggregation()).isEqualTo(Aggregation.LINE);
+    }
+
+    @Test
+    void maxIssuesNotSet() {
+        assertThat(configuration.getMaxIssuesPerRule()).isEqualTo(0);
+        assertThat(configuration.getMaxIssues()).isEqualTo(0);
+    }
+
+    @Test
+    void maxIssuesSet() {
+        doReturn(Optional.of(10)).when(sonarConfiguration).getInt(MAX_ISSUES_PER_RULE);
+        doReturn(Optional.of(1000)).when(sonarConfiguration).getInt(MAX_ISSUES);
+
+        assertThat(configuration.getMaxIssuesPerRule()).isEqualTo(10);
+        assertThat(configuration.getMaxIssues()).isEqualTo(1000);
+    }
+
+    @Test
+    void heapLimitsNotSet() {
+        assertThat(configuration.getHeapBudget()).isEqualTo(0);
+        assertThat(configuration.getHeapThreshold()).isEqualTo(0);
+    }
+
+    @Test
+    void heapLimitsSet() {
+        doReturn(Optional.of(512)).when(sonarConfiguration).getInt(HEAP_BUDGET);
+        doReturn(Optional.of(80)).when(sonarConfiguration).getInt(HEAP_THRESHOLD);
+
+        assertThat(configuration.getHeapBudget()).isEqualTo(512);
+        assertThat(configuration.getHeapThreshold()).isEqualTo(80);
+    }
+
+    @Test
+    void includedAndExcludedRules() {
+        doReturn(new String[] { "java:*", " spring-*:Component? " }).when(sonarConfiguration).getStringArray(INCLUDED_RULES);
+        doReturn(new String[] { "" }).when(sonarConfiguration).getStringArray(EXCLUDED_RULES);
+
+        assertThat(configuration.getIncludedRules()).containsExactly("java:*", "spring-*:Component?");
+        assertThat(configuration.getExcludedRules()).isEmpty();
+    }
+
+    @Test
+    void reportPathsNotSet() {
+        doReturn(new String[0]).when(sonarConfiguration).getStringArray(REPORT_PATHS);
+        doReturn(Optional.of("build/jqassistant-report.xml")).when(sonarConfiguration).get(REPORT_PATH);
+
+        assertThat(configuration.getReportPaths()).containsExactly("build/jqassistant-report.xml");
+    }
+
+    @Test
+    void reportPathsSet() {
+        doReturn(new String[] { "subsystem1/report.xml", " reports/*.xml" }).when(sonarConfiguration).getStringArray(REPORT_PATHS);
+
+        assertThat(configuration.getReportPaths()).containsExactly("subsystem1/report.xml", "reports/*.xml");
+    }
+
+    @Test
+    void ignoredPackagesNotSet() {
+        doReturn(new String[0]).when(sonarConfiguration).getStringArray(IGNORED_PACKAGES);
+
+        assertThat(configuration.getIgnoredPackages()).isEmpty();
+    }
+
+    @Test
+    void ignoredPackagesSet() {
+        doReturn(new String[] { "org.springframework", " javax " }).when(sonarConfiguration).getStringArray(IGNORED_PACKAGES);
+
+        assertThat(configuration.getIgnoredPackages()).containsExactly("org.springframework", "javax");
     }
 
     @Test
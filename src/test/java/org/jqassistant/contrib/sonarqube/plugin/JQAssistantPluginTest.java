@@ -3,9 +3,15 @@ package org.jqassistant.contrib.sonarqube.plugin;
 import java.util.List;
 
 import org.jqassistant.contrib.sonarqube.plugin.language.JavaResourceResolver;
+import org.jqassistant.contrib.sonarqube.plugin.sensor.IssueCache;
+import org.jqassistant.contrib.sonarqube.plugin.sensor.JQAssistantProjectSensor;
 import org.jqassistant.contrib.sonarqube.plugin.sensor.JQAssistantSensor;
+import org.jqassistant.contrib.sonarqube.plugin.sensor.ReportCache;
+import org.jqassistant.contrib.sonarqube.plugin.sensor.ReportLocationCache;
+import org.jqassistant.contrib.sonarqube.plugin.sensor.RowPartitioner;
 import org.jqassistant.contrib.sonarqube.plugin.sensor.RuleKeyResolver;
 import org.jqassistant.contrib.sonarqube.plugin.sensor.RulesRepository;
+import org.jqassistant.contrib.sonarqube.plugin.sensor.SensorMetrics;
 import org.junit.jupiter.api.Test;
 import org.sonar.api.Plugin;
 import org.sonar.api.SonarRuntime;
@@ -28,8 +34,14 @@ public class JQAssistantPluginTest {
         List<?> extensions = context.getExtensions();
         assertThat(extensions.contains(JQAssistantConfiguration.class), equalTo(true));
         assertThat(extensions.contains(JQAssistantSensor.class), equalTo(true));
+        assertThat(extensions.contains(JQAssistantProjectSensor.class), equalTo(true));
         assertThat(extensions.contains(JavaResourceResolver.class), equalTo(true));
         assertThat(extensions.contains(RuleKeyResolver.class), equalTo(true));
         assertThat(extensions.contains(RulesRepository.class), equalTo(true));
+        assertThat(extensions.contains(ReportCache.class), equalTo(true));
+        assertThat(extensions.contains(RowPartitioner.class), equalTo(true));
+        assertThat(extensions.contains(SensorMetrics.class), equalTo(true));
+        assertThat(extensions.contains(IssueCache.class), equalTo(true));
+        assertThat(extensions.contains(ReportLocationCache.class), equalTo(true));
     }
 }
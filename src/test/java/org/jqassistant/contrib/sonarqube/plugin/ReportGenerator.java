@@ -0,0 +1,221 @@
+package org.jqassistant.contrib.sonarqube.plugin;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Generates synthetic jQAssistant XML reports of configurable size and a
+ * matching tree of Java source files, e.g. for scale and soak tests.
+ * <p>
+ * Each group contains the configured number of successful concepts and failed
+ * constraints. The first column of each row is the primary column and
+ * references a Java type, the share of rows referencing a generated source file
+ * is configurable, the remaining rows reference types without source file. The
+ * report is written as a stream, i.e. the number of rows is not limited by the
+ * heap.
+ */
+@Builder
+@Getter
+public class ReportGenerator {
+
+    private static final String NAMESPACE = "http://schema.jqassistant.org/report/v1.8";
+
+    private static final String PRIMARY_COLUMN = "Type";
+
+    /**
+     * The number of lines of a generated source file.
+     */
+    private static final int SOURCE_LINES = 20;
+
+    @Builder.Default
+    private final int groups = 1;
+
+    @Builder.Default
+    private final int conceptsPerGroup = 1;
+
+    @Builder.Default
+    private final int constraintsPerGroup = 1;
+
+    @Builder.Default
+    private final int rowsPerRule = 10;
+
+    /**
+     * The number of columns per row including the primary column.
+     */
+    @Builder.Default
+    private final int columns = 2;
+
+    /**
+     * The length of the values of the non-primary columns.
+     */
+    @Builder.Default
+    private final int valueLength = 32;
+
+    /**
+     * The share of rows (0..1) referencing a generated source file.
+     */
+    @Builder.Default
+    private final double resolvableShare = 1.0;
+
+    /**
+     * The number of generated Java source files.
+     */
+    @Builder.Default
+    private final int sourceFiles = 100;
+
+    @Builder.Default
+    private final long seed = 0;
+
+    /**
+     * Writes the Java source files referenced by the report.
+     *
+     * @param sourceDirectory
+     *            The source directory, e.g. <code>src/main/java</code> of a
+     *            module.
+     * @return The written files.
+     */
+    public List<File> writeSources(File sourceDirectory) throws IOException {
+        List<File> files = new ArrayList<>(sourceFiles);
+        for (int sourceIndex = 0; sourceIndex < sourceFiles; sourceIndex++) {
+            File file = new File(sourceDirectory, getPackageName(sourceIndex).replace('.', '/') + "/" + getSimpleTypeName(sourceIndex) + ".java");
+            file.getParentFile().mkdirs();
+            Files.write(file.toPath(), getSource(sourceIndex).getBytes(StandardCharsets.UTF_8));
+            files.add(file);
+        }
+        return files;
+    }
+
+    /**
+     * Writes the report.
+     *
+     * @param reportFile
+     *            The report file.
+     * @return The {@link ReportStatistics}.
+     */
+    public ReportStatistics writeReport(File reportFile) throws IOException {
+        ReportStatistics statistics = new ReportStatistics();
+        Random random = new Random(seed);
+        char[] value = new char[valueLength];
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(reportFile), StandardCharsets.UTF_8))) {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            writer.write("<jqassistant-report xmlns=\"" + NAMESPACE + "\">\n");
+            for (int groupIndex = 0; groupIndex < groups; groupIndex++) {
+                writer.write("<group id=\"synthetic:Group" + groupIndex + "\" date=\"2021-06-01T12:00:00\">\n");
+                for (int conceptIndex = 0; conceptIndex < conceptsPerGroup; conceptIndex++) {
+                    writeRule(writer, "concept", "synthetic:Concept" + groupIndex + "_" + conceptIndex, false, random, value, statistics);
+                }
+                for (int constraintIndex = 0; constraintIndex < constraintsPerGroup; constraintIndex++) {
+                    writeRule(writer, "constraint", "synthetic:Constraint" + groupIndex + "_" + constraintIndex, true, random, value, statistics);
+                }
+                writer.write("<duration>0</duration>\n</group>\n");
+            }
+            writer.write("</jqassistant-report>\n");
+        }
+        return statistics;
+    }
+
+    /**
+     * Writes a rule, all names and values are generated and do not require
+     * escaping.
+     */
+    private void writeRule(Writer writer, String elementName, String id, boolean failure, Random random, char[] value, ReportStatistics statistics)
+        throws IOException {
+        writer.write("<" + elementName + " id=\"" + id + "\">\n");
+        writer.write("<description>Synthetic " + elementName + " " + id + ".</description>\n");
+        writer.write("<result>\n<columns count=\"" + columns + "\">\n");
+        writer.write("<column primary=\"true\">" + PRIMARY_COLUMN + "</column>\n");
+        for (int columnIndex = 1; columnIndex < columns; columnIndex++) {
+            writer.write("<column>" + getColumnName(columnIndex) + "</column>\n");
+        }
+        writer.write("</columns>\n<rows count=\"" + rowsPerRule + "\">\n");
+        for (int rowIndex = 0; rowIndex < rowsPerRule; rowIndex++) {
+            boolean resolvable = random.nextDouble() < resolvableShare;
+            int sourceIndex = random.nextInt(sourceFiles);
+            String typeName = resolvable ? getPackageName(sourceIndex) + "." + getSimpleTypeName(sourceIndex) : "com.external.External" + sourceIndex;
+            writer.write("<row>\n<column name=\"" + PRIMARY_COLUMN + "\">\n<element language=\"Java\">Type</element>\n");
+            writer.write("<source name=\"/" + typeName.replace('.', '/') + ".class\" line=\"" + (1 + rowIndex % SOURCE_LINES) + "\"/>\n");
+            writer.write("<value>" + typeName + "</value>\n</column>\n");
+            for (int columnIndex = 1; columnIndex < columns; columnIndex++) {
+                writer.write("<column name=\"" + getColumnName(columnIndex) + "\">\n<value>");
+                fillValue(value, random);
+                writer.write(value);
+                writer.write("</value>\n</column>\n");
+            }
+            writer.write("</row>\n");
+            statistics.rows++;
+            if (failure) {
+                statistics.failedRows++;
+                if (resolvable) {
+                    statistics.resolvableFailedRows++;
+                }
+            }
+        }
+        writer.write("</rows>\n</result>\n");
+        writer.write("<status>" + (failure ? "failure" : "success") + "</status>\n");
+        writer.write("<severity level=\"2\">major</severity>\n<duration>0</duration>\n");
+        writer.write("</" + elementName + ">\n");
+    }
+
+    private static void fillValue(char[] value, Random random) {
+        for (int i = 0; i < value.length; i++) {
+            value[i] = (char) ('a' + random.nextInt(26));
+        }
+    }
+
+    private static String getColumnName(int columnIndex) {
+        return "Column" + columnIndex;
+    }
+
+    private static String getPackageName(int sourceIndex) {
+        return "com.acme.p" + (sourceIndex % 100);
+    }
+
+    private static String getSimpleTypeName(int sourceIndex) {
+        return "Type" + sourceIndex;
+    }
+
+    private static String getSource(int sourceIndex) {
+        StringBuilder source = new StringBuilder();
+        source.append("package ").append(getPackageName(sourceIndex)).append(";\n");
+        source.append("public class ").append(getSimpleTypeName(sourceIndex)).append(" {\n");
+        for (int line = 3; line < SOURCE_LINES; line++) {
+            source.append("    // line ").append(line).append('\n');
+        }
+        source.append("}\n");
+        return source.toString();
+    }
+
+    /**
+     * The statistics of a generated report.
+     */
+    @Getter
+    public static class ReportStatistics {
+
+        /**
+         * The total number of rows.
+         */
+        private long rows;
+
+        /**
+         * The number of rows of failed rules, i.e. constraints.
+         */
+        private long failedRows;
+
+        /**
+         * The number of rows of failed rules referencing a generated source file.
+         */
+        private long resolvableFailedRows;
+    }
+}
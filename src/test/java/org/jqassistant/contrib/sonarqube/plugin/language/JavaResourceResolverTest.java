@@ -3,6 +3,7 @@ package org.jqassistant.contrib.sonarqube.plugin.language;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
+import org.jqassistant.contrib.sonarqube.plugin.JQAssistantConfiguration;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
@@ -12,15 +13,21 @@ import org.sonar.api.batch.fs.FilePredicates;
 import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.InputPath;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.config.internal.MapSettings;
 import org.sonar.java.model.GeneratedFile;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
-import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
 public class JavaResourceResolverTest {
@@ -34,7 +41,7 @@ public class JavaResourceResolverTest {
     @Mock
     private FilePredicate predicate;
 
-    private JavaResourceResolver resourceResolver = new JavaResourceResolver();
+    private JavaResourceResolver resourceResolver = new JavaResourceResolver(new JQAssistantConfiguration(new MapSettings().asConfig()));
 
     @Test
     public void typeMatches() {
@@ -100,6 +107,92 @@ public class JavaResourceResolverTest {
         assertNull(result);
     }
 
+    @Test
+    public void onlySuffixMatches() {
+        stubFileSystem();
+        Path path = Paths.get("src/test/java/org/jqassistant/contrib/Test.java");
+        Iterable<InputFile> it = singletonList(toInputFile(path));
+        doReturn(it).when(fileSystem).inputFiles(predicate);
+
+        InputPath result = resourceResolver.resolve(fileSystem, "Type", "/jqassistant/contrib/Test.class", null);
+        InputPath nonMatchingResult = resourceResolver.resolve(fileSystem, "Type", "/org/other/Test.class", null);
+
+        assertEquals(Paths.get(result.uri()), path.toAbsolutePath());
+        assertNull(nonMatchingResult);
+    }
+
+    @Test
+    public void indexIsBuiltOnce() {
+        stubFileSystem();
+        Path path1 = Paths.get("src/main/java/org/jqassistant/contrib/Foo.java");
+        Path path2 = Paths.get("src/main/java/org/jqassistant/contrib/Bar.java");
+        Iterable<InputFile> it = asList(toInputFile(path1), toInputFile(path2));
+        doReturn(it).when(fileSystem).inputFiles(predicate);
+
+        InputPath result1 = resourceResolver.resolve(fileSystem, "Type", "/org/jqassistant/contrib/Foo.class", null);
+        InputPath result2 = resourceResolver.resolve(fileSystem, "Type", "/org/jqassistant/contrib/Bar$Inner.class", null);
+
+        assertEquals(Paths.get(result1.uri()), path1.toAbsolutePath());
+        assertEquals(Paths.get(result2.uri()), path2.toAbsolutePath());
+        verify(fileSystem).inputFiles(predicate);
+    }
+
+    @Test
+    public void sourceFilePaths() {
+        stubFileSystem();
+        Path path = Paths.get("src/main/java/org/jqassistant/contrib/Test.java");
+        doReturn(singletonList(toInputFile(path))).when(fileSystem).inputFiles(predicate);
+
+        assertThat(resourceResolver.getSourceFilePaths(fileSystem)).contains("org/jqassistant/contrib/Test.java", "Test.java");
+        assertThat(resourceResolver.getSourceFilePath("Method", "/org/jqassistant/contrib/Test$Inner.class")).isEqualTo("org/jqassistant/contrib/Test.java");
+        assertThat(resourceResolver.getSourceFilePath("Package", "/org/jqassistant/contrib")).isNull();
+    }
+
+    @Test
+    public void changedSourceFilePaths() {
+        stubFileSystem();
+        InputFile changed = new TestInputFileBuilder("test", "src/main/java/org/jqassistant/contrib/Changed.java").setStatus(InputFile.Status.CHANGED)
+            .build();
+        InputFile unchanged = new TestInputFileBuilder("test", "src/main/java/org/jqassistant/contrib/Unchanged.java").setStatus(InputFile.Status.SAME)
+            .build();
+        doReturn(asList(changed, unchanged)).when(fileSystem).inputFiles(predicate);
+
+        assertThat(resourceResolver.getChangedSourceFilePaths(fileSystem)).contains("org/jqassistant/contrib/Changed.java", "Changed.java")
+            .doesNotContain("org/jqassistant/contrib/Unchanged.java", "Unchanged.java");
+        assertThat(resourceResolver.getSourceFilePaths(fileSystem)).contains("org/jqassistant/contrib/Unchanged.java");
+    }
+
+    @Test
+    public void unresolvedSourcePerModule() {
+        stubFileSystem();
+        doReturn(emptyList()).when(fileSystem).inputFiles(predicate);
+        FileSystem moduleFileSystem = mock(FileSystem.class);
+        doReturn(predicates).when(moduleFileSystem).predicates();
+        Path path = Paths.get("src/main/java/org/jqassistant/contrib/Test.java");
+        doReturn(singletonList(toInputFile(path))).when(moduleFileSystem).inputFiles(predicate);
+
+        InputPath result = resourceResolver.resolve(fileSystem, "Type", "/org/jqassistant/contrib/Test.class", null);
+        InputPath cachedResult = resourceResolver.resolve(fileSystem, "Type", "/org/jqassistant/contrib/Test.class", null);
+        InputPath moduleResult = resourceResolver.resolve(moduleFileSystem, "Type", "/org/jqassistant/contrib/Test.class", null);
+
+        assertNull(result);
+        assertNull(cachedResult);
+        assertEquals(Paths.get(moduleResult.uri()), path.toAbsolutePath());
+    }
+
+    @Test
+    public void ignoredPackage() {
+        MapSettings settings = new MapSettings().setProperty(JQAssistantConfiguration.IGNORED_PACKAGES, "org.springframework, org.jqassistant.generated");
+        JavaResourceResolver resolver = new JavaResourceResolver(new JQAssistantConfiguration(settings.asConfig()));
+
+        InputPath result = resolver.resolve(fileSystem, "Type", "/org/springframework/Foo.class", null);
+        InputPath generatedResult = resolver.resolve(fileSystem, "Type", "org/jqassistant/generated/Bar.class", null);
+
+        assertNull(result);
+        assertNull(generatedResult);
+        verify(fileSystem, never()).inputFiles(any(FilePredicate.class));
+    }
+
     @Test
     public void unsupportedType() {
         InputPath result = resourceResolver.resolve(fileSystem, "Unsupported", "/org/jqassistant/contrib/Test.class", null);
@@ -109,7 +202,7 @@ public class JavaResourceResolverTest {
 
     private void stubFileSystem() {
         doReturn(predicates).when(fileSystem).predicates();
-        doReturn(predicate).when(predicates).matchesPathPattern(anyString());
+        doReturn(predicate).when(predicates).hasExtension("java");
     }
 
     private InputFile toInputFile(Path javaPath) {
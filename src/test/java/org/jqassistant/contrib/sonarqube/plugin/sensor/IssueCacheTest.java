@@ -0,0 +1,269 @@
+package org.jqassistant.contrib.sonarqube.plugin.sensor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Value;
+import org.jqassistant.contrib.sonarqube.plugin.JQAssistantConfiguration;
+import org.jqassistant.contrib.sonarqube.plugin.ReportGenerator;
+import org.jqassistant.contrib.sonarqube.plugin.language.JavaResourceResolver;
+import org.jqassistant.schema.report.v1.ExecutableRuleType;
+import org.jqassistant.schema.report.v1.GroupType;
+import org.jqassistant.schema.report.v1.ReferencableRuleType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultFileSystem;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.rule.internal.ActiveRulesBuilder;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.batch.sensor.issue.ExternalIssue;
+import org.sonar.api.config.internal.MapSettings;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verifies the {@link IssueCache} by executing the {@link JQAssistantSensor}
+ * repeatedly for generated reports.
+ */
+class IssueCacheTest {
+
+    @TempDir
+    File baseDir;
+
+    private List<File> sourceFiles;
+
+    private InputFile.Status status;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        sourceFiles = generator(2).writeSources(new File(baseDir, "src/main/java"));
+    }
+
+    @Test
+    void unchangedReport() throws IOException {
+        ReportGenerator.ReportStatistics statistics = generator(2).writeReport(getReportFile());
+        MapSettings settings = settings();
+
+        Result first = execute(settings);
+        Result second = execute(settings);
+
+        assertThat(first.getIssues()).hasSize((int) statistics.getResolvableFailedRows());
+        assertThat(first.getMetrics().getRows()).isEqualTo(statistics.getResolvableFailedRows());
+        assertThat(second.getIssues()).isEqualTo(first.getIssues());
+        assertThat(second.getMetrics().getRows()).isEqualTo(0);
+        assertThat(second.getMetrics().getIssues()).isEqualTo(statistics.getResolvableFailedRows());
+    }
+
+    @Test
+    void changedRules() throws IOException {
+        ReportGenerator.ReportStatistics initialStatistics = generator(2).writeReport(getReportFile());
+        MapSettings settings = settings();
+        Result first = execute(settings);
+        // the generator is deterministic, i.e. the first two groups are unchanged
+        ReportGenerator.ReportStatistics statistics = generator(3).writeReport(getReportFile());
+
+        Result second = execute(settings);
+
+        assertThat(second.getIssues()).hasSize((int) statistics.getResolvableFailedRows());
+        assertThat(second.getIssues()).containsAll(first.getIssues());
+        assertThat(second.getMetrics().getRows()).isEqualTo(statistics.getResolvableFailedRows() - initialStatistics.getResolvableFailedRows());
+    }
+
+    @Test
+    void changedRulesWithSpilledRows() throws IOException {
+        ReportGenerator.ReportStatistics initialStatistics = generator(2).writeReport(getReportFile());
+        MapSettings settings = settings().setProperty(JQAssistantConfiguration.HEAP_THRESHOLD, "1");
+        Result first = execute(settings);
+        ReportGenerator.ReportStatistics statistics = generator(3).writeReport(getReportFile());
+
+        Result second = execute(settings);
+
+        assertThat(second.getIssues()).hasSize((int) statistics.getResolvableFailedRows());
+        assertThat(second.getIssues()).containsAll(first.getIssues());
+        assertThat(second.getMetrics().getRows()).isEqualTo(statistics.getResolvableFailedRows() - initialStatistics.getResolvableFailedRows());
+    }
+
+    @Test
+    void changedFile() throws IOException {
+        ReportGenerator.ReportStatistics statistics = generator(2).writeReport(getReportFile());
+        execute(settings());
+        // the number of lines is unchanged
+        Files.write(sourceFiles.get(0).toPath(), "// changed".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        Result second = execute(settings());
+
+        assertThat(second.getMetrics().getRows()).isEqualTo(statistics.getResolvableFailedRows());
+    }
+
+    @Test
+    void hashOfDigestedRows() throws IOException {
+        generator(2).writeReport(getReportFile());
+        ReportReader reportReader = ReportReader.getInstance();
+
+        try (RowSpill rowSpill = new RowSpill(new File(baseDir, "spill"), 1, 0, null)) {
+            List<ExecutableRuleType> rules = getRules(reportReader.read(getReportFile(), RuleFilter.ALL, rowSpill, true).getGroupOrConceptOrConstraint());
+            List<ExecutableRuleType> expectedRules = getRules(reportReader.readJaxb(getReportFile()).getGroupOrConceptOrConstraint());
+
+            assertThat(rowSpill.getSpilledRows()).isGreaterThan(0);
+            assertThat(rules.stream().map(rule -> rule.getResult().getRows())).allMatch(rows -> rows instanceof IssueCache.HashedRows);
+            assertThat(rules.stream().map(IssueCache::hash).collect(toList())).isEqualTo(expectedRules.stream().map(IssueCache::hash).collect(toList()));
+        }
+    }
+
+    @Test
+    void changedIssueType() throws IOException {
+        ReportGenerator.ReportStatistics statistics = generator(2).writeReport(getReportFile());
+        execute(settings());
+
+        Result second = execute(settings().setProperty(JQAssistantConfiguration.ISSUE_TYPE, "BUG"));
+
+        assertThat(second.getIssues()).hasSize((int) statistics.getResolvableFailedRows());
+        assertThat(second.getMetrics().getRows()).isEqualTo(statistics.getResolvableFailedRows());
+    }
+
+    @Test
+    void aggregatedIssues() throws IOException {
+        generator(2).writeReport(getReportFile());
+        MapSettings settings = settings().setProperty(JQAssistantConfiguration.AGGREGATION, "FILE");
+
+        Result first = execute(settings);
+        Result second = execute(settings);
+
+        // 2 groups with 2 constraints each, at most one issue per constraint and file
+        assertThat(first.getIssues().size()).isLessThanOrEqualTo(sourceFiles.size() * 4);
+        assertThat(first.getIssues()).anyMatch(issue -> issue.contains("occurrences"));
+        assertThat(second.getIssues()).isEqualTo(first.getIssues());
+        assertThat(second.getMetrics().getRows()).isEqualTo(0);
+    }
+
+    @Test
+    void changedRuleFilter() throws IOException {
+        ReportGenerator.ReportStatistics statistics = generator(2).writeReport(getReportFile());
+        execute(settings());
+
+        Result second = execute(settings().setProperty(JQAssistantConfiguration.EXCLUDED_RULES, "synthetic:Constraint1_*"));
+
+        assertThat(second.getIssues().size()).isLessThan((int) statistics.getResolvableFailedRows());
+        assertThat(second.getIssues()).noneMatch(issue -> issue.contains("Constraint1_"));
+        assertThat(second.getMetrics().getRows()).isEqualTo(second.getIssues().size());
+    }
+
+    @Test
+    void changedIgnoredPackages() throws IOException {
+        ReportGenerator.ReportStatistics statistics = generator(2).writeReport(getReportFile());
+        execute(settings());
+
+        Result second = execute(settings().setProperty(JQAssistantConfiguration.IGNORED_PACKAGES, "com.acme.p1"));
+
+        assertThat(second.getIssues().size()).isLessThan((int) statistics.getResolvableFailedRows());
+        assertThat(second.getIssues()).noneMatch(issue -> issue.contains("com/acme/p1/"));
+        assertThat(second.getMetrics().getRows()).isEqualTo(statistics.getResolvableFailedRows());
+    }
+
+    @Test
+    void changedFileStatus() throws IOException {
+        generator(2).writeReport(getReportFile());
+        MapSettings settings = settings().setProperty(JQAssistantConfiguration.CHANGED_FILES_ONLY, "true");
+        status = InputFile.Status.SAME;
+        Result first = execute(settings);
+
+        status = InputFile.Status.CHANGED;
+        Result second = execute(settings);
+
+        assertThat(first.getIssues()).isEmpty();
+        assertThat(second.getIssues()).isNotEmpty();
+        assertThat(second.getMetrics().getRows()).isEqualTo(second.getIssues().size());
+    }
+
+    @Test
+    void limitedIssues() throws IOException {
+        generator(2).writeReport(getReportFile());
+        MapSettings settings = settings().setProperty(JQAssistantConfiguration.MAX_ISSUES, "10");
+
+        Result first = execute(settings);
+        Result second = execute(settings);
+
+        assertThat(second.getIssues()).isEqualTo(first.getIssues());
+        assertThat(second.getMetrics().getRows()).isEqualTo(first.getMetrics().getRows());
+        assertThat(new File(baseDir, "target/jqassistant-cache")).doesNotExist();
+    }
+
+    @Test
+    void disabled() throws IOException {
+        generator(2).writeReport(getReportFile());
+
+        execute(new MapSettings());
+
+        assertThat(new File(baseDir, "target/jqassistant-cache")).doesNotExist();
+    }
+
+    private ReportGenerator generator(int groups) {
+        return ReportGenerator.builder().groups(groups).conceptsPerGroup(1).constraintsPerGroup(2).rowsPerRule(20).resolvableShare(0.8).sourceFiles(10)
+            .build();
+    }
+
+    private MapSettings settings() {
+        return new MapSettings().setProperty(JQAssistantConfiguration.CACHE_DIRECTORY, "target/jqassistant-cache");
+    }
+
+    private File getReportFile() {
+        File reportFile = new File(baseDir, JQAssistantConfiguration.DEFAULT_REPORT_PATH);
+        reportFile.getParentFile().mkdirs();
+        return reportFile;
+    }
+
+    private Result execute(MapSettings settings) throws IOException {
+        DefaultFileSystem fileSystem = new DefaultFileSystem(baseDir);
+        fileSystem.setWorkDir(new File(baseDir, ".scannerwork").toPath());
+        for (File sourceFile : sourceFiles) {
+            String relativePath = baseDir.toPath().relativize(sourceFile.toPath()).toString().replace(File.separatorChar, '/');
+            fileSystem.add(new TestInputFileBuilder("cache", relativePath).setModuleBaseDir(baseDir.toPath()).setLanguage("java").setStatus(status)
+                .setCharset(StandardCharsets.UTF_8).initMetadata(new String(Files.readAllBytes(sourceFile.toPath()), StandardCharsets.UTF_8)).build());
+        }
+        SensorContextTester sensorContext = SensorContextTester.create(baseDir).setFileSystem(fileSystem);
+        JQAssistantConfiguration configuration = new JQAssistantConfiguration(settings.asConfig());
+        JavaResourceResolver resourceResolver = new JavaResourceResolver(configuration);
+        SensorMetrics sensorMetrics = new SensorMetrics(configuration);
+        IssueHandler issueHandler = new IssueHandler(configuration, resourceResolver, new RuleKeyResolver(new ActiveRulesBuilder().build()), sensorMetrics);
+        JQAssistantSensor sensor = new JQAssistantSensor(configuration, issueHandler, new ReportCache(), new RowPartitioner(resourceResolver),
+            sensorMetrics, new IssueCache(configuration), new ReportLocationCache());
+
+        sensor.execute(sensorContext);
+
+        List<String> issues = sensorContext.allExternalIssues().stream().map(IssueCacheTest::toString).collect(toList());
+        return new Result(issues, sensorMetrics.getExecution());
+    }
+
+    private static List<ExecutableRuleType> getRules(List<ReferencableRuleType> rules) {
+        List<ExecutableRuleType> executableRules = new ArrayList<>();
+        for (ReferencableRuleType rule : rules) {
+            if (rule instanceof GroupType) {
+                executableRules.addAll(getRules(((GroupType) rule).getGroupOrConceptOrConstraint()));
+            } else if (rule instanceof ExecutableRuleType && ((ExecutableRuleType) rule).getResult() != null) {
+                executableRules.add((ExecutableRuleType) rule);
+            }
+        }
+        return executableRules;
+    }
+
+    private static String toString(ExternalIssue issue) {
+        return issue.type() + "|" + issue.ruleId() + "|" + issue.primaryLocation().inputComponent().key() + "|" + issue.primaryLocation().textRange() + "|"
+            + issue.primaryLocation().message() + "|" + issue.flows().size();
+    }
+
+    @Value
+    private static class Result {
+
+        List<String> issues;
+
+        SensorMetrics.Execution metrics;
+    }
+}
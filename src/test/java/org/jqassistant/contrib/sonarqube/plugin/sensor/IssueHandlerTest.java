@@ -2,11 +2,15 @@ package org.jqassistant.contrib.sonarqube.plugin.sensor;
 
 import org.jqassistant.contrib.sonarqube.plugin.JQAssistant;
 import org.jqassistant.contrib.sonarqube.plugin.JQAssistantConfiguration;
+import org.jqassistant.contrib.sonarqube.plugin.JQAssistantConfiguration.Aggregation;
 import org.jqassistant.contrib.sonarqube.plugin.language.JavaResourceResolver;
 import org.jqassistant.schema.report.v1.*;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.sonar.api.batch.fs.FileSystem;
@@ -24,9 +28,16 @@ import org.sonar.api.rules.Rule;
 import org.sonar.api.scanner.fs.InputProject;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.buschmais.jqassistant.core.rule.api.model.Severity.CRITICAL;
+import static com.buschmais.jqassistant.core.rule.api.model.Severity.MINOR;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.jqassistant.contrib.sonarqube.plugin.sensor.RuleType.CONCEPT;
 import static org.jqassistant.contrib.sonarqube.plugin.sensor.RuleType.CONSTRAINT;
 import static org.mockito.ArgumentMatchers.any;
@@ -74,15 +85,23 @@ class IssueHandlerTest {
     @Mock
     private JQAssistantConfiguration configuration;
 
+    private SensorMetrics sensorMetrics;
+
     private IssueHandler issueHandler;
 
     @BeforeEach
     public void setUp() {
         doReturn("Java").when(resourceResolver).getLanguage();
-        issueHandler = new IssueHandler(configuration, resourceResolver, ruleResolver);
+        sensorMetrics = new SensorMetrics(configuration);
+        issueHandler = new IssueHandler(configuration, resourceResolver, ruleResolver, sensorMetrics);
         doReturn(fileSystem).when(sensorContext).fileSystem();
     }
 
+    @AfterEach
+    public void tearDown() {
+        issueHandler.stop();
+    }
+
     /**
      * Verifies that invalid concepts are reported on project level
      */
@@ -186,6 +205,121 @@ class IssueHandlerTest {
         verify(newExternalIssue).newLocation();
     }
 
+    /**
+     * Verifies that issues are created in report order if source locations are
+     * resolved in parallel.
+     */
+    @Test
+    public void parallelConstraintViolationsWithMatchingSourceLocation() {
+        int rowCount = 600;
+        ConstraintType constraintType = new ConstraintType();
+        constraintType.setDescription("TestConstraint");
+        constraintType.setId("test:Constraint");
+        constraintType.setSeverity(getSeverityType(CRITICAL));
+        constraintType.setResult(createResultType(rowCount));
+        ConceptType conceptType = new ConceptType();
+        conceptType.setDescription("TestConcept");
+        conceptType.setId("test:Concept");
+        conceptType.setSeverity(getSeverityType(CRITICAL));
+        conceptType.setResult(createResultType(rowCount));
+        doReturn(4).when(configuration).getParallelism();
+        doReturn(CODE_SMELL).when(configuration).getIssueType();
+        stubExternalNewIssue();
+        stubSourceLocation();
+
+        issueHandler.process(sensorContext, PROJECT_PATH, asList(constraintType, conceptType));
+
+        ArgumentCaptor<String> messageCaptor = ArgumentCaptor.forClass(String.class);
+        verify(newIssueLocation, times(2 * rowCount)).message(messageCaptor.capture());
+        List<String> expectedMessages = new ArrayList<>();
+        for (String description : asList("TestConstraint", "TestConcept")) {
+            for (int i = 0; i < rowCount; i++) {
+                expectedMessages.add(description + "\nIndex:" + i + "\n");
+            }
+        }
+        assertThat(messageCaptor.getAllValues()).isEqualTo(expectedMessages);
+        verify(sensorContext, times(2)).newAdHocRule();
+        assertThat(issueHandler.getSkippedAdHocRuleRegistrations()).isEqualTo(2 * rowCount - 2);
+        SensorMetrics.Execution metrics = sensorMetrics.getExecution();
+        assertThat(metrics.getRows()).isEqualTo(2 * rowCount);
+        assertThat(metrics.getIssues()).isEqualTo(2 * rowCount);
+        assertThat(metrics.getResolvedElements()).isEqualTo(2 * rowCount);
+        assertThat(metrics.getUnresolvedElements()).isEqualTo(0);
+    }
+
+    /**
+     * Verifies that the threads resolving the source locations are re-used for
+     * each rule.
+     */
+    @Test
+    public void parallelRulesUseSharedThreads() {
+        doReturn(4).when(configuration).getParallelism();
+        doReturn(CODE_SMELL).when(configuration).getIssueType();
+        stubExternalNewIssue();
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        InputFile javaResource = mock(InputFile.class);
+        when(resourceResolver.resolve(any(FileSystem.class), any(String.class), any(String.class), any(String.class))).thenAnswer(invocation -> {
+            threads.add(Thread.currentThread());
+            return javaResource;
+        });
+        when(javaResource.selectLine(16)).thenReturn(mock(TextRange.class));
+
+        for (int i = 0; i < 8; i++) {
+            ConstraintType constraintType = new ConstraintType();
+            constraintType.setDescription("TestConstraint" + i);
+            constraintType.setId("test:Constraint" + i);
+            constraintType.setSeverity(getSeverityType(CRITICAL));
+            constraintType.setResult(createResultType(50));
+            issueHandler.process(sensorContext, PROJECT_PATH, constraintType);
+        }
+
+        // the calling thread may execute a task while joining it
+        assertThat(threads.size()).isLessThanOrEqualTo(4 + 1);
+    }
+
+    /**
+     * Verifies that issues of rules submitted to a pipeline are created in
+     * submission order if the number of pending rules is exceeded.
+     */
+    @Test
+    public void pipelinedConstraintViolations() {
+        int rowCount = 300;
+        List<ConstraintType> constraintTypes = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ConstraintType constraintType = new ConstraintType();
+            constraintType.setDescription("TestConstraint" + i);
+            constraintType.setId("test:Constraint" + i);
+            constraintType.setSeverity(getSeverityType(CRITICAL));
+            constraintType.setResult(createResultType(rowCount));
+            constraintTypes.add(constraintType);
+        }
+        doReturn(4).when(configuration).getParallelism();
+        doReturn(CODE_SMELL).when(configuration).getIssueType();
+        stubExternalNewIssue();
+        stubSourceLocation();
+        ArgumentCaptor<String> messageCaptor = ArgumentCaptor.forClass(String.class);
+
+        try (IssueHandler.Pipeline pipeline = issueHandler.pipeline(sensorContext, PROJECT_PATH, IssueHandler.IssueListener.NONE, 1)) {
+            pipeline.submit(constraintTypes.get(0));
+            verify(sensorContext, never()).newExternalIssue();
+            pipeline.submit(constraintTypes.get(1));
+            // the capacity is exceeded, i.e. the issues of the first rule are created
+            verify(newIssueLocation, times(rowCount)).message(anyString());
+            pipeline.submit(constraintTypes.get(2));
+            pipeline.complete();
+        }
+
+        verify(newIssueLocation, times(3 * rowCount)).message(messageCaptor.capture());
+        List<String> expectedMessages = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            for (int row = 0; row < rowCount; row++) {
+                expectedMessages.add("TestConstraint" + i + "\nIndex:" + row + "\n");
+            }
+        }
+        assertThat(messageCaptor.getAllValues()).isEqualTo(expectedMessages);
+        assertThat(sensorMetrics.getExecution().getRows()).isEqualTo(3 * rowCount);
+    }
+
     /**
      * Verifies that violated constraints with a source location are not reported on
      * the referenced element if it cannot be resolved (e.g. in another module).
@@ -202,6 +336,231 @@ class IssueHandlerTest {
         verify(sensorContext, never()).newIssue();
     }
 
+    /**
+     * Verifies that rows of a rule with the same file and line are aggregated into
+     * one issue with secondary locations.
+     */
+    @Test
+    public void aggregatedConstraintViolations() {
+        ConstraintType constraintType = new ConstraintType();
+        constraintType.setDescription("TestConstraint");
+        constraintType.setId("test:Constraint");
+        constraintType.setSeverity(getSeverityType(CRITICAL));
+        constraintType.setResult(createResultType(3));
+        doReturn(Aggregation.LINE).when(configuration).getAggregation();
+        doReturn(CODE_SMELL).when(configuration).getIssueType();
+        stubExternalNewIssue();
+        stubSourceLocation();
+
+        issueHandler.process(sensorContext, PROJECT_PATH, constraintType);
+
+        verify(sensorContext).newExternalIssue();
+        verify(newExternalIssue, times(2)).addLocation(newIssueLocation);
+        verify(newIssueLocation).message("TestConstraint\nIndex:0\n\n(3 occurrences)");
+        verify(newIssueLocation).message("TestConstraint\nIndex:1\n");
+        verify(newIssueLocation).message("TestConstraint\nIndex:2\n");
+        SensorMetrics.Execution metrics = sensorMetrics.getExecution();
+        assertThat(metrics.getRows()).isEqualTo(3);
+        assertThat(metrics.getIssues()).isEqualTo(1);
+    }
+
+    /**
+     * Verifies that rows of a rule on project level are aggregated into one issue.
+     */
+    @Test
+    public void aggregatedConstraintViolationsOnProjectLevel() {
+        ConstraintType constraintType = new ConstraintType();
+        constraintType.setDescription("TestConstraint");
+        constraintType.setId("test:Constraint");
+        ResultType resultType = createResultType(false);
+        resultType.getRows().getRow().add(resultType.getRows().getRow().get(0));
+        constraintType.setResult(resultType);
+        doReturn(Aggregation.FILE).when(configuration).getAggregation();
+        doReturn(PROJECT_PATH).when(fileSystem).baseDir();
+        doReturn(Optional.of(CONSTRAINT_RULE.ruleKey())).when(ruleResolver).resolve(CONSTRAINT);
+        doReturn(inputProject).when(sensorContext).project();
+        stubNewIssue();
+
+        issueHandler.process(sensorContext, PROJECT_PATH, constraintType);
+
+        verify(sensorContext).newIssue();
+        verify(newIssueLocation).message("[test:Constraint] TestConstraint\nValue:Test\n\n(2 occurrences)");
+    }
+
+    /**
+     * Verifies that the issues are created grouped by their files and the text
+     * range of a line is selected only once per file.
+     */
+    @Test
+    public void constraintViolationsGroupedByFile() {
+        ConstraintType constraintType = new ConstraintType();
+        constraintType.setDescription("TestConstraint");
+        constraintType.setId("test:Constraint");
+        constraintType.setSeverity(getSeverityType(CRITICAL));
+        constraintType.setResult(createResultType(4));
+        doReturn(CODE_SMELL).when(configuration).getIssueType();
+        stubExternalNewIssue();
+        InputFile fooResource = mock(InputFile.class);
+        InputFile barResource = mock(InputFile.class);
+        doReturn("Foo.java").when(fooResource).key();
+        doReturn("Bar.java").when(barResource).key();
+        doReturn(mock(TextRange.class)).when(fooResource).selectLine(16);
+        doReturn(mock(TextRange.class)).when(barResource).selectLine(16);
+        when(resourceResolver.resolve(any(FileSystem.class), any(String.class), any(String.class), any(String.class))).thenReturn(fooResource, barResource,
+            fooResource, barResource);
+
+        issueHandler.process(sensorContext, PROJECT_PATH, constraintType);
+
+        InOrder inOrder = inOrder(newIssueLocation);
+        inOrder.verify(newIssueLocation).message("TestConstraint\nIndex:0\n");
+        inOrder.verify(newIssueLocation).message("TestConstraint\nIndex:2\n");
+        inOrder.verify(newIssueLocation).message("TestConstraint\nIndex:1\n");
+        inOrder.verify(newIssueLocation).message("TestConstraint\nIndex:3\n");
+        verify(fooResource).selectLine(16);
+        verify(barResource).selectLine(16);
+        assertThat(sensorMetrics.getExecution().getIssues()).isEqualTo(4);
+    }
+
+    /**
+     * Verifies that rows exceeding the maximum number of issues per rule are
+     * neither resolved nor reported and a summary issue is created instead.
+     */
+    @Test
+    public void constraintViolationsExceedingMaxIssuesPerRule() {
+        ConstraintType constraintType = new ConstraintType();
+        constraintType.setDescription("TestConstraint");
+        constraintType.setId("test:Constraint");
+        constraintType.setSeverity(getSeverityType(CRITICAL));
+        constraintType.setResult(createResultType(3));
+        doReturn(2).when(configuration).getMaxIssuesPerRule();
+        doReturn(PROJECT_PATH).when(fileSystem).baseDir();
+        doReturn(CODE_SMELL).when(configuration).getIssueType();
+        doReturn(Optional.of(CONSTRAINT_RULE.ruleKey())).when(ruleResolver).resolve(CONSTRAINT);
+        doReturn(inputProject).when(sensorContext).project();
+        doReturn(newIssue).when(sensorContext).newIssue();
+        doReturn(newIssueLocation).when(newIssue).newLocation();
+        doReturn(newIssue).when(newIssue).forRule(any(RuleKey.class));
+        doReturn(newIssue).when(newIssue).at(newIssueLocation);
+        stubExternalNewIssue();
+        stubSourceLocation();
+
+        issueHandler.process(sensorContext, PROJECT_PATH, constraintType);
+
+        verify(resourceResolver, times(2)).resolve(any(FileSystem.class), any(String.class), any(String.class), any(String.class));
+        verify(sensorContext, times(2)).newExternalIssue();
+        verify(newIssueLocation).message("TestConstraint\nIndex:0\n");
+        verify(newIssueLocation).message("TestConstraint\nIndex:1\n");
+        verify(newIssueLocation).message("[test:Constraint] 1 violations are not reported as the maximum number of issues has been reached.");
+        SensorMetrics.Execution metrics = sensorMetrics.getExecution();
+        assertThat(metrics.getRows()).isEqualTo(2);
+        assertThat(metrics.getSkippedRows()).isEqualTo(1);
+    }
+
+    /**
+     * Verifies that the rules with the highest severity are reported within the
+     * maximum number of issues of the analysis.
+     */
+    @Test
+    public void constraintViolationsExceedingMaxIssues() {
+        ConstraintType minorConstraintType = new ConstraintType();
+        minorConstraintType.setDescription("MinorConstraint");
+        minorConstraintType.setId("test:MinorConstraint");
+        minorConstraintType.setSeverity(getSeverityType(MINOR));
+        minorConstraintType.setResult(createResultType(2));
+        ConstraintType criticalConstraintType = new ConstraintType();
+        criticalConstraintType.setDescription("CriticalConstraint");
+        criticalConstraintType.setId("test:CriticalConstraint");
+        criticalConstraintType.setSeverity(getSeverityType(CRITICAL));
+        criticalConstraintType.setResult(createResultType(2));
+        doReturn(2).when(configuration).getMaxIssues();
+        doReturn(PROJECT_PATH).when(fileSystem).baseDir();
+        doReturn(CODE_SMELL).when(configuration).getIssueType();
+        doReturn(Optional.of(CONSTRAINT_RULE.ruleKey())).when(ruleResolver).resolve(CONSTRAINT);
+        doReturn(inputProject).when(sensorContext).project();
+        doReturn(newIssue).when(sensorContext).newIssue();
+        doReturn(newIssueLocation).when(newIssue).newLocation();
+        doReturn(newIssue).when(newIssue).forRule(any(RuleKey.class));
+        doReturn(newIssue).when(newIssue).at(newIssueLocation);
+        stubExternalNewIssue();
+        stubSourceLocation();
+
+        issueHandler.process(sensorContext, PROJECT_PATH, asList(minorConstraintType, criticalConstraintType), IssueHandler.IssueListener.NONE);
+
+        verify(sensorContext, times(2)).newExternalIssue();
+        verify(newIssueLocation).message("CriticalConstraint\nIndex:0\n");
+        verify(newIssueLocation).message("CriticalConstraint\nIndex:1\n");
+        verify(newIssueLocation).message("[test:MinorConstraint] 2 violations are not reported as the maximum number of issues has been reached.");
+        assertThat(sensorMetrics.getExecution().getSkippedRows()).isEqualTo(2);
+    }
+
+    /**
+     * Verifies that only the issues created within a module count against the
+     * maximum number of issues of the analysis and the summary issue is only
+     * created by the module containing the report.
+     */
+    @Test
+    public void constraintViolationsExceedingMaxIssuesInModules() {
+        ConstraintType constraintType = new ConstraintType();
+        constraintType.setDescription("TestConstraint");
+        constraintType.setId("test:Constraint");
+        constraintType.setSeverity(getSeverityType(CRITICAL));
+        constraintType.setResult(createResultType(3));
+        doReturn(2).when(configuration).getMaxIssues();
+        doReturn(PROJECT_PATH).when(fileSystem).baseDir();
+        doReturn(CODE_SMELL).when(configuration).getIssueType();
+        doReturn(Optional.of(CONSTRAINT_RULE.ruleKey())).when(ruleResolver).resolve(CONSTRAINT);
+        doReturn(inputProject).when(sensorContext).project();
+        doReturn(newIssue).when(sensorContext).newIssue();
+        doReturn(newIssueLocation).when(newIssue).newLocation();
+        doReturn(newIssue).when(newIssue).forRule(any(RuleKey.class));
+        doReturn(newIssue).when(newIssue).at(newIssueLocation);
+        stubExternalNewIssue();
+        stubSourceLocation();
+        // none of the rows can be resolved within the first module
+        SensorContext moduleContext = mock(SensorContext.class);
+        FileSystem moduleFileSystem = mock(FileSystem.class);
+        doReturn(moduleFileSystem).when(moduleContext).fileSystem();
+        doReturn(new File("module")).when(moduleFileSystem).baseDir();
+        doReturn(null).when(resourceResolver).resolve(eq(moduleFileSystem), any(String.class), any(String.class), any(String.class));
+
+        issueHandler.process(moduleContext, PROJECT_PATH, constraintType);
+        issueHandler.process(sensorContext, PROJECT_PATH, constraintType);
+
+        verify(moduleContext, never()).newExternalIssue();
+        verify(moduleContext, never()).newIssue();
+        verify(sensorContext, times(2)).newExternalIssue();
+        verify(newIssueLocation).message("TestConstraint\nIndex:0\n");
+        verify(newIssueLocation).message("TestConstraint\nIndex:1\n");
+        verify(newIssueLocation).message("[test:Constraint] 1 violations are not reported as the maximum number of issues has been reached.");
+        SensorMetrics.Execution metrics = sensorMetrics.getExecution();
+        assertThat(metrics.getRows()).isEqualTo(5);
+        assertThat(metrics.getSkippedRows()).isEqualTo(1);
+    }
+
+    /**
+     * Verifies that no issues are created for unchanged files if only changed files
+     * shall be analyzed, e.g. for a pull request.
+     */
+    @Test
+    public void constraintViolationOnUnchangedFile() {
+        ConstraintType constraintType = new ConstraintType();
+        constraintType.setDescription("TestConstraint");
+        constraintType.setId("test:Constraint");
+        constraintType.setResult(createResultType(true));
+        doReturn(true).when(configuration).isChangedFilesOnly();
+        InputFile javaResource = mock(InputFile.class);
+        doReturn(InputFile.Status.SAME).when(javaResource).status();
+        when(resourceResolver.resolve(any(FileSystem.class), any(String.class), any(String.class), any(String.class))).thenReturn(javaResource);
+
+        issueHandler.process(sensorContext, PROJECT_PATH, constraintType);
+
+        verify(sensorContext, never()).newExternalIssue();
+        verify(sensorContext, never()).newIssue();
+        SensorMetrics.Execution metrics = sensorMetrics.getExecution();
+        assertThat(metrics.getRows()).isEqualTo(1);
+        assertThat(metrics.getIssues()).isEqualTo(0);
+    }
+
     private SeverityType getSeverityType(com.buschmais.jqassistant.core.rule.api.model.Severity severity) {
         SeverityType severityType = new SeverityType();
         severityType.setValue(CRITICAL.getValue());
@@ -242,6 +601,44 @@ class IssueHandlerTest {
         return resultType;
     }
 
+    private ResultType createResultType(int rowCount) {
+        ResultType resultType = new ResultType();
+        ColumnsHeaderType columnsHeaderType = new ColumnsHeaderType();
+        columnsHeaderType.setCount(2);
+        ColumnHeaderType primaryColumnHeaderType = new ColumnHeaderType();
+        primaryColumnHeaderType.setValue("Value");
+        primaryColumnHeaderType.setPrimary(true);
+        columnsHeaderType.getColumn().add(primaryColumnHeaderType);
+        ColumnHeaderType indexColumnHeaderType = new ColumnHeaderType();
+        indexColumnHeaderType.setValue("Index");
+        columnsHeaderType.getColumn().add(indexColumnHeaderType);
+        resultType.setColumns(columnsHeaderType);
+
+        RowsType rowsType = new RowsType();
+        for (int i = 0; i < rowCount; i++) {
+            RowType rowType = new RowType();
+            ColumnType columnType = new ColumnType();
+            columnType.setName("Value");
+            columnType.setValue("Test");
+            ElementType elementType = new ElementType();
+            elementType.setLanguage("Java");
+            elementType.setValue("WriteField");
+            columnType.setElement(elementType);
+            SourceType sourceType = new SourceType();
+            sourceType.setName("com/buschmais/jqassistant/examples/sonar/project/Bar.class");
+            sourceType.setLine(16);
+            columnType.setSource(sourceType);
+            rowType.getColumn().add(columnType);
+            ColumnType indexColumnType = new ColumnType();
+            indexColumnType.setName("Index");
+            indexColumnType.setValue(Integer.toString(i));
+            rowType.getColumn().add(indexColumnType);
+            rowsType.getRow().add(rowType);
+        }
+        resultType.setRows(rowsType);
+        return resultType;
+    }
+
     private void stubNewIssue() {
         doReturn(newIssue).when(sensorContext).newIssue();
         doReturn(newIssueLocation).when(newIssue).newLocation();
@@ -0,0 +1,175 @@
+package org.jqassistant.contrib.sonarqube.plugin.sensor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jqassistant.contrib.sonarqube.plugin.JQAssistantConfiguration;
+import org.jqassistant.contrib.sonarqube.plugin.ReportGenerator;
+import org.jqassistant.contrib.sonarqube.plugin.language.JavaResourceResolver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonar.api.batch.fs.internal.DefaultFileSystem;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.rule.internal.ActiveRulesBuilder;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.batch.sensor.issue.ExternalIssue;
+import org.sonar.api.config.internal.MapSettings;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verifies the {@link JQAssistantProjectSensor} by comparing its issues with
+ * the issues created by the {@link JQAssistantSensor} for all modules.
+ */
+class JQAssistantProjectSensorTest {
+
+    @TempDir
+    File baseDir;
+
+    private List<File> module1Files;
+
+    private List<File> module2Files;
+
+    private ReportGenerator.ReportStatistics statistics;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ReportGenerator generator = ReportGenerator.builder().groups(2).conceptsPerGroup(1).constraintsPerGroup(2).rowsPerRule(20).resolvableShare(0.8)
+            .sourceFiles(10).build();
+        List<File> sourceFiles = generator.writeSources(new File(baseDir, "module1/src/main/java"));
+        // every second source file belongs to module2
+        module1Files = new ArrayList<>();
+        module2Files = new ArrayList<>();
+        for (int i = 0; i < sourceFiles.size(); i++) {
+            File sourceFile = sourceFiles.get(i);
+            if (i % 2 == 0) {
+                module1Files.add(sourceFile);
+            } else {
+                File module2File = new File(baseDir, "module2" + sourceFile.getPath().substring(new File(baseDir, "module1").getPath().length()));
+                module2File.getParentFile().mkdirs();
+                Files.move(sourceFile.toPath(), module2File.toPath());
+                module2Files.add(module2File);
+            }
+        }
+        File reportFile = new File(baseDir, JQAssistantConfiguration.DEFAULT_REPORT_PATH);
+        reportFile.getParentFile().mkdirs();
+        statistics = generator.writeReport(reportFile);
+    }
+
+    @Test
+    void singlePass() throws IOException {
+        MapSettings settings = new MapSettings().setProperty(JQAssistantConfiguration.PROJECT_SENSOR, "true");
+        Components components = new Components(settings);
+        List<File> allFiles = new ArrayList<>(module1Files);
+        allFiles.addAll(module2Files);
+        SensorContextTester projectContext = createContext(baseDir, allFiles);
+
+        components.moduleSensor.execute(projectContext);
+        assertThat(projectContext.allExternalIssues()).isEmpty();
+        components.projectSensor.execute(projectContext);
+
+        assertThat(toString(projectContext)).hasSize((int) statistics.getResolvableFailedRows()).containsExactlyInAnyOrderElementsOf(moduleIssues());
+        assertThat(components.sensorMetrics.getExecution().getIssues()).isEqualTo(statistics.getResolvableFailedRows());
+    }
+
+    @Test
+    void spilledRows() throws IOException {
+        // the rows exceed the minimum heap budget of 1 MB
+        ReportGenerator.builder().groups(2).conceptsPerGroup(1).constraintsPerGroup(2).rowsPerRule(2000).resolvableShare(0.8).sourceFiles(10).build()
+            .writeReport(new File(baseDir, JQAssistantConfiguration.DEFAULT_REPORT_PATH));
+        List<File> allFiles = new ArrayList<>(module1Files);
+        allFiles.addAll(module2Files);
+        SensorContextTester heapContext = createContext(baseDir, allFiles);
+        new Components(new MapSettings().setProperty(JQAssistantConfiguration.PROJECT_SENSOR, "true")).projectSensor.execute(heapContext);
+        Components components = new Components(
+            new MapSettings().setProperty(JQAssistantConfiguration.PROJECT_SENSOR, "true").setProperty(JQAssistantConfiguration.HEAP_BUDGET, "1"));
+        SensorContextTester spillContext = createContext(baseDir, allFiles);
+        File workDir = spillContext.fileSystem().workDir();
+
+        components.projectSensor.execute(spillContext);
+
+        assertThat(toString(spillContext)).isNotEmpty().isEqualTo(toString(heapContext));
+        assertThat(workDir.listFiles()).hasSize(1);
+        components.reportCache.stop();
+        assertThat(workDir.listFiles()).isEmpty();
+    }
+
+    @Test
+    void disabled() throws IOException {
+        Components components = new Components(new MapSettings());
+        SensorContextTester projectContext = createContext(baseDir, module1Files);
+
+        components.projectSensor.execute(projectContext);
+
+        assertThat(projectContext.allExternalIssues()).isEmpty();
+    }
+
+    /**
+     * Executes the {@link JQAssistantSensor} for both modules.
+     */
+    private List<String> moduleIssues() throws IOException {
+        // the project directory of a module context is the module directory, i.e. the report is configured using its absolute path
+        Components components = new Components(new MapSettings().setProperty(JQAssistantConfiguration.REPORT_PATH,
+            new File(baseDir, JQAssistantConfiguration.DEFAULT_REPORT_PATH).getAbsolutePath()));
+        List<String> issues = new ArrayList<>();
+        for (String module : new String[] { "module1", "module2" }) {
+            SensorContextTester moduleContext = createContext(new File(baseDir, module), "module1".equals(module) ? module1Files : module2Files);
+            components.moduleSensor.execute(moduleContext);
+            issues.addAll(toString(moduleContext));
+        }
+        return issues;
+    }
+
+    private SensorContextTester createContext(File moduleDir, List<File> sourceFiles) throws IOException {
+        DefaultFileSystem fileSystem = new DefaultFileSystem(moduleDir);
+        for (File sourceFile : sourceFiles) {
+            String relativePath = baseDir.toPath().relativize(sourceFile.toPath()).toString().replace(File.separatorChar, '/');
+            fileSystem.add(new TestInputFileBuilder("project", relativePath).setModuleBaseDir(baseDir.toPath()).setLanguage("java")
+                .setCharset(StandardCharsets.UTF_8).initMetadata(new String(Files.readAllBytes(sourceFile.toPath()), StandardCharsets.UTF_8)).build());
+        }
+        fileSystem.setWorkDir(new File(moduleDir, ".scannerwork").toPath());
+        return SensorContextTester.create(moduleDir).setFileSystem(fileSystem);
+    }
+
+    private static List<String> toString(SensorContextTester sensorContext) {
+        return sensorContext.allExternalIssues().stream().map(JQAssistantProjectSensorTest::toString).collect(toList());
+    }
+
+    private static String toString(ExternalIssue issue) {
+        return issue.ruleId() + "|" + issue.primaryLocation().inputComponent().key() + "|" + issue.primaryLocation().textRange() + "|"
+            + issue.primaryLocation().message();
+    }
+
+    /**
+     * The sensors and their dependencies.
+     */
+    private static class Components {
+
+        private final SensorMetrics sensorMetrics;
+
+        private final ReportCache reportCache;
+
+        private final JQAssistantSensor moduleSensor;
+
+        private final JQAssistantProjectSensor projectSensor;
+
+        Components(MapSettings settings) {
+            JQAssistantConfiguration configuration = new JQAssistantConfiguration(settings.asConfig());
+            JavaResourceResolver resourceResolver = new JavaResourceResolver(configuration);
+            sensorMetrics = new SensorMetrics(configuration);
+            IssueHandler issueHandler = new IssueHandler(configuration, resourceResolver, new RuleKeyResolver(new ActiveRulesBuilder().build()), sensorMetrics);
+            reportCache = new ReportCache();
+            IssueCache issueCache = new IssueCache(configuration);
+            ReportLocationCache reportLocationCache = new ReportLocationCache();
+            moduleSensor = new JQAssistantSensor(configuration, issueHandler, reportCache, new RowPartitioner(resourceResolver), sensorMetrics, issueCache,
+                reportLocationCache);
+            projectSensor = new JQAssistantProjectSensor(configuration, issueHandler, reportCache, sensorMetrics, issueCache, reportLocationCache);
+        }
+    }
+}
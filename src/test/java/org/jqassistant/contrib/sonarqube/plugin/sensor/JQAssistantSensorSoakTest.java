@@ -0,0 +1,157 @@
+package org.jqassistant.contrib.sonarqube.plugin.sensor;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import lombok.Value;
+import org.jqassistant.contrib.sonarqube.plugin.JQAssistantConfiguration;
+import org.jqassistant.contrib.sonarqube.plugin.ReportGenerator;
+import org.jqassistant.contrib.sonarqube.plugin.language.JavaResourceResolver;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.internal.DefaultFileSystem;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.rule.internal.ActiveRulesBuilder;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.config.internal.MapSettings;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Executes the {@link JQAssistantSensor} against reports and source trees
+ * created by the {@link ReportGenerator}.
+ * <p>
+ * The soak test is disabled by default, it is enabled by setting the system
+ * property <code>jqassistant.soak.rows</code> to the number of rows (e.g.
+ * 10000000). Properties <code>sonar.jqassistant.*</code> passed as system
+ * properties are used for the configuration of the sensor. The runtime and the
+ * peak heap usage are logged and written to
+ * <code>target/jqassistant-soak.properties</code>.
+ */
+class JQAssistantSensorSoakTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JQAssistantSensorSoakTest.class);
+
+    private static final String SOAK_ROWS = "jqassistant.soak.rows";
+
+    private static final int SOAK_GROUPS = 10;
+
+    private static final int SOAK_CONSTRAINTS_PER_GROUP = 10;
+
+    @TempDir
+    File baseDir;
+
+    @Test
+    void generatedReport() throws IOException {
+        ReportGenerator generator = ReportGenerator.builder().groups(2).conceptsPerGroup(2).constraintsPerGroup(3).rowsPerRule(50).columns(3)
+            .resolvableShare(0.5).sourceFiles(20).build();
+
+        Result result = execute(generator, new MapSettings());
+
+        assertThat(result.getStatistics().getRows()).isEqualTo(2 * 5 * 50);
+        assertThat(result.getStatistics().getFailedRows()).isEqualTo(2 * 3 * 50);
+        assertThat(result.getStatistics().getResolvableFailedRows()).isBetween(1L, 2 * 3 * 50 - 1L);
+        assertThat(result.getExternalIssues()).isEqualTo(result.getStatistics().getResolvableFailedRows());
+        // rows referencing types without source file are dropped by the row partitioning
+        assertThat(result.getMetrics().getRows()).isEqualTo(result.getExternalIssues());
+        assertThat(result.getMetrics().getIssues()).isEqualTo(result.getExternalIssues());
+        assertThat(result.getMetrics().getResolvedElements()).isEqualTo(result.getExternalIssues());
+        assertThat(result.getMetrics().getUnresolvedElements()).isEqualTo(0);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = SOAK_ROWS, matches = "\\d+")
+    void soak() throws IOException {
+        long rows = Long.parseLong(System.getProperty(SOAK_ROWS));
+        ReportGenerator generator = ReportGenerator.builder().groups(SOAK_GROUPS).conceptsPerGroup(0).constraintsPerGroup(SOAK_CONSTRAINTS_PER_GROUP)
+            .rowsPerRule((int) (rows / (SOAK_GROUPS * SOAK_CONSTRAINTS_PER_GROUP))).columns(3).resolvableShare(0.9).sourceFiles(10000).build();
+        MapSettings settings = new MapSettings();
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("sonar.jqassistant.")) {
+                settings.setProperty(name, System.getProperty(name));
+            }
+        }
+        List<MemoryPoolMXBean> heapPools = getHeapPools();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        Result result = execute(generator, settings);
+
+        long peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        LOGGER.info("Soak test processed {} rows ({} issues) in {} ms, peak heap usage {} MB.", result.getStatistics().getRows(),
+            result.getExternalIssues(), result.getDuration(), peakHeap / (1024 * 1024));
+        Properties properties = new Properties();
+        properties.setProperty("rows", Long.toString(result.getStatistics().getRows()));
+        properties.setProperty("issues", Long.toString(result.getExternalIssues()));
+        properties.setProperty("duration.ms", Long.toString(result.getDuration()));
+        properties.setProperty("heap.peak.bytes", Long.toString(peakHeap));
+        for (SensorMetrics.Phase phase : SensorMetrics.Phase.values()) {
+            properties.setProperty(phase.name().toLowerCase(Locale.ENGLISH) + ".ms", Long.toString(result.getMetrics().getDuration(phase)));
+        }
+        File resultFile = new File("target/jqassistant-soak.properties");
+        resultFile.getParentFile().mkdirs();
+        try (OutputStream outputStream = new FileOutputStream(resultFile)) {
+            properties.store(outputStream, "jQAssistant sensor soak test");
+        }
+        assertThat(result.getExternalIssues()).isEqualTo(result.getStatistics().getResolvableFailedRows());
+    }
+
+    private Result execute(ReportGenerator generator, MapSettings settings) throws IOException {
+        File reportFile = new File(baseDir, JQAssistantConfiguration.DEFAULT_REPORT_PATH);
+        reportFile.getParentFile().mkdirs();
+        ReportGenerator.ReportStatistics statistics = generator.writeReport(reportFile);
+        DefaultFileSystem fileSystem = new DefaultFileSystem(baseDir);
+        for (File sourceFile : generator.writeSources(new File(baseDir, "src/main/java"))) {
+            String relativePath = baseDir.toPath().relativize(sourceFile.toPath()).toString().replace(File.separatorChar, '/');
+            fileSystem.add(new TestInputFileBuilder("soak", relativePath).setModuleBaseDir(baseDir.toPath()).setLanguage("java")
+                .setCharset(StandardCharsets.UTF_8).initMetadata(new String(Files.readAllBytes(sourceFile.toPath()), StandardCharsets.UTF_8)).build());
+        }
+        fileSystem.setWorkDir(new File(baseDir, ".scannerwork").toPath());
+        SensorContextTester sensorContext = SensorContextTester.create(baseDir).setFileSystem(fileSystem);
+        JQAssistantConfiguration configuration = new JQAssistantConfiguration(settings.asConfig());
+        JavaResourceResolver resourceResolver = new JavaResourceResolver(configuration);
+        SensorMetrics sensorMetrics = new SensorMetrics(configuration);
+        IssueHandler issueHandler = new IssueHandler(configuration, resourceResolver, new RuleKeyResolver(new ActiveRulesBuilder().build()), sensorMetrics);
+        ReportCache reportCache = new ReportCache();
+        JQAssistantSensor sensor = new JQAssistantSensor(configuration, issueHandler, reportCache, new RowPartitioner(resourceResolver),
+            sensorMetrics, new IssueCache(configuration), new ReportLocationCache());
+
+        long start = System.nanoTime();
+        sensor.execute(sensorContext);
+        long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        reportCache.stop();
+        issueHandler.stop();
+
+        return new Result(statistics, sensorContext.allExternalIssues().size(), duration, sensorMetrics.getExecution());
+    }
+
+    private static List<MemoryPoolMXBean> getHeapPools() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream().filter(pool -> pool.getType() == MemoryType.HEAP).collect(toList());
+    }
+
+    @Value
+    private static class Result {
+
+        ReportGenerator.ReportStatistics statistics;
+
+        long externalIssues;
+
+        long duration;
+
+        SensorMetrics.Execution metrics;
+    }
+}
@@ -1,12 +1,15 @@
 package org.jqassistant.contrib.sonarqube.plugin.sensor;
 
 import org.jqassistant.contrib.sonarqube.plugin.JQAssistantConfiguration;
+import org.jqassistant.schema.report.v1.ConstraintType;
 import org.jqassistant.schema.report.v1.ExecutableRuleType;
+import org.jqassistant.schema.report.v1.JqassistantReport;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.sonar.api.batch.fs.FileSystem;
@@ -14,7 +17,10 @@ import org.sonar.api.batch.sensor.SensorContext;
 
 import java.io.File;
 import java.net.URISyntaxException;
+import java.util.List;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static org.mockito.Mockito.*;
 
 /**
@@ -35,6 +41,9 @@ public class JQAssistantSensorTest {
     @Mock
     private IssueHandler issueHandler;
 
+    @Mock
+    private RowPartitioner rowPartitioner;
+
     private File baseDir;
 
     private JQAssistantSensor sensor;
@@ -42,7 +51,8 @@ public class JQAssistantSensorTest {
     @BeforeEach
     public void setUp() throws URISyntaxException {
         baseDir = new File(JQAssistantSensorTest.class.getResource("/").toURI().getPath());
-        sensor = new JQAssistantSensor(configuration, issueHandler);
+        sensor = new JQAssistantSensor(configuration, issueHandler, new ReportCache(), rowPartitioner, new SensorMetrics(configuration),
+            new IssueCache(configuration), new ReportLocationCache());
     }
 
     @ParameterizedTest
@@ -52,7 +62,69 @@ public class JQAssistantSensorTest {
 
         sensor.execute(sensorContext);
 
-        verify(issueHandler).process(eq(sensorContext), any(File.class), any(ExecutableRuleType.class));
+        verify(issueHandler).process(eq(sensorContext), any(File.class), argThat((List<ExecutableRuleType> rules) -> rules.size() == 1),
+            any(IssueHandler.IssueListener.class));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "jqassistant-report-concept-issue.xml", "jqassistant-report-1_8.xml", "jqassistant-report-constraint-issue.xml" })
+    public void streamedIssues(String reportWithIssue) {
+        stubFileSystem(reportWithIssue);
+        doReturn(true).when(configuration).isStreamingEnabled();
+
+        sensor.execute(sensorContext);
+
+        verify(issueHandler).process(eq(sensorContext), any(File.class), any(ExecutableRuleType.class), any(IssueHandler.IssueListener.class));
+    }
+
+    @Test
+    public void mergedReports() {
+        stubFileSystem("jqassistant-report-1_8.xml", "jqassistant-report-*-issue.xml");
+
+        sensor.execute(sensorContext);
+
+        // the concept is contained in two reports
+        verify(issueHandler).process(eq(sensorContext), any(File.class), argThat((List<ExecutableRuleType> rules) -> rules.size() == 2),
+            any(IssueHandler.IssueListener.class));
+    }
+
+    @Test
+    public void streamedMergedReports() {
+        stubFileSystem("jqassistant-report-1_8.xml", "jqassistant-report-*-issue.xml");
+        doReturn(true).when(configuration).isStreamingEnabled();
+
+        sensor.execute(sensorContext);
+
+        verify(issueHandler, times(2)).process(eq(sensorContext), any(File.class), any(ExecutableRuleType.class), any(IssueHandler.IssueListener.class));
+    }
+
+    @Test
+    public void pipelinedMergedReports() {
+        stubFileSystem("jqassistant-report-1_8.xml", "jqassistant-report-*-issue.xml");
+        doReturn(true).when(configuration).isStreamingEnabled();
+        doReturn(2).when(configuration).getParallelism();
+        IssueHandler.Pipeline pipeline = mock(IssueHandler.Pipeline.class);
+        doReturn(pipeline).when(issueHandler).pipeline(eq(sensorContext), any(File.class), any(IssueHandler.IssueListener.class), eq(2));
+
+        sensor.execute(sensorContext);
+
+        InOrder inOrder = inOrder(pipeline);
+        inOrder.verify(pipeline, times(2)).submit(any(ExecutableRuleType.class));
+        inOrder.verify(pipeline).complete();
+        inOrder.verify(pipeline).close();
+        verify(issueHandler, never()).process(any(SensorContext.class), any(File.class), any(ExecutableRuleType.class), any(IssueHandler.IssueListener.class));
+    }
+
+    @Test
+    public void partitionedIssues() {
+        stubFileSystem("jqassistant-report-constraint-issue.xml");
+        doReturn(true).when(configuration).isRowPartitioningEnabled();
+        List<ExecutableRuleType> moduleRules = singletonList(new ConstraintType());
+        doReturn(moduleRules).when(rowPartitioner).getModuleRules(eq(sensorContext), any(File.class), any(JqassistantReport.class), anyList(), anyBoolean());
+
+        sensor.execute(sensorContext);
+
+        verify(issueHandler).process(eq(sensorContext), any(File.class), same(moduleRules), any(IssueHandler.IssueListener.class));
     }
 
     @Test
@@ -61,11 +133,12 @@ public class JQAssistantSensorTest {
 
         sensor.execute(sensorContext);
 
-        verify(issueHandler, never()).process(eq(sensorContext), any(File.class), any(ExecutableRuleType.class));
+        verify(issueHandler, never()).process(eq(sensorContext), any(File.class), anyList(), any(IssueHandler.IssueListener.class));
+        verify(issueHandler, never()).process(eq(sensorContext), any(File.class), any(ExecutableRuleType.class), any(IssueHandler.IssueListener.class));
     }
 
-    private void stubFileSystem(String reportFile) {
-        doReturn(reportFile).when(configuration).getReportFile();
+    private void stubFileSystem(String... reportFiles) {
+        doReturn(asList(reportFiles)).when(configuration).getReportPaths();
         doReturn(baseDir).when(fileSystem).baseDir();
         doReturn(fileSystem).when(sensorContext).fileSystem();
     }
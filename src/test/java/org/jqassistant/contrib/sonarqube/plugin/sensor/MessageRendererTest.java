@@ -0,0 +1,61 @@
+package org.jqassistant.contrib.sonarqube.plugin.sensor;
+
+import org.jqassistant.schema.report.v1.ColumnType;
+import org.jqassistant.schema.report.v1.RowType;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessageRendererTest {
+
+    @Test
+    void externalIssueMessage() {
+        MessageRenderer messageRenderer = new MessageRenderer("TestConstraint", "[test:Constraint] TestConstraint", 0);
+
+        assertThat(messageRenderer.renderExternalIssueMessage(createRow("Type", "com.acme.Foo", "Value", "1"), "Type"))
+            .isEqualTo("TestConstraint\nValue:1\n");
+        assertThat(messageRenderer.renderExternalIssueMessage(createRow("Value", "2", "Type", "com.acme.Bar"), "Type"))
+            .isEqualTo("TestConstraint\nValue:2\n, \n");
+        assertThat(messageRenderer.renderExternalIssueMessage(null, null)).isEqualTo("TestConstraint");
+    }
+
+    @Test
+    void projectIssueMessage() {
+        MessageRenderer messageRenderer = new MessageRenderer("TestConstraint", "[test:Constraint] TestConstraint", 0);
+
+        assertThat(messageRenderer.renderExternalIssueMessage(createRow("Value", "1"), "Type")).isEqualTo("TestConstraint\nValue:1\n");
+        assertThat(messageRenderer.renderProjectIssueMessage(createRow("Value", "2", "Package", "com.acme")))
+            .isEqualTo("[test:Constraint] TestConstraint\nValue:2\n, \nPackage:com.acme\n");
+        assertThat(messageRenderer.renderProjectIssueMessage(null)).isEqualTo("[test:Constraint] TestConstraint");
+    }
+
+    @Test
+    void truncatedValue() {
+        MessageRenderer messageRenderer = new MessageRenderer("TestConstraint", "[test:Constraint] TestConstraint", 30);
+
+        String message = messageRenderer.renderExternalIssueMessage(createRow("Value", "0123456789012345678901234567890123456789", "Other", "1"), null);
+
+        assertThat(message).isEqualTo("TestConstraint\nValue:012345...").hasSize(30);
+        assertThat(messageRenderer.renderExternalIssueMessage(createRow("Value", "1"), null)).isEqualTo("TestConstraint\nValue:1\n");
+    }
+
+    @Test
+    void truncatedPrefix() {
+        MessageRenderer messageRenderer = new MessageRenderer("0123456789012345678901234567890123456789", "[test:Constraint]", 10);
+
+        assertThat(messageRenderer.renderExternalIssueMessage(createRow("Value", "1"), null)).isEqualTo("0123456...");
+        assertThat(messageRenderer.renderExternalIssueMessage(null, null)).isEqualTo("0123456...");
+        assertThat(messageRenderer.renderProjectIssueMessage(null)).isEqualTo("[test:C...");
+    }
+
+    private static RowType createRow(String... namesAndValues) {
+        RowType row = new RowType();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            ColumnType column = new ColumnType();
+            column.setName(namesAndValues[i]);
+            column.setValue(namesAndValues[i + 1]);
+            row.getColumn().add(column);
+        }
+        return row;
+    }
+}
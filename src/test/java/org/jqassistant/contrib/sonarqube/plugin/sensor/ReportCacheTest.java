@@ -0,0 +1,108 @@
+package org.jqassistant.contrib.sonarqube.plugin.sensor;
+
+import org.jqassistant.schema.report.v1.JqassistantReport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the {@link ReportCache}.
+ */
+class ReportCacheTest {
+
+    private final ReportCache reportCache = new ReportCache();
+
+    private final AtomicInteger readCount = new AtomicInteger();
+
+    private final Function<File, JqassistantReport> reader = file -> {
+        readCount.incrementAndGet();
+        return ReportReader.getInstance().read(file);
+    };
+
+    @Test
+    void sameReportIsReadOnce() throws URISyntaxException {
+        File file = getReportFile();
+
+        JqassistantReport report1 = reportCache.get(file, reader);
+        JqassistantReport report2 = reportCache.get(new File(file.getParentFile(), "./" + file.getName()), reader);
+
+        assertThat(report1).isSameAs(report2);
+        assertThat(readCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    void modifiedReportIsReadAgain(@TempDir Path tempDir) throws URISyntaxException, IOException {
+        File file = tempDir.resolve("jqassistant-report.xml").toFile();
+        Files.copy(getReportFile().toPath(), file.toPath());
+
+        JqassistantReport report1 = reportCache.get(file, reader);
+        assertThat(file.setLastModified(file.lastModified() - 10000)).isTrue();
+        JqassistantReport report2 = reportCache.get(file, reader);
+
+        assertThat(report1).isNotSameAs(report2);
+        assertThat(readCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    void leastRecentlyUsedReportIsEvicted(@TempDir Path tempDir) throws URISyntaxException, IOException {
+        File[] files = new File[ReportCache.MAX_ENTRIES + 1];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = tempDir.resolve("jqassistant-report-" + i + ".xml").toFile();
+            Files.copy(getReportFile().toPath(), files[i].toPath());
+            reportCache.get(files[i], reader);
+        }
+
+        reportCache.get(files[files.length - 1], reader);
+        reportCache.get(files[0], reader);
+
+        assertThat(readCount.get()).isEqualTo(files.length + 1);
+    }
+
+    @Test
+    void clearedOnStop() throws URISyntaxException {
+        File file = getReportFile();
+
+        reportCache.get(file, reader);
+        reportCache.stop();
+        reportCache.get(file, reader);
+
+        assertThat(readCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    void resourcesOfEvictedReportsAreClosed(@TempDir Path tempDir) throws URISyntaxException, IOException {
+        File[] files = new File[ReportCache.MAX_ENTRIES + 1];
+        List<File> closedFiles = new ArrayList<>();
+        for (int i = 0; i < files.length; i++) {
+            files[i] = tempDir.resolve("jqassistant-report-" + i + ".xml").toFile();
+            Files.copy(getReportFile().toPath(), files[i].toPath());
+            File file = files[i];
+            reportCache.get(file, reportFile -> {
+                reportCache.register(singletonList(reportFile), () -> closedFiles.add(reportFile));
+                return reader.apply(reportFile);
+            });
+        }
+
+        assertThat(closedFiles).containsExactly(files[0]);
+
+        reportCache.stop();
+
+        assertThat(closedFiles).containsExactlyInAnyOrder(files);
+    }
+
+    private File getReportFile() throws URISyntaxException {
+        return new File(ReportCacheTest.class.getResource("/jqassistant-report-constraint-issue.xml").toURI().getPath());
+    }
+}
@@ -2,10 +2,15 @@ package org.jqassistant.contrib.sonarqube.plugin.sensor;
 
 import org.jqassistant.contrib.sonarqube.plugin.sensor.ReportLocator.ReportLocation;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.List;
 import java.util.Optional;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 
 class ReportLocatorTest {
@@ -48,6 +53,79 @@ class ReportLocatorTest {
                 .contains(ReportLocation.builder().moduleDirectory(PROJECT_DIR).reportFile(new File(PROJECT_DIR, REPORT_PATH).getAbsoluteFile()).build());
     }
 
+    @Test
+    public void compressedReport(@TempDir File projectDir) throws IOException {
+        File moduleDir = new File(projectDir, "module");
+        File compressedReportFile = new File(moduleDir, REPORT_PATH + ".gz");
+        compressedReportFile.getParentFile().mkdirs();
+        compressedReportFile.createNewFile();
+
+        Optional<ReportLocation> reportLocation = ReportLocator.resolveReportFile(projectDir, moduleDir, REPORT_PATH);
+        Optional<ReportLocation> absoluteReportLocation = ReportLocator.resolveReportFile(projectDir, moduleDir,
+                new File(moduleDir, REPORT_PATH).getAbsolutePath());
+
+        assertThat(reportLocation).isPresent()
+                .contains(ReportLocation.builder().moduleDirectory(moduleDir).reportFile(compressedReportFile).build());
+        assertThat(absoluteReportLocation).isPresent()
+                .contains(ReportLocation.builder().moduleDirectory(projectDir).reportFile(compressedReportFile.getAbsoluteFile()).build());
+    }
+
+    @Test
+    public void reportPatterns() {
+        File moduleDir = new File(MODULE_1);
+        List<String> reportPaths = asList("build/*.xml", REPORT_PATH, new File(PROJECT_DIR, "build").getAbsolutePath() + "/jqassistant-*.xml",
+                NON_EXISTING_REPORT_PATH);
+
+        List<ReportLocation> reportLocations = ReportLocator.resolveReportFiles(PROJECT_DIR, moduleDir, reportPaths);
+
+        // all paths match the same file
+        assertThat(reportLocations)
+                .containsExactly(ReportLocation.builder().moduleDirectory(PROJECT_DIR).reportFile(new File(PROJECT_DIR, REPORT_PATH)).build());
+    }
+
+    @Test
+    public void multipleReports(@TempDir File projectDir) throws IOException {
+        File reportDir = new File(projectDir, "build/reports");
+        reportDir.mkdirs();
+        File report1 = new File(reportDir, "subsystem1-report.xml");
+        File report2 = new File(reportDir, "subsystem2-report.xml.gz");
+        report1.createNewFile();
+        report2.createNewFile();
+        new File(reportDir, "other.txt").createNewFile();
+
+        List<ReportLocation> reportLocations = ReportLocator.resolveReportFiles(projectDir, projectDir, singletonList("build/**/*-report.xml*"));
+
+        assertThat(reportLocations).containsExactly(ReportLocation.builder().moduleDirectory(projectDir).reportFile(report1).build(),
+                ReportLocation.builder().moduleDirectory(projectDir).reportFile(report2).build());
+    }
+
+    @Test
+    public void cachedLocations(@TempDir File projectDir) throws IOException {
+        File module1 = new File(projectDir, "parent/module1");
+        File module2 = new File(projectDir, "parent/module2");
+        module1.mkdirs();
+        module2.mkdirs();
+        File reportFile = new File(projectDir, REPORT_PATH);
+        reportFile.getParentFile().mkdirs();
+        reportFile.createNewFile();
+        ReportLocationCache locationCache = new ReportLocationCache();
+        ReportLocation expectedLocation = ReportLocation.builder().moduleDirectory(projectDir).reportFile(reportFile).build();
+
+        Optional<ReportLocation> reportLocation1 = ReportLocator.resolveReportFile(projectDir, module1, REPORT_PATH, locationCache);
+        // the parent directories are not probed again for the sibling module
+        reportFile.delete();
+        Optional<ReportLocation> reportLocation2 = ReportLocator.resolveReportFile(projectDir, module2, REPORT_PATH, locationCache);
+
+        assertThat(reportLocation1).contains(expectedLocation);
+        assertThat(reportLocation2).contains(expectedLocation);
+        // module1, module2, parent and project directory
+        assertThat(locationCache.size()).isEqualTo(4);
+
+        locationCache.stop();
+
+        assertThat(ReportLocator.resolveReportFile(projectDir, module2, REPORT_PATH, locationCache)).isEmpty();
+    }
+
     @Test
     public void nonExistingAbsolutePath() {
         File moduleDir = new File(MODULE_2);
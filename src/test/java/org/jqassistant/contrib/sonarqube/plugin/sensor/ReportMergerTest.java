@@ -0,0 +1,47 @@
+package org.jqassistant.contrib.sonarqube.plugin.sensor;
+
+import org.jqassistant.schema.report.v1.ConceptType;
+import org.jqassistant.schema.report.v1.ConstraintType;
+import org.jqassistant.schema.report.v1.ExecutableRuleType;
+import org.jqassistant.schema.report.v1.GroupType;
+import org.jqassistant.schema.report.v1.JqassistantReport;
+import org.junit.jupiter.api.Test;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the {@link ReportMerger}.
+ */
+class ReportMergerTest {
+
+    @Test
+    void duplicateRules() {
+        JqassistantReport report1 = createReport("group1", rule(new ConceptType(), "test:Concept"), rule(new ConstraintType(), "test:Constraint1"));
+        JqassistantReport report2 = createReport("group2", rule(new ConceptType(), "test:Concept"), rule(new ConstraintType(), "test:Constraint2"));
+
+        JqassistantReport mergedReport = ReportMerger.merge(asList(report1, report2));
+
+        assertThat(mergedReport.getGroupOrConceptOrConstraint()).hasSize(2);
+        GroupType group1 = (GroupType) mergedReport.getGroupOrConceptOrConstraint().get(0);
+        GroupType group2 = (GroupType) mergedReport.getGroupOrConceptOrConstraint().get(1);
+        assertThat(group1.getGroupOrConceptOrConstraint()).extracting("id").containsExactly("test:Concept", "test:Constraint1");
+        assertThat(group2.getGroupOrConceptOrConstraint()).extracting("id").containsExactly("test:Constraint2");
+        // the merged reports are not modified
+        assertThat(((GroupType) report2.getGroupOrConceptOrConstraint().get(0)).getGroupOrConceptOrConstraint()).hasSize(2);
+    }
+
+    private static JqassistantReport createReport(String groupId, ExecutableRuleType... rules) {
+        GroupType group = new GroupType();
+        group.setId(groupId);
+        group.getGroupOrConceptOrConstraint().addAll(asList(rules));
+        JqassistantReport report = new JqassistantReport();
+        report.getGroupOrConceptOrConstraint().add(group);
+        return report;
+    }
+
+    private static ExecutableRuleType rule(ExecutableRuleType rule, String id) {
+        rule.setId(id);
+        return rule;
+    }
+}
@@ -1,15 +1,35 @@
 package org.jqassistant.contrib.sonarqube.plugin.sensor;
 
+import org.jqassistant.contrib.sonarqube.plugin.JQAssistantConfiguration;
+import org.jqassistant.contrib.sonarqube.plugin.ReportGenerator;
+import org.jqassistant.schema.report.v1.ColumnType;
+import org.jqassistant.schema.report.v1.ExecutableRuleType;
+import org.jqassistant.schema.report.v1.GroupType;
 import org.jqassistant.schema.report.v1.JqassistantReport;
 import org.jqassistant.schema.report.v1.ReferencableRuleType;
+import org.jqassistant.schema.report.v1.RowType;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.sonar.api.config.internal.MapSettings;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.jqassistant.schema.report.v1.StatusEnumType.FAILURE;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 
 /**
  * Unit tests for the {@link ReportReader}.
@@ -29,6 +49,273 @@ class ReportReaderTest {
         assertThat(ruleTypes).hasSize(1);
     }
 
+    @Test
+    void streamedReport() throws URISyntaxException {
+        File file = new File(JQAssistantSensorTest.class.getResource("/jqassistant-report-constraint-issue.xml").toURI().getPath());
+        List<String> groups = new ArrayList<>();
+        List<ExecutableRuleType> rules = new ArrayList<>();
+
+        reportReader.read(file, new ReportReader.RuleListener() {
+            @Override
+            public void onGroup(String groupId) {
+                groups.add(groupId);
+            }
+
+            @Override
+            public void onRule(ExecutableRuleType executableRuleType) {
+                rules.add(executableRuleType);
+            }
+        });
+
+        assertThat(groups).containsExactly("MyQualityProfile");
+        assertThat(rules).hasSize(1);
+        ExecutableRuleType rule = rules.get(0);
+        assertThat(rule.getId()).isEqualTo("example:TestConstraint");
+        assertThat(rule.getStatus()).isEqualTo(FAILURE);
+        assertThat(rule.getSeverity().getLevel()).isEqualTo(0);
+        assertThat(rule.getResult().getRows().getRow()).hasSize(2);
+    }
+
+    @Test
+    void compactRows() throws URISyntaxException {
+        File file = new File(JQAssistantSensorTest.class.getResource("/jqassistant-report-constraint-issue.xml").toURI().getPath());
+
+        JqassistantReport report = reportReader.read(file);
+
+        ExecutableRuleType rule = (ExecutableRuleType) ((GroupType) report.getGroupOrConceptOrConstraint().get(0)).getGroupOrConceptOrConstraint().get(0);
+        List<RowType> rows = rule.getResult().getRows().getRow();
+        assertThat(rows).hasSize(2);
+        ColumnType value1 = rows.get(0).getColumn().get(0);
+        ColumnType value2 = rows.get(1).getColumn().get(0);
+        ColumnType writeAccess1 = rows.get(0).getColumn().get(1);
+        ColumnType writeAccess2 = rows.get(1).getColumn().get(1);
+        // strings and elements are shared by the rows of a rule
+        assertThat(value1.getName()).isSameAs(value2.getName()).isSameAs(rule.getResult().getColumns().getColumn().get(0).getValue());
+        // values are mostly unique and not de-duplicated
+        assertThat(value1.getValue()).isEqualTo("test").isEqualTo(value2.getValue()).isNotSameAs(value2.getValue());
+        assertThat(writeAccess1.getName()).isSameAs(writeAccess2.getName());
+        assertThat(writeAccess1.getElement()).isSameAs(writeAccess2.getElement());
+        assertThat(writeAccess1.getElement().getLanguage()).isEqualTo("Java");
+        assertThat(writeAccess1.getElement().getValue()).isEqualTo("WriteField");
+        assertThat(writeAccess1.getSource()).isNotSameAs(writeAccess2.getSource());
+        // the columns of a row are fixed-size
+        assertThrows(UnsupportedOperationException.class, () -> rows.get(0).getColumn().add(new ColumnType()));
+    }
+
+    @Test
+    void pipelinedReport() throws URISyntaxException {
+        File file = new File(JQAssistantSensorTest.class.getResource("/jqassistant-report-1_8.xml").toURI().getPath());
+        List<String> streamedElements = new ArrayList<>();
+        List<String> pipelinedElements = new ArrayList<>();
+
+        reportReader.read(file, collectingListener(streamedElements));
+        reportReader.read(file, collectingListener(pipelinedElements), 1);
+
+        assertThat(pipelinedElements).isNotEmpty().isEqualTo(streamedElements);
+    }
+
+    @Test
+    void pipelinedInvalidReport() throws URISyntaxException {
+        File file = new File(JQAssistantSensorTest.class.getResource("/invalid-report.txt").toURI().getPath());
+
+        assertThrows(IllegalStateException.class, () -> reportReader.read(file, collectingListener(new ArrayList<>()), 1));
+    }
+
+    @Test
+    void pipelinedListenerFailure() throws URISyntaxException {
+        File file = new File(JQAssistantSensorTest.class.getResource("/jqassistant-report-1_8.xml").toURI().getPath());
+        ReportReader.RuleListener failingListener = new ReportReader.RuleListener() {
+            @Override
+            public void onGroup(String groupId) {
+                throw new IllegalArgumentException("Failure");
+            }
+
+            @Override
+            public void onRule(ExecutableRuleType executableRuleType) {
+            }
+        };
+
+        assertThrows(IllegalArgumentException.class, () -> reportReader.read(file, failingListener, 1));
+    }
+
+    @Test
+    void pipelinedParserError() {
+        File file = new File("jqassistant-report.xml");
+        List<String> elements = new ArrayList<>();
+
+        OutOfMemoryError error = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThrows(OutOfMemoryError.class,
+            () -> ReportReader.read(file, listener -> {
+                listener.onGroup("group");
+                throw new OutOfMemoryError("Parser failure");
+            }, collectingListener(elements), 1)));
+
+        assertThat(error).hasMessage("Parser failure");
+        assertThat(elements).containsExactly("group:group");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "/jqassistant-report-1_8.xml", "/jqassistant-report-concept-issue.xml", "/jqassistant-report-constraint-issue.xml",
+            "/jqassistant-report-no-issue.xml" })
+    void boundReportMatchesJaxb(String resource) throws URISyntaxException {
+        File file = new File(JQAssistantSensorTest.class.getResource(resource).toURI().getPath());
+
+        JqassistantReport report = reportReader.read(file);
+
+        assertThat(report).isEqualToComparingFieldByFieldRecursively(reportReader.readJaxb(file));
+    }
+
+    @Test
+    void jaxbFallback(@TempDir File directory) throws IOException {
+        File file = new File(directory, "jqassistant-report.xml");
+        String report = "<jqassistant-report xmlns=\"http://schema.jqassistant.org/report/v1.8\">"
+            + "<concept id=\"example:TestConcept\"><description>A test concept.</description><status>success</status>"
+            + "<severity level=\"3\">minor</severity><duration>unknown</duration></concept></jqassistant-report>";
+        Files.write(file.toPath(), report.getBytes(StandardCharsets.UTF_8));
+
+        JqassistantReport jqassistantReport = reportReader.read(file);
+
+        assertThat(jqassistantReport.getGroupOrConceptOrConstraint()).hasSize(1);
+        assertThat(jqassistantReport.getGroupOrConceptOrConstraint().get(0).getId()).isEqualTo("example:TestConcept");
+    }
+
+    @Test
+    void resultsOfRetainedRulesOnly(@TempDir File directory) throws IOException {
+        File file = new File(directory, "jqassistant-report.xml");
+        ReportGenerator.ReportStatistics statistics = ReportGenerator.builder().groups(2).rowsPerRule(50).build().writeReport(file);
+        RuleFilter ruleFilter = RuleFilter.of(new JQAssistantConfiguration(new MapSettings().asConfig()));
+        List<String> streamedElements = new ArrayList<>();
+
+        try (RowSpill rowSpill = new RowSpill(new File(directory, "spill"), 1, 0, null)) {
+            JqassistantReport report = reportReader.read(file, ruleFilter, rowSpill);
+
+            // only the rows of the failed constraints are bound and spilled
+            assertThat(rowSpill.getSpilledRows()).isEqualTo(statistics.getFailedRows());
+            assertThat(report).isEqualToComparingFieldByFieldRecursively(ruleFilter.apply(reportReader.readJaxb(file)));
+        }
+        reportReader.read(file, ruleFilter, collectingListener(streamedElements));
+
+        assertThat(streamedElements).isNotEmpty().allMatch(element -> element.startsWith("group:") || element.endsWith(":FAILURE"));
+    }
+
+    @Test
+    void missingNumericAttributes(@TempDir File directory) throws IOException {
+        File file = new File(directory, "jqassistant-report.xml");
+        String report = "<jqassistant-report xmlns=\"http://schema.jqassistant.org/report/v1.8\">"
+            + "<constraint id=\"example:TestConstraint\"><description>A test constraint.</description>"
+            + "<result><columns><column primary=\"true\">Type</column></columns><rows><row><column name=\"Type\"><value>Test</value></column></row></rows>"
+            + "</result><status>failure</status><severity>major</severity></constraint></jqassistant-report>";
+        Files.write(file.toPath(), report.getBytes(StandardCharsets.UTF_8));
+        List<ExecutableRuleType> rules = new ArrayList<>();
+
+        reportReader.read(file, new ReportReader.RuleListener() {
+            @Override
+            public void onGroup(String groupId) {
+            }
+
+            @Override
+            public void onRule(ExecutableRuleType executableRuleType) {
+                rules.add(executableRuleType);
+            }
+        });
+
+        assertThat(rules).hasSize(1);
+        assertThat(rules.get(0).getResult().getRows().getRow()).hasSize(1);
+        assertThat(rules.get(0)).isEqualToComparingFieldByFieldRecursively(reportReader.readJaxb(file).getGroupOrConceptOrConstraint().get(0));
+    }
+
+    @Test
+    void filteredReport(@TempDir File directory) throws IOException {
+        File file = new File(directory, "jqassistant-report.xml");
+        String report = "<jqassistant-report xmlns=\"http://schema.jqassistant.org/report/v1.8\">" //
+            + "<group id=\"java:Default\">" + rule("concept", "java:Concept", "failure") + rule("constraint", "java:Success", "success") //
+            + "<group id=\"java:Nested\">" + rule("constraint", "java:NestedConstraint", "failure") + "</group>" //
+            + "<group id=\"java:Excluded\">" + rule("constraint", "java:ExcludedConstraint", "failure") + "</group>" //
+            + rule("constraint", "java:ExcludedRule", "failure") + "</group>" //
+            + "<group id=\"spring:Default\">" + rule("constraint", "spring:Component", "failure") + rule("constraint", "spring:Other", "failure")
+            + "</group>" //
+            + "</jqassistant-report>";
+        Files.write(file.toPath(), report.getBytes(StandardCharsets.UTF_8));
+        MapSettings settings = new MapSettings().setProperty(JQAssistantConfiguration.INCLUDED_RULES, "java:Def*,spring:Comp?nent")
+            .setProperty(JQAssistantConfiguration.EXCLUDED_RULES, "*:Excluded*");
+        RuleFilter ruleFilter = RuleFilter.of(new JQAssistantConfiguration(settings.asConfig()));
+        List<String> streamedElements = new ArrayList<>();
+        List<String> pipelinedElements = new ArrayList<>();
+
+        reportReader.read(file, ruleFilter, collectingListener(streamedElements));
+        reportReader.read(file, ruleFilter, collectingListener(pipelinedElements), 1);
+        JqassistantReport boundReport = reportReader.read(file, ruleFilter);
+
+        assertThat(streamedElements).containsExactly("group:java:Default", "rule:java:Concept:FAILURE", "group:java:Nested",
+            "rule:java:NestedConstraint:FAILURE", "group:spring:Default", "rule:spring:Component:FAILURE");
+        assertThat(pipelinedElements).isEqualTo(streamedElements);
+        assertThat(ruleIds(boundReport.getGroupOrConceptOrConstraint())).containsExactly("java:Default", "java:Concept", "java:Nested",
+            "java:NestedConstraint", "spring:Default", "spring:Component");
+        assertThat(boundReport).isEqualToComparingFieldByFieldRecursively(ruleFilter.apply(reportReader.readJaxb(file)));
+    }
+
+    @Test
+    void gzipReport(@TempDir File directory) throws URISyntaxException, IOException {
+        File file = new File(JQAssistantSensorTest.class.getResource("/jqassistant-report-constraint-issue.xml").toURI().getPath());
+        File compressedFile = new File(directory, "jqassistant-report.xml.gz");
+        try (OutputStream outputStream = new GZIPOutputStream(new FileOutputStream(compressedFile))) {
+            Files.copy(file.toPath(), outputStream);
+        }
+        List<ExecutableRuleType> rules = new ArrayList<>();
+
+        JqassistantReport report = reportReader.read(compressedFile);
+        reportReader.read(compressedFile, new ReportReader.RuleListener() {
+            @Override
+            public void onGroup(String groupId) {
+            }
+
+            @Override
+            public void onRule(ExecutableRuleType executableRuleType) {
+                rules.add(executableRuleType);
+            }
+        });
+
+        assertThat(report).isEqualToComparingFieldByFieldRecursively(reportReader.read(file));
+        assertThat(rules).hasSize(1);
+        assertThat(rules.get(0).getResult().getRows().getRow()).hasSize(2);
+    }
+
+    @Test
+    void zstdReport(@TempDir File directory) throws IOException {
+        File file = new File(directory, "jqassistant-report.xml.zst");
+        Files.write(file.toPath(), new byte[] { 0x28, (byte) 0xb5, 0x2f, (byte) 0xfd, 0 });
+
+        assertThrows(IllegalStateException.class, () -> reportReader.read(file));
+    }
+
+    private static String rule(String type, String id, String status) {
+        return "<" + type + " id=\"" + id + "\"><description>A rule.</description><status>" + status
+            + "</status><severity level=\"3\">minor</severity><duration>1</duration></" + type + ">";
+    }
+
+    private static List<String> ruleIds(List<ReferencableRuleType> rules) {
+        List<String> ruleIds = new ArrayList<>();
+        for (ReferencableRuleType rule : rules) {
+            ruleIds.add(rule.getId());
+            if (rule instanceof GroupType) {
+                ruleIds.addAll(ruleIds(((GroupType) rule).getGroupOrConceptOrConstraint()));
+            }
+        }
+        return ruleIds;
+    }
+
+    private static ReportReader.RuleListener collectingListener(List<String> elements) {
+        return new ReportReader.RuleListener() {
+            @Override
+            public void onGroup(String groupId) {
+                elements.add("group:" + groupId);
+            }
+
+            @Override
+            public void onRule(ExecutableRuleType executableRuleType) {
+                elements.add("rule:" + executableRuleType.getId() + ":" + executableRuleType.getStatus());
+            }
+        };
+    }
 
     @Test
     void textFile() throws URISyntaxException {
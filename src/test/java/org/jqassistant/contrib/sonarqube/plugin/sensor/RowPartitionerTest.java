@@ -0,0 +1,177 @@
+package org.jqassistant.contrib.sonarqube.plugin.sensor;
+
+import org.jqassistant.contrib.sonarqube.plugin.JQAssistantConfiguration;
+import org.jqassistant.contrib.sonarqube.plugin.language.JavaResourceResolver;
+import org.jqassistant.schema.report.v1.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.sonar.api.batch.fs.FilePredicate;
+import org.sonar.api.batch.fs.FilePredicates;
+import org.sonar.api.batch.fs.FileSystem;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.java.model.GeneratedFile;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+@ExtendWith(MockitoExtension.class)
+class RowPartitionerTest {
+
+    private static final File PROJECT_PATH = new File("project");
+
+    private static final File MODULE_PATH = new File(PROJECT_PATH, "module");
+
+    @Mock
+    private SensorContext projectContext;
+
+    @Mock
+    private FileSystem projectFileSystem;
+
+    @Mock
+    private SensorContext moduleContext;
+
+    @Mock
+    private FileSystem moduleFileSystem;
+
+    private RowPartitioner rowPartitioner = new RowPartitioner(new JavaResourceResolver(new JQAssistantConfiguration(new MapSettings().asConfig())));
+
+    private JqassistantReport report = new JqassistantReport();
+
+    private ConceptType concept;
+
+    private ConstraintType constraint;
+
+    @BeforeEach
+    public void setUp() {
+        concept = new ConceptType();
+        concept.setId("test:Concept");
+        constraint = new ConstraintType();
+        constraint.setId("test:Constraint");
+        constraint.setDescription("TestConstraint");
+        ResultType result = new ResultType();
+        ColumnsHeaderType columns = new ColumnsHeaderType();
+        ColumnHeaderType column = new ColumnHeaderType();
+        column.setValue("Element");
+        column.setPrimary(true);
+        columns.getColumn().add(column);
+        result.setColumns(columns);
+        RowsType rows = new RowsType();
+        rows.getRow().add(createRow("Type", "/com/acme/Foo.class"));
+        rows.getRow().add(createRow("Type", "/com/acme/module/Bar.class"));
+        rows.getRow().add(createRow(null, null));
+        rows.getRow().add(createRow("Package", "/com/acme"));
+        rows.getRow().add(createRow("Method", "/com/acme/Foo$Inner.class"));
+        result.setRows(rows);
+        constraint.setResult(result);
+    }
+
+    @Test
+    void projectRules() {
+        stubFileSystem(projectContext, projectFileSystem, PROJECT_PATH, "src/main/java/com/acme/Foo.java");
+
+        List<ExecutableRuleType> rules = rowPartitioner.getModuleRules(projectContext, PROJECT_PATH, report, asList(concept, constraint), false);
+
+        assertThat(rules).hasSize(2);
+        assertThat(rules.get(0)).isSameAs(concept);
+        ExecutableRuleType projectConstraint = rules.get(1);
+        assertThat(projectConstraint.getId()).isEqualTo("test:Constraint");
+        assertThat(projectConstraint.getDescription()).isEqualTo("TestConstraint");
+        List<RowType> rows = constraint.getResult().getRows().getRow();
+        assertThat(projectConstraint.getResult().getRows().getRow()).containsExactly(rows.get(0), rows.get(2), rows.get(4));
+    }
+
+    @Test
+    void moduleRules() {
+        stubFileSystem(moduleContext, moduleFileSystem, MODULE_PATH, "module/src/main/java/com/acme/module/Bar.java");
+
+        List<ExecutableRuleType> rules = rowPartitioner.getModuleRules(moduleContext, PROJECT_PATH, report, asList(concept, constraint), false);
+
+        assertThat(rules).hasSize(1);
+        List<RowType> rows = constraint.getResult().getRows().getRow();
+        assertThat(rules.get(0).getResult().getRows().getRow()).containsExactly(rows.get(1));
+    }
+
+    @Test
+    void moduleRowsAreViews() {
+        stubFileSystem(moduleContext, moduleFileSystem, MODULE_PATH, "module/src/main/java/com/acme/module/Bar.java");
+
+        List<ExecutableRuleType> rules = rowPartitioner.getModuleRules(moduleContext, PROJECT_PATH, report, asList(concept, constraint), false);
+
+        // the selected rows are accessed using the rows of the rule, e.g. spilled rows are read on demand
+        RowType row = createRow("Type", "/com/acme/module/Bar.class");
+        constraint.getResult().getRows().getRow().set(1, row);
+        assertThat(rules.get(0).getResult().getRows().getRow()).containsExactly(row);
+    }
+
+    @Test
+    void changedFilesOnly() {
+        InputFile foo = new TestInputFileBuilder("project", "src/main/java/com/acme/Foo.java").setModuleBaseDir(PROJECT_PATH.toPath())
+            .setStatus(InputFile.Status.SAME).build();
+        InputFile bar = new TestInputFileBuilder("project", "src/main/java/com/acme/module/Bar.java").setModuleBaseDir(PROJECT_PATH.toPath())
+            .setStatus(InputFile.Status.CHANGED).build();
+        stubFileSystem(projectContext, projectFileSystem, PROJECT_PATH, asList(foo, bar));
+
+        List<ExecutableRuleType> rules = rowPartitioner.getModuleRules(projectContext, PROJECT_PATH, report, asList(concept, constraint), true);
+
+        assertThat(rules).hasSize(2);
+        assertThat(rules.get(0)).isSameAs(concept);
+        List<RowType> rows = constraint.getResult().getRows().getRow();
+        assertThat(rules.get(1).getResult().getRows().getRow()).containsExactly(rows.get(1), rows.get(2));
+    }
+
+    @Test
+    void unchangedModule() {
+        InputFile bar = new TestInputFileBuilder("module", "src/main/java/com/acme/module/Bar.java").setModuleBaseDir(MODULE_PATH.toPath())
+            .setStatus(InputFile.Status.SAME).build();
+        stubFileSystem(moduleContext, moduleFileSystem, MODULE_PATH, singletonList(bar));
+
+        List<ExecutableRuleType> rules = rowPartitioner.getModuleRules(moduleContext, PROJECT_PATH, report, asList(concept, constraint), true);
+
+        assertThat(rules).isEmpty();
+    }
+
+    private RowType createRow(String type, String source) {
+        RowType row = new RowType();
+        ColumnType column = new ColumnType();
+        column.setName("Element");
+        column.setValue("Value");
+        if (type != null) {
+            ElementType element = new ElementType();
+            element.setLanguage("Java");
+            element.setValue(type);
+            column.setElement(element);
+            SourceType sourceType = new SourceType();
+            sourceType.setName(source);
+            column.setSource(sourceType);
+        }
+        row.getColumn().add(column);
+        return row;
+    }
+
+    private void stubFileSystem(SensorContext sensorContext, FileSystem fileSystem, File baseDir, String javaFile) {
+        stubFileSystem(sensorContext, fileSystem, baseDir, singletonList(new GeneratedFile(Paths.get(javaFile))));
+    }
+
+    private void stubFileSystem(SensorContext sensorContext, FileSystem fileSystem, File baseDir, List<InputFile> javaFiles) {
+        FilePredicates predicates = mock(FilePredicates.class);
+        FilePredicate predicate = mock(FilePredicate.class);
+        doReturn(fileSystem).when(sensorContext).fileSystem();
+        doReturn(baseDir).when(fileSystem).baseDir();
+        doReturn(predicates).when(fileSystem).predicates();
+        doReturn(predicate).when(predicates).hasExtension("java");
+        doReturn(javaFiles).when(fileSystem).inputFiles(predicate);
+    }
+}
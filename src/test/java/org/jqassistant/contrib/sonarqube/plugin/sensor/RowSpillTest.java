@@ -0,0 +1,133 @@
+package org.jqassistant.contrib.sonarqube.plugin.sensor;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jqassistant.contrib.sonarqube.plugin.ReportGenerator;
+import org.jqassistant.schema.report.v1.ExecutableRuleType;
+import org.jqassistant.schema.report.v1.GroupType;
+import org.jqassistant.schema.report.v1.JqassistantReport;
+import org.jqassistant.schema.report.v1.RowType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.doReturn;
+
+/**
+ * Verifies the {@link RowSpill}.
+ */
+@ExtendWith(MockitoExtension.class)
+class RowSpillTest {
+
+    @TempDir
+    File directory;
+
+    @Mock
+    private MemoryMXBean memoryMXBean;
+
+    private ReportReader reportReader = ReportReader.getInstance();
+
+    private File reportFile;
+
+    private ReportGenerator.ReportStatistics statistics;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        reportFile = new File(directory, "jqassistant-report.xml");
+        statistics = ReportGenerator.builder().groups(2).rowsPerRule(600).columns(3).resolvableShare(0.5).sourceFiles(10).build().writeReport(reportFile);
+    }
+
+    @Test
+    void heapBudget() throws IOException {
+        File spillDirectory = new File(directory, "spill");
+        RowSpill rowSpill = new RowSpill(spillDirectory, 100 * RowSpill.estimateSize(getFirstRow(reportReader.read(reportFile))), 0, null);
+
+        JqassistantReport report = reportReader.read(reportFile, RuleFilter.ALL, rowSpill);
+
+        // the size of the rows differs, i.e. approximately 100 rows are held in memory
+        assertThat(rowSpill.getSpilledRows()).isBetween(statistics.getRows() - 200, statistics.getRows() - 50);
+        assertThat(spillDirectory.listFiles()).hasSize(1);
+        assertThat(report).isEqualToComparingFieldByFieldRecursively(reportReader.read(reportFile));
+
+        rowSpill.close();
+
+        assertThat(spillDirectory.listFiles()).isEmpty();
+        List<RowType> rows = getRule(report, 1).getResult().getRows().getRow();
+        assertThrows(IllegalStateException.class, () -> rows.get(rows.size() - 1));
+    }
+
+    @Test
+    void concurrentReports() throws Exception {
+        File otherReportFile = new File(directory, "other-report.xml");
+        ReportGenerator.builder().groups(3).rowsPerRule(400).columns(2).seed(1).sourceFiles(20).build().writeReport(otherReportFile);
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try (RowSpill rowSpill = new RowSpill(new File(directory, "spill"), 1, 0, null)) {
+            // the rows of both reports are interleaved in the spill file
+            Future<JqassistantReport> report = executorService.submit(() -> reportReader.read(reportFile, RuleFilter.ALL, rowSpill));
+            Future<JqassistantReport> otherReport = executorService.submit(() -> reportReader.read(otherReportFile, RuleFilter.ALL, rowSpill));
+
+            assertThat(report.get()).isEqualToComparingFieldByFieldRecursively(reportReader.read(reportFile));
+            assertThat(otherReport.get()).isEqualToComparingFieldByFieldRecursively(reportReader.read(otherReportFile));
+            assertThat(rowSpill.getSpilledRows()).isEqualTo(statistics.getRows() + 3 * 2 * 400);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    void heapThreshold() throws IOException {
+        doReturn(new MemoryUsage(0, 50, 100, 100)).doReturn(new MemoryUsage(0, 90, 100, 100)).when(memoryMXBean).getHeapMemoryUsage();
+
+        try (RowSpill rowSpill = new RowSpill(directory, Long.MAX_VALUE, 80, memoryMXBean)) {
+            JqassistantReport report = reportReader.read(reportFile, RuleFilter.ALL, rowSpill);
+
+            // the heap usage is checked for the first row and again after 1024 rows
+            assertThat(rowSpill.getSpilledRows()).isEqualTo(statistics.getRows() - RowSpill.HEAP_CHECK_INTERVAL);
+            assertThat(report).isEqualToComparingFieldByFieldRecursively(reportReader.read(reportFile));
+        }
+    }
+
+    @Test
+    void heapThresholdNoLongerExceeded() throws IOException {
+        doReturn(new MemoryUsage(0, 90, 100, 100)).doReturn(new MemoryUsage(0, 50, 100, 100)).when(memoryMXBean).getHeapMemoryUsage();
+
+        try (RowSpill rowSpill = new RowSpill(directory, Long.MAX_VALUE, 80, memoryMXBean)) {
+            JqassistantReport report = reportReader.read(reportFile, RuleFilter.ALL, rowSpill);
+
+            // the rule containing the row of the second heap check is still spilled completely
+            assertThat(rowSpill.getSpilledRows()).isEqualTo(2 * 600);
+            assertThat(report).isEqualToComparingFieldByFieldRecursively(reportReader.read(reportFile));
+        }
+    }
+
+    @Test
+    void heapThresholdNotExceeded() throws IOException {
+        doReturn(new MemoryUsage(0, 50, 100, 100)).when(memoryMXBean).getHeapMemoryUsage();
+
+        try (RowSpill rowSpill = new RowSpill(directory, Long.MAX_VALUE, 80, memoryMXBean)) {
+            reportReader.read(reportFile, RuleFilter.ALL, rowSpill);
+
+            assertThat(rowSpill.getSpilledRows()).isEqualTo(0);
+        }
+    }
+
+    private static RowType getFirstRow(JqassistantReport report) {
+        return getRule(report, 0).getResult().getRows().getRow().get(0);
+    }
+
+    private static ExecutableRuleType getRule(JqassistantReport report, int index) {
+        return (ExecutableRuleType) ((GroupType) report.getGroupOrConceptOrConstraint().get(0)).getGroupOrConceptOrConstraint().get(index);
+    }
+}
@@ -15,6 +15,7 @@ import java.util.Optional;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
 class RuleKeyResolverTest {
@@ -48,4 +49,20 @@ class RuleKeyResolverTest {
         assertThat(constraintKey.isPresent()).isEqualTo(true);
         assertThat(conceptKey.isPresent()).isEqualTo(true);
     }
+
+    @Test
+    void resolveOnce() {
+        doReturn(constraintRule).when(activeRules).findByInternalKey(JQAssistant.KEY, RuleType.CONSTRAINT.getKey());
+        doReturn(conceptRule).when(activeRules).findByInternalKey(JQAssistant.KEY, RuleType.CONCEPT.getKey());
+
+        Optional<RuleKey> constraintKey1 = ruleKeyResolver.resolve(RuleType.CONSTRAINT);
+        Optional<RuleKey> constraintKey2 = ruleKeyResolver.resolve(RuleType.CONSTRAINT);
+        Optional<RuleKey> conceptKey1 = ruleKeyResolver.resolve(RuleType.CONCEPT);
+        Optional<RuleKey> conceptKey2 = ruleKeyResolver.resolve(RuleType.CONCEPT);
+
+        assertThat(constraintKey1).isSameAs(constraintKey2);
+        assertThat(conceptKey1).isSameAs(conceptKey2);
+        verify(activeRules).findByInternalKey(JQAssistant.KEY, RuleType.CONSTRAINT.getKey());
+        verify(activeRules).findByInternalKey(JQAssistant.KEY, RuleType.CONCEPT.getKey());
+    }
 }
@@ -0,0 +1,88 @@
+package org.jqassistant.contrib.sonarqube.plugin.sensor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Optional;
+
+import org.jqassistant.contrib.sonarqube.plugin.JQAssistantConfiguration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jqassistant.contrib.sonarqube.plugin.sensor.SensorMetrics.Phase.PARSE;
+import static org.mockito.Mockito.doReturn;
+
+/**
+ * Unit tests for the {@link SensorMetrics}.
+ */
+@ExtendWith(MockitoExtension.class)
+class SensorMetricsTest {
+
+    @Mock
+    private JQAssistantConfiguration configuration;
+
+    @TempDir
+    File projectDirectory;
+
+    @Test
+    void counters() {
+        SensorMetrics sensorMetrics = new SensorMetrics(configuration);
+        SensorMetrics.Execution execution = sensorMetrics.begin("module", projectDirectory);
+
+        execution.addDuration(PARSE, MILLISECONDS.toNanos(5));
+        execution.addDuration(PARSE, MILLISECONDS.toNanos(7));
+        execution.addRow();
+        execution.addRow();
+        execution.addIssue();
+        execution.addElement(true);
+        execution.addElement(false);
+        execution.addElement(false);
+        execution.end();
+
+        assertThat(sensorMetrics.getExecution()).isSameAs(execution);
+        assertThat(execution.getDuration(PARSE)).isEqualTo(12);
+        assertThat(execution.getRows()).isEqualTo(2);
+        assertThat(execution.getIssues()).isEqualTo(1);
+        assertThat(execution.getResolvedElements()).isEqualTo(1);
+        assertThat(execution.getUnresolvedElements()).isEqualTo(2);
+    }
+
+    @Test
+    void metricsFile() throws IOException {
+        doReturn(Optional.of("target/metrics.json")).when(configuration).getMetricsFile();
+        SensorMetrics sensorMetrics = new SensorMetrics(configuration);
+        sensorMetrics.begin("module1", projectDirectory).end();
+        SensorMetrics.Execution execution = sensorMetrics.begin("module2", projectDirectory);
+        execution.addRow();
+        execution.end();
+
+        sensorMetrics.stop();
+
+        File metricsFile = new File(projectDirectory, "target/metrics.json");
+        assertThat(metricsFile).exists();
+        String json = new String(Files.readAllBytes(metricsFile.toPath()), StandardCharsets.UTF_8);
+        assertThat(json).contains("\"module\": \"module1\"", "\"module\": \"module2\"", "\"rows\": 1", "\"parseMs\": 0");
+    }
+
+    @Test
+    void escape() {
+        assertThat(SensorMetrics.Execution.escape("a\"b\\c\td\ne\u0001")).isEqualTo("a\\\"b\\\\c\\u0009d\\u000ae\\u0001");
+    }
+
+    @Test
+    void noMetricsFile() {
+        doReturn(Optional.empty()).when(configuration).getMetricsFile();
+        SensorMetrics sensorMetrics = new SensorMetrics(configuration);
+        sensorMetrics.begin("module", projectDirectory).end();
+
+        sensorMetrics.stop();
+
+        assertThat(projectDirectory.list()).isEmpty();
+    }
+}